@@ -4,6 +4,7 @@ import com.google.gson.Gson;
 import model.AuthData;
 import model.UserData;
 import model.GameData;
+import serialization.GsonFactory;
 import websocket.messages.ServerMessage;
 import websocket.commands.MakeMoveCommand;
 import websocket.commands.UserGameCommand;
@@ -27,18 +28,20 @@ public class ServerFacade implements ServerMessageObserver{
   private String username;
 
   private WebSocketCommunicator webSocketCommunicator;
+  private Integer connectedGameID;
+  private String connectedAuthToken;
   private final ChessClient chessClient;
 
 
   public ServerFacade(String url, ChessClient chessClient) {
     serverUrl = url;
     this.chessClient=chessClient;
-    gson = new Gson();
+    gson = GsonFactory.gson();
   }
 
   public ServerFacade(int port){
     serverUrl = "http://localhost:" + port;
-    gson = new Gson();
+    gson = GsonFactory.gson();
     this.chessClient = null;
   }
   //Pre-login operations: Help, quit, login, register
@@ -188,7 +191,10 @@ public class ServerFacade implements ServerMessageObserver{
         authToken,
         gameID
     );
+      connectCommand.setDeltaUpdates(true);
       webSocketCommunicator.sendCommand(connectCommand);
+      connectedGameID = gameID;
+      connectedAuthToken = authToken;
 }
 
   public void makeMove(int gameID, String authToken, chess.ChessMove move) throws Exception {
@@ -237,7 +243,14 @@ public class ServerFacade implements ServerMessageObserver{
       switch (message.getServerMessageType()) {
         case LOAD_GAME -> {
           LoadGameMessage loadMessage = (LoadGameMessage) message;
-          chessClient.updateGameDisplay(loadMessage.getGame());
+          chessClient.updateGameDisplay(loadMessage.getGame(), loadMessage.getSequence());
+        }
+        case MOVE -> {
+          MoveMessage moveMessage = (MoveMessage) message;
+          if (!chessClient.applyMove(moveMessage)) {
+            webSocketCommunicator.sendCommand(new UserGameCommand(
+                    UserGameCommand.CommandType.SYNC, connectedAuthToken, connectedGameID));
+          }
         }
         case ERROR -> {
           ErrorMessage errorMessage = (ErrorMessage) message;
@@ -2,7 +2,13 @@ package client.websocket;
 
 import chess.ChessMove;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import serialization.GsonFactory;
 import websocket.messages.ErrorMessage;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
 import websocket.messages.ServerMessage;
 import websocket.commands.UserGameCommand;
 import javax.websocket.*;
@@ -20,7 +26,7 @@ public class WebSocketCommunicator {
 
   public WebSocketCommunicator(URI serverURI, ServerMessageObserver observer) throws Exception {
     this.observer = observer;
-    this.gson = new Gson();
+    this.gson = GsonFactory.gson();
     WebSocketContainer container = ContainerProvider.getWebSocketContainer();
     container.connectToServer(this, serverURI);
   }
@@ -38,8 +44,16 @@ public class WebSocketCommunicator {
 
   private void handleServerMessage(String message) {
     try {
-      ServerMessage serverMessage = gson.fromJson(message, ServerMessage.class);
-      observer.notify(serverMessage);
+      // Parse once, then bind to the concrete message type so observers can cast it
+      JsonElement json = JsonParser.parseString(message);
+      ServerMessage header = gson.fromJson(json, ServerMessage.class);
+      Class<? extends ServerMessage> messageClass = switch (header.getServerMessageType()) {
+        case LOAD_GAME -> LoadGameMessage.class;
+        case ERROR -> ErrorMessage.class;
+        case NOTIFICATION -> NotificationMessage.class;
+        case MOVE -> MoveMessage.class;
+      };
+      observer.notify(gson.fromJson(json, messageClass));
     } catch (Exception e) {
       System.err.println("Error processing message: " + e.getMessage());
     }
@@ -55,9 +69,24 @@ public class WebSocketCommunicator {
             authToken,
             gameId
     );
+    connectCommand.setDeltaUpdates(true);
     sendCommand(connectCommand);
   }
 
+  // Ask for a full LOAD_GAME after a MOVE couldn't be applied locally
+  public void requestSync() throws IOException {
+    if (currentGameId == null) {
+      throw new IllegalStateException("Not connected to a game");
+    }
+
+    UserGameCommand syncCommand = new UserGameCommand(
+            UserGameCommand.CommandType.SYNC,
+            authToken,
+            currentGameId
+    );
+    sendCommand(syncCommand);
+  }
+
   // Send a chess move
   public void sendMove(ChessMove move) throws IOException {
     if (currentGameId == null) {
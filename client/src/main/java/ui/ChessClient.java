@@ -5,6 +5,8 @@ import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
 import chess.ChessPosition;
+import chess.InvalidMoveException;
+import chess.PositionHash;
 import client.websocket.WebSocketCommunicator;
 import model.AuthData;
 import model.GameData;
@@ -23,6 +25,8 @@ public class ChessClient {
   private String authToken=null;
   private List<GameData> gamesList=new ArrayList<>();
   private GameData currentGame = null;
+  // Plies applied to currentGame, to spot a skipped MOVE message
+  private int currentSequence = 0;
   private ChessGame.TeamColor playerColor = null;
   private boolean inGame = false;
   private WebSocketCommunicator webSocket;
@@ -387,13 +391,45 @@ public class ChessClient {
   }
 
   public void updateGameDisplay(GameData game) {
+    updateGameDisplay(game, null);
+  }
+
+  public void updateGameDisplay(GameData game, Integer sequence) {
     if (currentGame != null) {
       currentGame = game;
+      currentSequence = (sequence != null) ? sequence : 0;
       System.out.println("\nBoard updated:"); // Add notification of update
       redrawBoard();
     }
   }
 
+  /**
+   * Applies a MOVE delta to the local copy of the game.
+   *
+   * @return false if the local game is out of step and a full resync is needed
+   */
+  public boolean applyMove(MoveMessage message) {
+    if (currentGame == null || currentGame.game() == null) {
+      return true;
+    }
+    if (message.getSequence() != currentSequence + 1) {
+      return false;
+    }
+    ChessGame game = currentGame.game();
+    try {
+      game.makeMove(message.getMove());
+    } catch (InvalidMoveException e) {
+      return false;
+    }
+    if (PositionHash.of(game) != message.getPositionHash()) {
+      return false;
+    }
+    currentSequence = message.getSequence();
+    System.out.println("\nBoard updated:");
+    redrawBoard();
+    return true;
+  }
+
   private void resignGame() throws Exception {
     if (currentGame == null) {return;}
     if (playerColor == null) {
@@ -434,7 +470,16 @@ public class ChessClient {
       }
       case LOAD_GAME -> {
         LoadGameMessage loadGame = (LoadGameMessage) message;
-        updateGameDisplay(loadGame.getGame());
+        updateGameDisplay(loadGame.getGame(), loadGame.getSequence());
+      }
+      case MOVE -> {
+        if (!applyMove((MoveMessage) message)) {
+          try {
+            webSocket.requestSync();
+          } catch (Exception e) {
+            displayError("Unable to resync game: " + e.getMessage());
+          }
+        }
       }
     }
   }
@@ -0,0 +1,137 @@
+package dataaccess;
+
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs DataAccess calls off the caller's thread and hands back futures, so a
+ * request can start several independent lookups and wait for them together
+ * instead of one after another.
+ * <p>
+ * Calls run on a fixed pool of daemon platform threads, one per call allowed
+ * in the backend at once, and past that they queue here rather than piling
+ * up on the connection pool. Not virtual threads: Connector/J 8.0 blocks on
+ * socket reads inside synchronized blocks, which pins a virtual thread to its
+ * carrier, so a few slow queries would stall every other virtual thread in
+ * the JVM.
+ */
+public class AsyncDataAccess implements AutoCloseable {
+  public static final int DEFAULT_MAX_CONCURRENT = 32;
+
+  @FunctionalInterface
+  public interface Call<T> {
+    T run() throws DataAccessException;
+  }
+
+  private final DataAccess dataAccess;
+  private final ExecutorService executor;
+
+  /**
+   * @param maxConcurrent calls allowed in the backend at once; about the size of its connection pool
+   */
+  public AsyncDataAccess(DataAccess dataAccess, int maxConcurrent) {
+    if (maxConcurrent < 1) {
+      throw new IllegalArgumentException("maxConcurrent must be positive");
+    }
+    this.dataAccess = dataAccess;
+    // Threads start as calls arrive, so an instance that is never used costs nothing
+    this.executor = Executors.newFixedThreadPool(maxConcurrent,
+            Thread.ofPlatform().name("data-access-", 0).daemon().factory());
+  }
+
+  /**
+   * Runs any call against the backend asynchronously. The future fails with
+   * whatever exception the call threw.
+   */
+  public <T> CompletableFuture<T> supply(Call<T> call) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    executor.execute(() -> {
+      try {
+        future.complete(call.run());
+      } catch (Throwable e) {
+        future.completeExceptionally(e);
+      }
+    });
+    return future;
+  }
+
+  public CompletableFuture<UserData> getUser(String username) {
+    return supply(() -> dataAccess.getUser(username));
+  }
+
+  public CompletableFuture<GameData> getGame(int gameID) {
+    return supply(() -> dataAccess.getGame(gameID));
+  }
+
+  public CompletableFuture<List<GameData>> listGames() {
+    return supply(dataAccess::listGames);
+  }
+
+  public CompletableFuture<List<GameSummary>> listGameSummaries(GameQuery query) {
+    return supply(() -> dataAccess.listGameSummaries(query));
+  }
+
+  public CompletableFuture<Integer> createGame(GameData game) {
+    return supply(() -> dataAccess.createGame(game));
+  }
+
+  public CompletableFuture<Void> updateGame(GameData game) {
+    return supply(() -> {
+      dataAccess.updateGame(game);
+      return null;
+    });
+  }
+
+  public CompletableFuture<AuthData> getAuth(String authToken) {
+    return supply(() -> dataAccess.getAuth(authToken));
+  }
+
+  public CompletableFuture<Void> createAuth(AuthData auth) {
+    return supply(() -> {
+      dataAccess.createAuth(auth);
+      return null;
+    });
+  }
+
+  public CompletableFuture<Void> deleteAuth(String authToken) {
+    return supply(() -> {
+      dataAccess.deleteAuth(authToken);
+      return null;
+    });
+  }
+
+  /**
+   * Waits for the future and rethrows the DataAccessException it failed with,
+   * as if the call had been made directly.
+   */
+  public static <T> T await(CompletableFuture<T> future) throws DataAccessException {
+    try {
+      return future.join();
+    } catch (CompletionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof DataAccessException dataAccessException) {
+        throw dataAccessException;
+      }
+      if (cause instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+      throw new DataAccessException("Storage call failed: " + cause.getMessage());
+    }
+  }
+
+  /**
+   * Stops accepting calls; ones already started finish.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+}
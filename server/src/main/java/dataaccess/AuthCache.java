@@ -0,0 +1,149 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers recent auth lookups so most token checks skip the backend.
+ * <p>
+ * Known tokens are kept for the TTL, and tokens the backend rejected are kept
+ * for the shorter negative TTL so repeated bad tokens don't reach it either.
+ * Invalidation bumps a generation counter, and a lookup that started before
+ * an invalidation doesn't store its result, so a logged-out token can't be
+ * put back by a read that was already in flight.
+ */
+public class AuthCache {
+
+  /**
+   * @param maxEntries          tokens kept before the soonest to expire are dropped
+   * @param ttlMillis           how long a valid token is trusted without asking the backend
+   * @param negativeTtlMillis   how long an unknown token is rejected without asking the backend
+   */
+  public record Settings(int maxEntries, long ttlMillis, long negativeTtlMillis) {
+    public Settings {
+      if (maxEntries < 1 || ttlMillis < 0 || negativeTtlMillis < 0) {
+        throw new IllegalArgumentException("Invalid auth cache settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(10_000, 60_000, 5_000);
+    }
+  }
+
+  public record Stats(long hits, long negativeHits, long misses, long evictions, int size) {
+    public double hitRate() {
+      long lookups = hits + negativeHits + misses;
+      return lookups == 0 ? 0 : (double) (hits + negativeHits) / lookups;
+    }
+  }
+
+  @FunctionalInterface
+  interface Loader {
+    AuthData load(String authToken) throws UnauthorizedException, DatabaseException;
+  }
+
+  /**
+   * @param auth null for a token the backend rejected
+   */
+  private record Entry(AuthData auth, long expiresAtNanos) {
+  }
+
+  private final Settings settings;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final AtomicLong generation = new AtomicLong();
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder negativeHits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public AuthCache(Settings settings) {
+    this.settings = settings;
+  }
+
+  AuthData get(String authToken, Loader loader) throws UnauthorizedException, DatabaseException {
+    long now = System.nanoTime();
+    Entry entry = entries.get(authToken);
+    if (entry != null && entry.expiresAtNanos() - now > 0) {
+      if (entry.auth() == null) {
+        negativeHits.increment();
+        throw new UnauthorizedException("Error: Unauthorized");
+      }
+      hits.increment();
+      return entry.auth();
+    }
+
+    misses.increment();
+    long startGeneration = generation.get();
+    AuthData auth;
+    try {
+      auth = loader.load(authToken);
+    } catch (UnauthorizedException e) {
+      store(authToken, null, settings.negativeTtlMillis(), startGeneration);
+      throw e;
+    }
+    store(authToken, auth, settings.ttlMillis(), startGeneration);
+    return auth;
+  }
+
+  void put(AuthData auth) {
+    store(auth.authToken(), auth, settings.ttlMillis(), generation.get());
+  }
+
+  void invalidate(String authToken) {
+    generation.incrementAndGet();
+    entries.remove(authToken);
+  }
+
+  void clear() {
+    generation.incrementAndGet();
+    entries.clear();
+  }
+
+  private void store(String authToken, AuthData auth, long ttlMillis, long startGeneration) {
+    if (ttlMillis == 0) {
+      return;
+    }
+    entries.put(authToken, new Entry(auth, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+    if (generation.get() != startGeneration) {
+      // Something was invalidated while we looked this up; it may have been this token
+      entries.remove(authToken);
+    }
+    if (entries.size() > settings.maxEntries()) {
+      evict();
+    }
+  }
+
+  /**
+   * Drops expired entries, then the soonest to expire until the cache is back
+   * to 90% of its size, so a full cache isn't swept on every insert.
+   */
+  private synchronized void evict() {
+    long now = System.nanoTime();
+    int before = entries.size();
+    entries.values().removeIf(entry -> entry.expiresAtNanos() - now <= 0);
+
+    int target = settings.maxEntries() - settings.maxEntries() / 10;
+    if (entries.size() > target) {
+      List<Map.Entry<String, Entry>> oldest = new ArrayList<>(entries.entrySet());
+      oldest.sort(Comparator.comparingLong(e -> e.getValue().expiresAtNanos()));
+      for (int i = 0; i < oldest.size() && entries.size() > target; i++) {
+        entries.remove(oldest.get(i).getKey(), oldest.get(i).getValue());
+      }
+    }
+    evictions.add(Math.max(0, before - entries.size()));
+  }
+
+  public Stats stats() {
+    return new Stats(hits.sum(), negativeHits.sum(), misses.sum(), evictions.sum(), entries.size());
+  }
+}
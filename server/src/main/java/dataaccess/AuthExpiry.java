@@ -0,0 +1,39 @@
+package dataaccess;
+
+/**
+ * When auth tokens stop being accepted. Expiry slides: a token lasts
+ * {@code idleTimeoutMillis} past its last use, but never beyond
+ * {@code maxLifetimeMillis} after it was issued.
+ * <p>
+ * Stores only write a use back once {@code touchIntervalMillis} has passed
+ * since the last one they recorded, so a busy session costs one write a
+ * minute rather than one per request. A token can therefore expire up to
+ * that much earlier than its true last use.
+ *
+ * @param idleTimeoutMillis   how long an unused token stays valid
+ * @param maxLifetimeMillis   how long any token stays valid, however often it is used
+ * @param touchIntervalMillis how stale the recorded last use may get before a use is written back
+ */
+public record AuthExpiry(long idleTimeoutMillis, long maxLifetimeMillis, long touchIntervalMillis) {
+  public AuthExpiry {
+    if (idleTimeoutMillis < 1 || maxLifetimeMillis < 1 || touchIntervalMillis < 0
+            || touchIntervalMillis >= idleTimeoutMillis) {
+      throw new IllegalArgumentException("Invalid auth expiry settings");
+    }
+  }
+
+  public static AuthExpiry defaults() {
+    return new AuthExpiry(24 * 60 * 60_000L, 30 * 24 * 60 * 60_000L, 60_000);
+  }
+
+  /**
+   * @return when a token issued at {@code issuedAt} and used at {@code usedAt} expires, in epoch millis
+   */
+  public long expiresAt(long issuedAt, long usedAt) {
+    return Math.min(issuedAt + maxLifetimeMillis, usedAt + idleTimeoutMillis);
+  }
+
+  public boolean needsTouch(long lastUsedAt, long now) {
+    return now - lastUsedAt >= touchIntervalMillis;
+  }
+}
@@ -0,0 +1,69 @@
+package dataaccess;
+
+/**
+ * Periodically deletes expired auth tokens, so the token table only holds
+ * live sessions. Deletes go in small batches, each its own short write, so a
+ * large backlog never locks the table for long.
+ */
+public class AuthSweeper implements AutoCloseable {
+
+  /**
+   * @param intervalMillis how often to sweep
+   * @param batchSize      tokens deleted per call; a sweep keeps going while batches come back full
+   */
+  public record Settings(long intervalMillis, int batchSize) {
+    public Settings {
+      if (intervalMillis < 1 || batchSize < 1) {
+        throw new IllegalArgumentException("Invalid auth sweeper settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(5 * 60_000, 500);
+    }
+  }
+
+  private final DataAccess dataAccess;
+  private final Settings settings;
+  private final BackgroundTask task;
+
+  public AuthSweeper(DataAccess dataAccess, Settings settings) {
+    this.dataAccess = dataAccess;
+    this.settings = settings;
+    this.task = new BackgroundTask("auth-sweeper", settings.intervalMillis(), 30_000,
+            "delete expired auth tokens", this::sweep);
+  }
+
+  /**
+   * Deletes every token that has expired.
+   *
+   * @return how many tokens were deleted
+   */
+  public int sweep() throws DataAccessException {
+    int total = 0;
+    while (true) {
+      int count = dataAccess.deleteExpiredAuths(settings.batchSize());
+      total += count;
+      if (count < settings.batchSize()) {
+        break;
+      }
+    }
+    task.record(total);
+    return total;
+  }
+
+  /**
+   * @return sweeps so far and the tokens they deleted
+   */
+  public BackgroundTask.Stats stats() {
+    return task.stats();
+  }
+
+  /**
+   * Stops scheduling sweeps and waits for one in progress to finish.
+   */
+  @Override
+  public void close() {
+    task.close();
+  }
+}
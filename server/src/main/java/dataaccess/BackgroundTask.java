@@ -0,0 +1,97 @@
+package dataaccess;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A storage job run every so often on its own daemon thread. A failed run is
+ * logged and the next one goes ahead as usual. Jobs that work through a
+ * backlog can {@link #record} each run, which {@link #stats} then reports.
+ */
+public class BackgroundTask implements AutoCloseable {
+
+  @FunctionalInterface
+  interface Job {
+    void run() throws DataAccessException;
+  }
+
+  /**
+   * @param runs      runs recorded so far
+   * @param processed items those runs dealt with in total
+   */
+  public record Stats(long runs, long processed) {
+  }
+
+  private final String action;
+  private final Job job;
+  private final long closeTimeoutMillis;
+  private final ScheduledExecutorService executor;
+  private final LongAdder runs = new LongAdder();
+  private final LongAdder processed = new LongAdder();
+
+  /**
+   * @param threadName         name of the thread the job runs on
+   * @param intervalMillis     delay before the first run and between the end of one run and the next
+   * @param closeTimeoutMillis how long {@link #close} waits for a run in progress
+   * @param action             what the job does, for the message logged when it fails
+   */
+  BackgroundTask(String threadName, long intervalMillis, long closeTimeoutMillis, String action, Job job) {
+    this.action = action;
+    this.job = job;
+    this.closeTimeoutMillis = closeTimeoutMillis;
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, threadName);
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this::runQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Runs the job once more on its thread as soon as it is free, unless the
+   * task is closing.
+   */
+  void runSoon() {
+    try {
+      executor.execute(this::runQuietly);
+    } catch (RejectedExecutionException e) {
+      // Closing; close() runs whatever still has to happen
+    }
+  }
+
+  /**
+   * Counts a finished run that dealt with {@code count} items.
+   */
+  void record(int count) {
+    runs.increment();
+    processed.add(count);
+  }
+
+  public Stats stats() {
+    return new Stats(runs.sum(), processed.sum());
+  }
+
+  private void runQuietly() {
+    try {
+      job.run();
+    } catch (DataAccessException e) {
+      System.err.println("Failed to " + action + ": " + e.getMessage());
+    }
+  }
+
+  /**
+   * Stops scheduling runs and waits for one in progress to finish.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(closeTimeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,427 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.GameStateCodec;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keeps recently used games and auth tokens in memory in front of another
+ * DataAccess. Token lookups go through an {@link AuthCache}.
+ * <p>
+ * Reads of a cached game never reach the backend, and moves are written
+ * behind: {@link #appendMove} only marks the game dirty, and dirty games are
+ * saved together in one batch at most {@code durabilityWindowMillis} later,
+ * so several moves to the same game in that window cost one write. Seat
+ * changes, resignations and new games are written through straight away.
+ * <p>
+ * At most {@code maxDirtyGames} games wait to be saved at once. Past that, a
+ * move to any other game is written through like a seat change, so when the
+ * backend falls behind or fails, callers wait on it or get its error rather
+ * than piling up unsaved games in memory.
+ * <p>
+ * Callers get the cached objects themselves, so changes to a game must be
+ * made while holding the ChessGame's monitor; flushes copy each game under it.
+ * Call {@link #close()} on shutdown to save anything still pending.
+ */
+public class CachingDataAccess implements DataAccess, AutoCloseable {
+
+  /**
+   * @param maxGames               games kept in memory; the least recently used clean ones are dropped past this
+   * @param maxDirtyGames          most games waiting to be saved; reaching it starts a flush straight away, and
+   *                               moves to other games are written through until the flush catches up
+   * @param durabilityWindowMillis longest a move waits before it is saved; 0 writes every move through
+   */
+  public record Settings(int maxGames, int maxDirtyGames, long durabilityWindowMillis) {
+    public Settings {
+      if (maxGames < 1 || maxDirtyGames < 1 || durabilityWindowMillis < 0) {
+        throw new IllegalArgumentException("Invalid cache settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(1000, 256, 200);
+    }
+  }
+
+  private final DataAccess backend;
+  private final Settings settings;
+  // Access ordered, so iteration starts at the least recently used game
+  private final LinkedHashMap<Integer, GameData> games = new LinkedHashMap<>(16, 0.75f, true);
+  private final Set<Integer> dirty = new LinkedHashSet<>();
+  // Taken out of dirty by the flush in progress; put back if it fails
+  private final Set<Integer> flushing = new LinkedHashSet<>();
+  private final Object flushLock = new Object();
+  private final BackgroundTask flusher;
+  private final AuthCache authCache;
+
+  public CachingDataAccess(DataAccess backend, Settings settings) {
+    this(backend, settings, AuthCache.Settings.defaults());
+  }
+
+  public CachingDataAccess(DataAccess backend, Settings settings, AuthCache.Settings authSettings) {
+    this.backend = backend;
+    this.settings = settings;
+    this.authCache = new AuthCache(authSettings);
+    if (settings.durabilityWindowMillis() > 0) {
+      flusher = new BackgroundTask("game-cache-flusher", settings.durabilityWindowMillis(),
+              settings.durabilityWindowMillis() * 2, "flush cached games", this::flush);
+    } else {
+      flusher = null;
+    }
+  }
+
+  @Override
+  public void clear() throws DataAccessException {
+    synchronized (flushLock) {
+      synchronized (this) {
+        games.clear();
+        dirty.clear();
+        flushing.clear();
+      }
+      authCache.clear();
+      backend.clear();
+    }
+  }
+
+  @Override
+  public void createUser(UserData user) throws InvalidUsernameException, DatabaseException {
+    backend.createUser(user);
+  }
+
+  @Override
+  public UserData getUser(String username) throws DatabaseException {
+    return backend.getUser(username);
+  }
+
+  @Override
+  public void updateUser(UserData user) throws DataAccessException {
+    backend.updateUser(user);
+  }
+
+  @Override
+  public int createGame(GameData game) throws DataAccessException {
+    int gameID = backend.createGame(copyOf(game));
+    cache(new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game()));
+    return gameID;
+  }
+
+  @Override
+  public List<Integer> createGames(List<GameData> newGames) throws DataAccessException {
+    List<GameData> copies = new ArrayList<>(newGames.size());
+    for (GameData game : newGames) {
+      copies.add(copyOf(game));
+    }
+    List<Integer> ids = backend.createGames(copies);
+    for (int i = 0; i < ids.size(); i++) {
+      GameData game = newGames.get(i);
+      cache(new GameData(ids.get(i), game.whiteUsername(), game.blackUsername(), game.gameName(), game.game()));
+    }
+    return ids;
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws BadRequestException, DatabaseException {
+    synchronized (this) {
+      GameData cached = games.get(gameID);
+      if (cached != null) {
+        return cached;
+      }
+    }
+    GameData loaded = backend.getGame(gameID);
+    synchronized (this) {
+      // Another thread may have loaded it meanwhile; keep whichever got there first
+      GameData raced = games.putIfAbsent(gameID, loaded);
+      evictClean();
+      return (raced != null) ? raced : loaded;
+    }
+  }
+
+  @Override
+  public List<GameData> listGames() throws DataAccessException {
+    List<GameData> stored = backend.listGames();
+    List<GameData> result = new ArrayList<>(stored.size());
+    for (GameData game : stored) {
+      result.add(cachedOr(game));
+    }
+    return result;
+  }
+
+  private synchronized GameData cachedOr(GameData stored) {
+    GameData cached = games.get(stored.gameID());
+    return (cached != null) ? cached : stored;
+  }
+
+  /**
+   * Summaries come from the backend, so move counts, last-move times and
+   * finished status can lag by up to the durability window.
+   */
+  @Override
+  public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+    return backend.listGameSummaries(query);
+  }
+
+  @Override
+  public void streamGameSummaries(GameQuery query, SummaryConsumer consumer) throws DataAccessException {
+    backend.streamGameSummaries(query, consumer);
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    // Holding the game keeps a move from landing between the write and clearing its dirty mark
+    synchronized (game.game()) {
+      GameData current = resolve(game);
+      if (current.version() != game.version()) {
+        // Seats and names live in the GameData, so a stale one would undo the update saved since
+        throw new GameConflictException("Error: game was changed by another update", game.gameID());
+      }
+      try {
+        backend.updateGame(copyOf(current));
+      } catch (DataAccessException e) {
+        // The cached game may already hold the change; reload it on the next read
+        invalidate(game.gameID());
+        throw e;
+      }
+      synchronized (this) {
+        // The backend now has everything, including any moves still pending
+        dirty.remove(game.gameID());
+      }
+      cache(current.withVersion(current.version() + 1));
+    }
+  }
+
+  @Override
+  public void appendMove(GameData game) throws DataAccessException {
+    if (flusher == null) {
+      appendThrough(game);
+      return;
+    }
+    boolean writeThrough;
+    boolean flushNow = false;
+    synchronized (this) {
+      GameData current = resolve(game);
+      boolean pending = dirty.contains(game.gameID()) || flushing.contains(game.gameID());
+      writeThrough = !pending && dirty.size() + flushing.size() >= settings.maxDirtyGames();
+      if (!writeThrough) {
+        games.put(game.gameID(), current);
+        dirty.add(game.gameID());
+        flushNow = dirty.size() + flushing.size() >= settings.maxDirtyGames();
+      }
+    }
+    if (writeThrough) {
+      // Too many games already wait to be saved; this one waits on the backend instead
+      appendThrough(game);
+    } else if (flushNow) {
+      // Not inline: the caller holds this game's monitor, which the flush needs
+      flusher.runSoon();
+    }
+  }
+
+  private void appendThrough(GameData game) throws DataAccessException {
+    GameData current = resolve(game);
+    try {
+      backend.appendMove(current);
+    } catch (DataAccessException e) {
+      // The cached copy already has the move; drop it so the next read sees what was stored
+      invalidate(game.gameID());
+      throw e;
+    }
+    cache(current.withVersion(current.version() + 1));
+  }
+
+  /**
+   * Gives the caller's changes the cached version of the game. Callers change
+   * the cached ChessGame in place under its monitor, so a move appended to it
+   * is up to date even if the GameData was read before the last save; only
+   * {@link #updateGame} also needs the caller's version to be current. A
+   * caller holding some other ChessGame read the game before it was last
+   * reloaded, and conflicts.
+   */
+  private synchronized GameData resolve(GameData game) throws GameConflictException {
+    GameData cached = games.get(game.gameID());
+    if (cached == null) {
+      return game;
+    }
+    if (cached.game() != game.game()) {
+      throw new GameConflictException("Error: game was changed by another update", game.gameID());
+    }
+    return game.withVersion(cached.version());
+  }
+
+  /**
+   * Saves every dirty game to the backend in one batch. Games that fail to
+   * save stay dirty and are retried on the next flush. A game someone else
+   * changed in storage can't be saved at all; its cached copy is dropped so
+   * the stored version is read next time.
+   */
+  public void flush() throws DataAccessException {
+    synchronized (flushLock) {
+      List<Integer> ids;
+      List<GameData> batch = new ArrayList<>();
+      synchronized (this) {
+        ids = new ArrayList<>(dirty);
+        flushing.addAll(dirty);
+        dirty.clear();
+        for (int id : ids) {
+          batch.add(games.get(id));
+        }
+      }
+      if (batch.isEmpty()) {
+        return;
+      }
+      List<GameData> copies = new ArrayList<>(batch.size());
+      for (GameData game : batch) {
+        copies.add(copyOf(game));
+      }
+      List<Integer> conflicts = List.of();
+      try {
+        backend.updateGames(copies);
+      } catch (GameConflictException e) {
+        conflicts = e.getGameIDs();
+      } catch (DataAccessException e) {
+        synchronized (this) {
+          for (int id : flushing) {
+            // Unless a write-through failure dropped it meanwhile
+            if (games.containsKey(id)) {
+              dirty.add(id);
+            }
+          }
+          flushing.clear();
+        }
+        throw e;
+      }
+      synchronized (this) {
+        flushing.clear();
+        for (GameData saved : copies) {
+          GameData cached = games.get(saved.gameID());
+          // A write-through update since the copy already moved the version on
+          if (cached == null || cached.version() != saved.version()) {
+            continue;
+          }
+          if (conflicts.contains(saved.gameID())) {
+            System.err.println("Dropped unsaved moves for game " + saved.gameID() + ": changed elsewhere");
+            games.remove(saved.gameID());
+            dirty.remove(saved.gameID());
+          } else {
+            games.put(saved.gameID(), cached.withVersion(saved.version() + 1));
+          }
+        }
+        evictClean();
+      }
+    }
+  }
+
+  /**
+   * Stops the background flusher and saves anything still pending, then
+   * closes the backend if it holds resources of its own.
+   */
+  @Override
+  public void close() throws DataAccessException {
+    if (flusher != null) {
+      flusher.close();
+    }
+    flush();
+    if (backend instanceof AutoCloseable closeable) {
+      try {
+        closeable.close();
+      } catch (DataAccessException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new DatabaseException("Unable to close storage: " + e.getMessage());
+      }
+    }
+  }
+
+  private synchronized void cache(GameData game) {
+    games.put(game.gameID(), game);
+    evictClean();
+  }
+
+  private synchronized void invalidate(int gameID) {
+    games.remove(gameID);
+    dirty.remove(gameID);
+    flushing.remove(gameID);
+  }
+
+  /**
+   * @return games with moves not yet saved to the backend
+   */
+  synchronized int pendingGames() {
+    Set<Integer> pending = new LinkedHashSet<>(dirty);
+    pending.addAll(flushing);
+    return pending.size();
+  }
+
+  /**
+   * Drops least recently used games until the cache fits, skipping games
+   * that still have unsaved moves. Must hold this object's monitor.
+   */
+  private void evictClean() {
+    Iterator<Map.Entry<Integer, GameData>> leastRecent = games.entrySet().iterator();
+    while (games.size() > settings.maxGames() && leastRecent.hasNext()) {
+      int gameID = leastRecent.next().getKey();
+      if (!dirty.contains(gameID) && !flushing.contains(gameID)) {
+        leastRecent.remove();
+      }
+    }
+  }
+
+  /**
+   * A detached copy of the game, taken while no move is being made to it, so
+   * the backend can encode it without racing later moves.
+   */
+  private static GameData copyOf(GameData game) {
+    byte[] state;
+    ChessGame chessGame = game.game();
+    synchronized (chessGame) {
+      state = GameStateCodec.encode(chessGame);
+    }
+    return new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+            GameStateCodec.decode(state), game.version());
+  }
+
+  @Override
+  public void createAuth(AuthData auth) throws DataAccessException {
+    backend.createAuth(auth);
+    authCache.put(auth);
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    return authCache.get(authToken, backend::getAuth);
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    authCache.invalidate(authToken);
+    try {
+      backend.deleteAuth(authToken);
+    } finally {
+      // Again afterwards, in case a lookup reloaded the token before the delete landed
+      authCache.invalidate(authToken);
+    }
+  }
+
+  /**
+   * Tokens the cache already trusts stay accepted until their cache entry
+   * runs out, which is far shorter than any sensible idle timeout.
+   */
+  @Override
+  public int deleteExpiredAuths(int limit) throws DataAccessException {
+    return backend.deleteExpiredAuths(limit);
+  }
+
+  public AuthCache.Stats authCacheStats() {
+    return authCache.stats();
+  }
+}
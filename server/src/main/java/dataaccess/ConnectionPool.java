@@ -0,0 +1,335 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of JDBC connections.
+ * <p>
+ * Callers get a wrapper whose {@code close()} hands the connection back
+ * instead of closing it, so existing try-with-resources code works unchanged.
+ * A connection that sat idle for a while is checked with
+ * {@link Connection#isValid} before it is handed out; connections idle longer
+ * than the idle timeout or older than the maximum lifetime are closed rather
+ * than reused. When every connection is in use, callers wait up to the
+ * acquire timeout for one to come back.
+ */
+public class ConnectionPool implements AutoCloseable {
+  // Connections used this recently are trusted without a round trip to the server
+  private static final long VALIDATION_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+  private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+  @FunctionalInterface
+  public interface ConnectionFactory {
+    Connection open() throws SQLException;
+  }
+
+  public record Settings(int maxSize, long acquireTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis) {
+    public Settings {
+      if (maxSize < 1) {
+        throw new IllegalArgumentException("Pool size must be positive");
+      }
+    }
+  }
+
+  public record Stats(int active, int idle, int waiters, long created, long closed, long acquires,
+                      long acquireTimeouts, long acquireNanos, long maxAcquireNanos) {
+    public double averageAcquireMicros() {
+      return acquires == 0 ? 0 : acquireNanos / 1000.0 / acquires;
+    }
+  }
+
+  private final ConnectionFactory factory;
+  private final Settings settings;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition returned = lock.newCondition();
+  // Most recently returned at the head, so the tail is what has been idle longest
+  private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+  private int total = 0;
+  private int waiters = 0;
+  private boolean closed = false;
+
+  private final LongAdder created = new LongAdder();
+  private final LongAdder closedCount = new LongAdder();
+  private final LongAdder acquires = new LongAdder();
+  private final LongAdder acquireTimeouts = new LongAdder();
+  private final LongAdder acquireNanos = new LongAdder();
+  private final LongAccumulator maxAcquireNanos = new LongAccumulator(Math::max, 0);
+
+  public ConnectionPool(ConnectionFactory factory, Settings settings) {
+    this.factory = factory;
+    this.settings = settings;
+  }
+
+  /**
+   * @return a connection that goes back to the pool when closed
+   * @throws SQLException if no connection frees up within the acquire timeout, or a new one can't be opened
+   */
+  public Connection getConnection() throws SQLException {
+    long start = System.nanoTime();
+    long deadline = start + TimeUnit.MILLISECONDS.toNanos(settings.acquireTimeoutMillis());
+    while (true) {
+      PooledConnection candidate = null;
+      boolean openNew = false;
+
+      lock.lock();
+      try {
+        while (true) {
+          if (closed) {
+            throw new SQLException("Connection pool is closed");
+          }
+          evictExpired(System.nanoTime());
+          candidate = idle.pollFirst();
+          if (candidate != null) {
+            break;
+          }
+          if (total < settings.maxSize()) {
+            // Reserve the slot now and connect outside the lock
+            total++;
+            openNew = true;
+            break;
+          }
+          long remaining = deadline - System.nanoTime();
+          if (remaining <= 0) {
+            acquireTimeouts.increment();
+            throw new SQLException("Timed out after " + settings.acquireTimeoutMillis()
+                    + "ms waiting for a database connection");
+          }
+          waiters++;
+          try {
+            returned.awaitNanos(remaining);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+          } finally {
+            waiters--;
+          }
+        }
+      } finally {
+        lock.unlock();
+      }
+
+      if (openNew) {
+        candidate = open();
+      } else if (!isUsable(candidate)) {
+        discard(candidate);
+        continue;
+      }
+      recordAcquire(System.nanoTime() - start);
+      return candidate.lease();
+    }
+  }
+
+  private PooledConnection open() throws SQLException {
+    try {
+      PooledConnection connection = new PooledConnection(factory.open());
+      created.increment();
+      return connection;
+    } catch (SQLException | RuntimeException e) {
+      releaseSlot();
+      throw e;
+    }
+  }
+
+  private boolean isUsable(PooledConnection connection) {
+    long now = System.nanoTime();
+    if (connection.isExpired(now)) {
+      return false;
+    }
+    if (now - connection.lastUsedNanos < VALIDATION_INTERVAL_NANOS) {
+      return true;
+    }
+    try {
+      return connection.raw.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Called when a lease is closed. The connection is reset and put back at the
+   * head of the idle list, or closed if it is broken, too old or the pool is shut.
+   */
+  private void release(PooledConnection connection) {
+    boolean reusable = true;
+    try {
+      if (!connection.raw.getAutoCommit()) {
+        // Anything the caller left uncommitted must not leak into the next lease
+        connection.raw.rollback();
+        connection.raw.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      reusable = false;
+    }
+
+    long now = System.nanoTime();
+    connection.lastUsedNanos = now;
+    if (reusable && !connection.isExpired(now)) {
+      lock.lock();
+      try {
+        if (!closed) {
+          idle.addFirst(connection);
+          returned.signal();
+          return;
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+    discard(connection);
+  }
+
+  /**
+   * Closes idle connections past their idle timeout or lifetime. Must hold the lock.
+   */
+  private void evictExpired(long now) {
+    long idleTimeout = TimeUnit.MILLISECONDS.toNanos(settings.idleTimeoutMillis());
+    Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+    while (oldestFirst.hasNext()) {
+      PooledConnection connection = oldestFirst.next();
+      if (now - connection.lastUsedNanos > idleTimeout || connection.isExpired(now)) {
+        oldestFirst.remove();
+        total--;
+        closeQuietly(connection);
+      }
+    }
+  }
+
+  private void discard(PooledConnection connection) {
+    closeQuietly(connection);
+    releaseSlot();
+  }
+
+  private void releaseSlot() {
+    lock.lock();
+    try {
+      total--;
+      returned.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void closeQuietly(PooledConnection connection) {
+    closedCount.increment();
+    try {
+      connection.raw.close();
+    } catch (SQLException e) {
+      // Nothing more to do with a connection we are throwing away
+    }
+  }
+
+  private void recordAcquire(long nanos) {
+    acquires.increment();
+    acquireNanos.add(nanos);
+    maxAcquireNanos.accumulate(nanos);
+  }
+
+  public Stats stats() {
+    lock.lock();
+    try {
+      return new Stats(total - idle.size(), idle.size(), waiters, created.sum(), closedCount.sum(),
+              acquires.sum(), acquireTimeouts.sum(), acquireNanos.sum(), maxAcquireNanos.get());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Closes idle connections and stops handing out new ones. Connections still
+   * in use are closed when they are returned.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      while (!idle.isEmpty()) {
+        total--;
+        closeQuietly(idle.pollFirst());
+      }
+      returned.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private class PooledConnection {
+    private final Connection raw;
+    private final long createdNanos = System.nanoTime();
+    private long lastUsedNanos = createdNanos;
+
+    PooledConnection(Connection raw) {
+      this.raw = raw;
+    }
+
+    boolean isExpired(long now) {
+      return now - createdNanos > TimeUnit.MILLISECONDS.toNanos(settings.maxLifetimeMillis());
+    }
+
+    Connection lease() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+              new Class<?>[]{Connection.class}, new Lease(this));
+    }
+  }
+
+  /**
+   * One checkout of a pooled connection. Closing it returns the connection
+   * once; any later use of the same lease fails as if it were really closed.
+   */
+  private class Lease implements InvocationHandler {
+    private final PooledConnection connection;
+    private boolean released = false;
+
+    Lease(PooledConnection connection) {
+      this.connection = connection;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "close" -> {
+          if (!released) {
+            released = true;
+            release(connection);
+          }
+          return null;
+        }
+        case "isClosed" -> {
+          return released || connection.raw.isClosed();
+        }
+        case "equals" -> {
+          return proxy == args[0];
+        }
+        case "hashCode" -> {
+          return System.identityHashCode(proxy);
+        }
+        case "toString" -> {
+          return "Pooled " + connection.raw;
+        }
+        default -> {
+          if (released) {
+            throw new SQLException("Connection is closed");
+          }
+          try {
+            return method.invoke(connection.raw, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+        }
+      }
+    }
+  }
+}
@@ -2,22 +2,120 @@ package dataaccess;
 
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public interface DataAccess {
+  /**
+   * Receives game summaries one at a time while they are read from storage.
+   */
+  @FunctionalInterface
+  interface SummaryConsumer {
+    void accept(GameSummary summary) throws IOException;
+  }
+
   void clear() throws DataAccessException;
 
-  void createUser(UserData user) throws InvalidUsernameException;
+  void createUser(UserData user) throws InvalidUsernameException, DatabaseException;
   UserData getUser(String username) throws DatabaseException;
 
+  /**
+   * Replaces the password hash and email of an existing user.
+   *
+   * @throws InvalidUsernameException if there is no such user
+   */
+  void updateUser(UserData user) throws DataAccessException;
+
   int createGame(GameData game) throws DataAccessException;
-  GameData getGame(int gameID) throws BadRequestException;
+
+  /**
+   * Creates all the games in one go, or none of them.
+   *
+   * @return the new games' IDs, in the same order as the games
+   */
+  List<Integer> createGames(List<GameData> games) throws DataAccessException;
+  GameData getGame(int gameID) throws BadRequestException, DatabaseException;
   List<GameData> listGames() throws DataAccessException;
-  void updateGame(GameData game) throws BadRequestException;
+
+  /**
+   * Saves the game if it is still at the version it was read at, and moves it
+   * to the next version.
+   *
+   * @throws GameConflictException if another update got in first; read the game again and retry
+   * @throws BadRequestException   if the game doesn't exist
+   */
+  void updateGame(GameData game) throws DataAccessException;
+
+  /**
+   * Saves several games at once, each checked against its version like
+   * {@link #updateGame}. Games that no longer exist are skipped, and the
+   * others are saved even if some conflict.
+   *
+   * @throws GameConflictException listing the games that were not saved because of a conflict
+   */
+  default void updateGames(Collection<GameData> games) throws DataAccessException {
+    List<Integer> conflicts = new ArrayList<>();
+    for (GameData game : games) {
+      try {
+        updateGame(game);
+      } catch (GameConflictException e) {
+        conflicts.add(game.gameID());
+      } catch (BadRequestException e) {
+        // Deleted since it was loaded; nothing to save
+      }
+    }
+    if (!conflicts.isEmpty()) {
+      throw new GameConflictException("Games changed before they could be saved", conflicts);
+    }
+  }
+
+  /**
+   * Saves a game whose only change since it was loaded is one new move, with
+   * the same version check as {@link #updateGame}. Stores that keep a move
+   * log override this to append the move instead of rewriting the whole game.
+   */
+  default void appendMove(GameData game) throws DataAccessException {
+    updateGame(game);
+  }
+
+  /**
+   * Lists one page of games matching the query, ordered by game ID, without
+   * loading any game state.
+   */
+  List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException;
+
+  /**
+   * Hands each summary the query matches to the consumer as it is read,
+   * without building the page first. Backends that can read from a cursor
+   * should override this.
+   */
+  default void streamGameSummaries(GameQuery query, SummaryConsumer consumer) throws DataAccessException {
+    try {
+      for (GameSummary summary : listGameSummaries(query)) {
+        consumer.accept(summary);
+      }
+    } catch (IOException e) {
+      throw new DataAccessException("Error streaming games: " + e.getMessage());
+    }
+  }
 
   void createAuth(AuthData auth) throws DataAccessException;
-  AuthData getAuth(String authToken) throws UnauthorizedException;
-  void deleteAuth(String authToken) throws UnauthorizedException;
+  AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException;
+  void deleteAuth(String authToken) throws UnauthorizedException, DatabaseException;
+
+  /**
+   * Deletes up to {@code limit} auth tokens that are past their
+   * {@link AuthExpiry}, so callers can sweep in small batches. Stores that
+   * don't expire tokens keep them until logout and delete nothing.
+   *
+   * @return how many tokens were deleted
+   */
+  default int deleteExpiredAuths(int limit) throws DataAccessException {
+    return 0;
+  }
 }
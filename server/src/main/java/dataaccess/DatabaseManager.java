@@ -1,6 +1,11 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.GameStateCodec;
+import com.google.gson.Gson;
+
 import java.sql.*;
+import java.util.List;
 import java.util.Properties;
 
 public class DatabaseManager {
@@ -8,6 +13,7 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool POOL;
 
     /*
      * Load the database information for the db.properties file.
@@ -26,7 +32,15 @@ public class DatabaseManager {
 
                 var host = props.getProperty("db.host");
                 var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
+                // Lets the driver send batched INSERTs as multi-row statements
+                CONNECTION_URL = String.format("jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, port);
+
+                var poolSettings = new ConnectionPool.Settings(
+                        Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                        Long.parseLong(props.getProperty("db.pool.acquireTimeoutMillis", "5000")),
+                        Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis", "600000")),
+                        Long.parseLong(props.getProperty("db.pool.maxLifetimeMillis", "1800000")));
+                POOL = new ConnectionPool(DatabaseManager::openConnection, poolSettings);
             }
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
@@ -47,11 +61,44 @@ public class DatabaseManager {
         }
     }
 
+    /**
+     * Every change to the schema, oldest first. A database from before
+     * schema_version existed starts at version 0 and runs them all; each
+     * checks what is already there, so the ones it already has do nothing.
+     * Add new changes at the end with the next version number.
+     */
+    private static final MigrationRunner MIGRATIONS = new MigrationRunner(List.of(
+            new MigrationRunner.Migration(1, "Create users, games and auth_tokens", DatabaseManager::createBaseTables),
+            new MigrationRunner.Migration(2, "Store game state in binary", DatabaseManager::migrateGameStateToBinary),
+            new MigrationRunner.Migration(3, "Add game summary columns", DatabaseManager::addSummaryColumns),
+            new MigrationRunner.Migration(4, "Add the move log", DatabaseManager::addMoveLog),
+            new MigrationRunner.Migration(5, "Add game versions", DatabaseManager::addGameVersion),
+            new MigrationRunner.Migration(6, "Index games by player and tokens by user", DatabaseManager::addLookupIndexes),
+            new MigrationRunner.Migration(7, "Add the finished game archive", DatabaseManager::addGameArchive),
+            new MigrationRunner.Migration(8, "Add auth token expiry", DatabaseManager::addAuthExpiry),
+            new MigrationRunner.Migration(9, "Track when games last changed", DatabaseManager::addGameUpdatedAt)
+    ));
+
+    /**
+     * Brings the schema up to date. Does nothing beyond reading the schema
+     * version if it already is.
+     */
     public static void createTables() throws DataAccessException {
         try (var conn = getConnection()) {
-            var statement = conn.createStatement();
+            for (var migration : MIGRATIONS.migrate(conn)) {
+                System.err.println("Applied schema migration " + migration.version() + ": " + migration.description());
+            }
+        } catch(SQLException e) {
+            throw new DataAccessException(e.getMessage());
+        }
+    }
 
-            //create tables form sql statements
+    static int latestSchemaVersion() {
+        return MIGRATIONS.latestVersion();
+    }
+
+    private static void createBaseTables(Connection conn) throws SQLException {
+        try (var statement = conn.createStatement()) {
             statement.executeUpdate("CREATE TABLE IF NOT EXISTS users (\n" +
                     "    username VARCHAR(255) PRIMARY KEY,\n" +
                     "    password VARCHAR(255) NOT NULL,\n" +
@@ -60,9 +107,15 @@ public class DatabaseManager {
             statement.executeUpdate("CREATE TABLE IF NOT EXISTS games (\n" +
                     "    game_id INT PRIMARY KEY AUTO_INCREMENT,\n" +
                     "    game_name VARCHAR(255) NOT NULL,\n" +
-                    "    game_state TEXT NOT NULL,\n" +
+                    "    game_state BLOB NOT NULL,\n" +
                     "    white_username VARCHAR(255),\n" +
                     "    black_username VARCHAR(255),\n" +
+                    "    status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE',\n" +
+                    "    move_count INT NOT NULL DEFAULT 0,\n" +
+                    "    last_move_at TIMESTAMP(3) NULL,\n" +
+                    "    snapshot_ply INT NOT NULL DEFAULT 0,\n" +
+                    "    version INT NOT NULL DEFAULT 0,\n" +
+                    "    INDEX idx_games_status (status, game_id),\n" +
                     "    FOREIGN KEY (white_username) REFERENCES users(username),\n" +
                     "    FOREIGN KEY (black_username) REFERENCES users(username)\n" +
                     ");");
@@ -71,32 +124,264 @@ public class DatabaseManager {
                     "    username VARCHAR(255) NOT NULL,\n" +
                     "    FOREIGN KEY (username) REFERENCES users(username)\n" +
                     ");");
-        } catch(SQLException e) {
-            throw new DataAccessException(e.getMessage());
         }
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
-     * The easiest way to do that is with a try-with-resource block.
+     * Converts a games table created with the old JSON {@code game_state TEXT}
+     * column to the binary {@link GameStateCodec} format. Does nothing if the
+     * column is already binary. MySQL commits each ALTER on its own, so every
+     * step checks where a previous, interrupted run left off. The old column is
+     * dropped and the new one renamed in a single ALTER, so there is never a
+     * moment with neither; a table an older build left with only
+     * game_state_bin is finished off by renaming it.
+     */
+    private static void migrateGameStateToBinary(Connection conn) throws SQLException {
+        String stateType = gamesColumnType(conn, "game_state");
+        if (stateType == null && gamesColumnType(conn, "game_state_bin") != null) {
+            try (var statement = conn.createStatement()) {
+                statement.executeUpdate("ALTER TABLE games CHANGE COLUMN game_state_bin game_state BLOB NOT NULL");
+            }
+            return;
+        }
+        if (!"text".equalsIgnoreCase(stateType)) {
+            return;
+        }
+        try (var statement = conn.createStatement()) {
+            if (gamesColumnType(conn, "game_state_bin") == null) {
+                statement.executeUpdate("ALTER TABLE games ADD COLUMN game_state_bin BLOB");
+            }
+
+            var gson = new Gson();
+            conn.setAutoCommit(false);
+            try (var select = conn.prepareStatement("SELECT game_id, game_state FROM games");
+                 var update = conn.prepareStatement("UPDATE games SET game_state_bin = ? WHERE game_id = ?");
+                 var resultSet = select.executeQuery()) {
+                while (resultSet.next()) {
+                    ChessGame game = gson.fromJson(resultSet.getString("game_state"), ChessGame.class);
+                    update.setBytes(1, GameStateCodec.encode(game));
+                    update.setInt(2, resultSet.getInt("game_id"));
+                    update.addBatch();
+                }
+                update.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+
+            statement.executeUpdate("ALTER TABLE games DROP COLUMN game_state, " +
+                    "CHANGE COLUMN game_state_bin game_state BLOB NOT NULL");
+        }
+    }
+
+    /**
+     * Adds the columns the game list reads instead of decoding game_state to a
+     * games table created before they existed, and fills them in from the
+     * stored games.
+     */
+    private static void addSummaryColumns(Connection conn) throws SQLException {
+        if (gamesColumnType(conn, "status") != null) {
+            return;
+        }
+        try (var statement = conn.createStatement()) {
+            if (gamesColumnType(conn, "move_count") == null) {
+                statement.executeUpdate("ALTER TABLE games " +
+                        "ADD COLUMN move_count INT NOT NULL DEFAULT 0, " +
+                        "ADD COLUMN last_move_at TIMESTAMP(3) NULL");
+            }
+            // Added last, so its presence means the columns are all there
+            statement.executeUpdate("ALTER TABLE games " +
+                    "ADD COLUMN status VARCHAR(16) NOT NULL DEFAULT 'ACTIVE', " +
+                    "ADD INDEX idx_games_status (status, game_id)");
+        }
+
+        conn.setAutoCommit(false);
+        try (var select = conn.prepareStatement("SELECT game_id, game_state FROM games");
+             var update = conn.prepareStatement("UPDATE games SET status = ?, move_count = ? WHERE game_id = ?");
+             var resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                ChessGame game = GameStateCodec.decode(resultSet.getBytes("game_state"));
+                update.setString(1, game.isGameOver() ? "FINISHED" : "ACTIVE");
+                update.setInt(2, game.getMoveCount());
+                update.setInt(3, resultSet.getInt("game_id"));
+                update.addBatch();
+            }
+            update.executeBatch();
+            conn.commit();
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Adds snapshot_ply to a games table created before the move log existed,
+     * and the game_moves table itself. Every stored game_state up to then was
+     * written on each move, so it is a snapshot of the whole game.
+     */
+    private static void addMoveLog(Connection conn) throws SQLException {
+        try (var statement = conn.createStatement()) {
+            if (gamesColumnType(conn, "snapshot_ply") == null) {
+                statement.executeUpdate("ALTER TABLE games ADD COLUMN snapshot_ply INT NOT NULL DEFAULT 0");
+                statement.executeUpdate("UPDATE games SET snapshot_ply = move_count");
+            }
+            // Moves made since each game's last snapshot, in order
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS game_moves (\n" +
+                    "    game_id INT NOT NULL,\n" +
+                    "    ply INT NOT NULL,\n" +
+                    "    packed_move INT NOT NULL,\n" +
+                    "    played_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),\n" +
+                    "    PRIMARY KEY (game_id, ply),\n" +
+                    "    FOREIGN KEY (game_id) REFERENCES games(game_id) ON DELETE CASCADE\n" +
+                    ");");
+        }
+    }
+
+    private static void addGameVersion(Connection conn) throws SQLException {
+        if (gamesColumnType(conn, "version") == null) {
+            try (var statement = conn.createStatement()) {
+                statement.executeUpdate("ALTER TABLE games ADD COLUMN version INT NOT NULL DEFAULT 0");
+            }
+        }
+    }
+
+    /**
+     * Indexes for the lobby's "my games" filter, which pages through games by
+     * ID where either seat is the player, and for finding a user's sessions.
+     * InnoDB drops the single-column indexes it made for the foreign keys on
+     * these columns, since the new ones can back the keys instead.
+     */
+    private static void addLookupIndexes(Connection conn) throws SQLException {
+        try (var statement = conn.createStatement()) {
+            if (!hasIndex(conn, "games", "idx_games_white")) {
+                statement.executeUpdate("ALTER TABLE games ADD INDEX idx_games_white (white_username, game_id)");
+            }
+            if (!hasIndex(conn, "games", "idx_games_black")) {
+                statement.executeUpdate("ALTER TABLE games ADD INDEX idx_games_black (black_username, game_id)");
+            }
+            if (!hasIndex(conn, "auth_tokens", "idx_auth_tokens_username")) {
+                statement.executeUpdate("ALTER TABLE auth_tokens ADD INDEX idx_auth_tokens_username (username)");
+            }
+        }
+    }
+
+    /**
+     * Adds games_archive, which holds the compressed final state of finished
+     * games, and lets games.game_state be null for the games moved there.
+     * Their summary columns stay in games so the lobby still lists them.
+     */
+    private static void addGameArchive(Connection conn) throws SQLException {
+        try (var statement = conn.createStatement()) {
+            statement.executeUpdate("ALTER TABLE games MODIFY game_state BLOB NULL");
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS games_archive (\n" +
+                    "    game_id INT PRIMARY KEY,\n" +
+                    "    archived_state MEDIUMBLOB NOT NULL,\n" +
+                    "    archived_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),\n" +
+                    "    FOREIGN KEY (game_id) REFERENCES games(game_id) ON DELETE CASCADE\n" +
+                    ");");
+        }
+    }
+
+    /**
+     * Adds the times auth token expiry is worked out from. Tokens issued
+     * before this have no history, so they are treated as issued now and
+     * given a day.
+     */
+    private static void addAuthExpiry(Connection conn) throws SQLException {
+        try (var statement = conn.createStatement()) {
+            if (columnType(conn, "auth_tokens", "issued_at") == null) {
+                statement.executeUpdate("ALTER TABLE auth_tokens " +
+                        "ADD COLUMN issued_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+                        "ADD COLUMN last_used_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)");
+            }
+            if (columnType(conn, "auth_tokens", "expires_at") == null) {
+                statement.executeUpdate("ALTER TABLE auth_tokens ADD COLUMN expires_at TIMESTAMP(3) NULL");
+            }
+            statement.executeUpdate("UPDATE auth_tokens SET expires_at = CURRENT_TIMESTAMP(3) + INTERVAL 1 DAY " +
+                    "WHERE expires_at IS NULL");
+            statement.executeUpdate("ALTER TABLE auth_tokens MODIFY expires_at TIMESTAMP(3) NOT NULL");
+            if (!hasIndex(conn, "auth_tokens", "idx_auth_tokens_expires")) {
+                statement.executeUpdate("ALTER TABLE auth_tokens ADD INDEX idx_auth_tokens_expires (expires_at)");
+            }
+        }
+    }
+
+    /**
+     * Adds updated_at, which MySQL moves forward on every write to a game, so
+     * the archiver can tell how long a game has been finished even when it
+     * ended without a move. Existing games are treated as changed now.
+     */
+    private static void addGameUpdatedAt(Connection conn) throws SQLException {
+        if (gamesColumnType(conn, "updated_at") == null) {
+            try (var statement = conn.createStatement()) {
+                statement.executeUpdate("ALTER TABLE games ADD COLUMN updated_at TIMESTAMP(3) NOT NULL " +
+                        "DEFAULT CURRENT_TIMESTAMP(3) ON UPDATE CURRENT_TIMESTAMP(3)");
+            }
+        }
+    }
+
+    private static boolean hasIndex(Connection conn, String table, String index) throws SQLException {
+        try (var statement = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.STATISTICS " +
+                        "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND INDEX_NAME = ? LIMIT 1")) {
+            statement.setString(1, DATABASE_NAME);
+            statement.setString(2, table);
+            statement.setString(3, index);
+            try (var resultSet = statement.executeQuery()) {
+                return resultSet.next();
+            }
+        }
+    }
+
+    private static String gamesColumnType(Connection conn, String column) throws SQLException {
+        return columnType(conn, "games", column);
+    }
+
+    private static String columnType(Connection conn, String table, String column) throws SQLException {
+        try (var statement = conn.prepareStatement(
+                "SELECT DATA_TYPE FROM information_schema.COLUMNS " +
+                        "WHERE TABLE_SCHEMA = ? AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            statement.setString(1, DATABASE_NAME);
+            statement.setString(2, table);
+            statement.setString(3, column);
+            try (var resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Borrows a connection from the pool. Connections are set to the catalog
+     * specified in db.properties and should be short-lived: closing the
+     * connection hands it back to the pool, so always close it when you are
+     * done. The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
-     * try (var conn = DbInfo.getConnection(databaseName)) {
+     * try (var conn = DatabaseManager.getConnection()) {
      * // execute SQL statements.
      * }
      * </code>
      */
-
     static Connection getConnection() throws DataAccessException {
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            conn.setCatalog(DATABASE_NAME);
-            return conn;
+            return POOL.getConnection();
         } catch (SQLException e) {
             throw new DataAccessException(e.getMessage());
         }
     }
-}
 
+    public static ConnectionPool.Stats poolStats() {
+        return POOL.stats();
+    }
+
+    private static Connection openConnection() throws SQLException {
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+        conn.setCatalog(DATABASE_NAME);
+        return conn;
+    }
+}
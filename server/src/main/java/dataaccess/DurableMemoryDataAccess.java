@@ -0,0 +1,525 @@
+package dataaccess;
+
+import chess.GameStateCodec;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+/**
+ * The in-memory store with a {@link WriteAheadLog} behind it, so it can be
+ * run as the primary store. Reads never touch the disk; each mutation is
+ * applied in memory and logged, and the call returns once the log record is
+ * synced. Log order matches the order mutations were applied in.
+ * <p>
+ * Snapshots of the whole store are written periodically so a restart only
+ * replays the log written since the last one. A snapshot is taken without
+ * stopping writers: the log is switched to a new file first, and replaying
+ * that file over the snapshot gives the right result whether or not the
+ * snapshot already saw those changes, since replay keeps the newest version
+ * of each game and re-applies everything else as is.
+ * <p>
+ * Once a log write fails, memory may hold a change the log doesn't, so the
+ * store refuses every read and write from then on rather than serve it.
+ * Reopening the directory recovers exactly what was logged.
+ */
+public class DurableMemoryDataAccess extends MemoryDataAccess implements AutoCloseable {
+
+  /**
+   * @param commitDelayMillis      how long the log writer waits to gather more mutations into one sync
+   * @param maxBatch               mutations synced together at most
+   * @param snapshotIntervalMillis how often to write a snapshot; 0 only snapshots on request
+   */
+  public record Settings(long commitDelayMillis, int maxBatch, long snapshotIntervalMillis) {
+    public Settings {
+      if (commitDelayMillis < 0 || maxBatch < 1 || snapshotIntervalMillis < 0) {
+        throw new IllegalArgumentException("Invalid durable memory settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(0, 1024, 5 * 60_000);
+    }
+  }
+
+  private static final byte USER = 1;
+  private static final byte AUTH = 2;
+  private static final byte AUTH_DELETE = 3;
+  private static final byte GAME = 4;
+  private static final byte CLEAR = 5;
+  // Replaces AUTH, which didn't record when the token was issued
+  private static final byte AUTH_ISSUED = 6;
+
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".snap";
+
+  private final Path directory;
+  // Held while applying a mutation and queueing its record, never while waiting for the sync
+  private final Object appendLock = new Object();
+  private final Object snapshotLock = new Object();
+  private final WriteAheadLog log;
+  private final BackgroundTask snapshotter;
+  private volatile String failure;
+
+  public DurableMemoryDataAccess(Path directory, Settings settings) throws DataAccessException {
+    this(directory, settings, AuthExpiry.defaults());
+  }
+
+  public DurableMemoryDataAccess(Path directory, Settings settings, AuthExpiry authExpiry)
+          throws DataAccessException {
+    super(authExpiry);
+    this.directory = directory;
+    try {
+      Files.createDirectories(directory);
+      int snapshot = loadSnapshot();
+      int lastSegment = WriteAheadLog.replay(directory, snapshot, this::apply);
+      // A fresh file, so nothing is ever appended after a tail that was cut off
+      this.log = new WriteAheadLog(directory, lastSegment + 1, settings.commitDelayMillis(), settings.maxBatch());
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to recover storage in " + directory + ": " + e.getMessage());
+    }
+    if (settings.snapshotIntervalMillis() > 0) {
+      snapshotter = new BackgroundTask("memory-snapshotter", settings.snapshotIntervalMillis(), 30_000,
+              "snapshot memory store", this::snapshot);
+    } else {
+      snapshotter = null;
+    }
+  }
+
+  @Override
+  public void clear() throws DataAccessException {
+    CompletableFuture<Void> logged;
+    synchronized (appendLock) {
+      checkHealthy();
+      super.clear();
+      logged = log.append(List.of(new byte[]{CLEAR}));
+    }
+    await(logged);
+  }
+
+  @Override
+  public void createUser(UserData user) throws InvalidUsernameException, DatabaseException {
+    CompletableFuture<Void> logged;
+    synchronized (appendLock) {
+      checkHealthy();
+      super.createUser(user);
+      logged = log.append(List.of(userRecord(user)));
+    }
+    await(logged);
+  }
+
+  @Override
+  public void updateUser(UserData user) throws DataAccessException {
+    CompletableFuture<Void> logged;
+    synchronized (appendLock) {
+      checkHealthy();
+      super.updateUser(user);
+      logged = log.append(List.of(userRecord(user)));
+    }
+    await(logged);
+  }
+
+  @Override
+  public int createGame(GameData game) throws DatabaseException {
+    GameState state = GameState.of(game.game());
+    CompletableFuture<Void> logged;
+    int gameID;
+    synchronized (appendLock) {
+      checkHealthy();
+      gameID = insertGame(game, state);
+      logged = log.append(List.of(gameRecord(gameID, game, 0, null, state.bytes())));
+    }
+    await(logged);
+    return gameID;
+  }
+
+  @Override
+  public List<Integer> createGames(List<GameData> newGames) throws DataAccessException {
+    List<GameState> states = new ArrayList<>(newGames.size());
+    for (GameData game : newGames) {
+      states.add(GameState.of(game.game()));
+    }
+    CompletableFuture<Void> logged;
+    List<Integer> ids;
+    synchronized (appendLock) {
+      checkHealthy();
+      ids = insertGames(newGames, states);
+      List<byte[]> records = new ArrayList<>(ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        records.add(gameRecord(ids.get(i), newGames.get(i), 0, null, states.get(i).bytes()));
+      }
+      logged = log.append(records);
+    }
+    await(logged);
+    return ids;
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    // Encoded before taking the append lock, which must never wait on a game's monitor
+    GameState state = GameState.of(game.game());
+    CompletableFuture<Void> logged;
+    synchronized (appendLock) {
+      checkHealthy();
+      replaceGame(game, state);
+      logged = log.append(List.of(gameRecord(game.gameID(), game, game.version() + 1,
+              lastMoveTime(game.gameID()), state.bytes())));
+    }
+    await(logged);
+  }
+
+  @Override
+  public void createAuth(AuthData auth) throws DataAccessException {
+    CompletableFuture<Void> logged;
+    long issuedAt = System.currentTimeMillis();
+    synchronized (appendLock) {
+      checkHealthy();
+      restoreAuth(auth, issuedAt);
+      logged = log.append(List.of(issuedAuthRecord(auth, issuedAt)));
+    }
+    await(logged);
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    CompletableFuture<Void> logged;
+    synchronized (appendLock) {
+      checkHealthy();
+      super.deleteAuth(authToken);
+      logged = log.append(List.of(authRecord(AUTH_DELETE, authToken, null)));
+    }
+    await(logged);
+  }
+
+  /**
+   * Logs a delete for each swept token, so a restart doesn't bring expired
+   * tokens back.
+   */
+  @Override
+  public int deleteExpiredAuths(int limit) throws DataAccessException {
+    CompletableFuture<Void> logged;
+    List<String> removed;
+    synchronized (appendLock) {
+      checkHealthy();
+      removed = removeExpiredAuths(limit);
+      if (removed.isEmpty()) {
+        return 0;
+      }
+      List<byte[]> records = new ArrayList<>(removed.size());
+      for (String authToken : removed) {
+        records.add(authRecord(AUTH_DELETE, authToken, null));
+      }
+      logged = log.append(records);
+    }
+    await(logged);
+    return removed.size();
+  }
+
+  private void await(CompletableFuture<?> logged) throws DatabaseException {
+    try {
+      logged.join();
+    } catch (CompletionException e) {
+      failure = e.getCause().getMessage();
+      throw new DatabaseException("Unable to write log: " + failure);
+    }
+  }
+
+  private void checkHealthy() throws DatabaseException {
+    if (failure == null && log.isFailed()) {
+      failure = "an earlier log write failed";
+    }
+    if (failure != null) {
+      throw new DatabaseException("Error: storage is unavailable until restarted: " + failure);
+    }
+  }
+
+  @Override
+  public UserData getUser(String username) throws DatabaseException {
+    checkHealthy();
+    return super.getUser(username);
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws BadRequestException, DatabaseException {
+    checkHealthy();
+    return super.getGame(gameID);
+  }
+
+  @Override
+  public List<GameData> listGames() throws DatabaseException {
+    checkHealthy();
+    return super.listGames();
+  }
+
+  @Override
+  public List<GameSummary> listGameSummaries(GameQuery query) throws DatabaseException {
+    checkHealthy();
+    return super.listGameSummaries(query);
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    checkHealthy();
+    return super.getAuth(authToken);
+  }
+
+  /**
+   * Writes the whole store to a new snapshot and deletes the log files and
+   * snapshots it replaces. Writers carry on while it runs.
+   */
+  public void snapshot() throws DataAccessException {
+    synchronized (snapshotLock) {
+      try {
+        CompletableFuture<Integer> rotated;
+        synchronized (appendLock) {
+          checkHealthy();
+          rotated = log.rotate();
+        }
+        int segment = rotated.join();
+
+        Path snapshot = snapshotPath(segment);
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                     Channels.newOutputStream(channel), 1 << 16))) {
+          for (UserData user : listUsers()) {
+            writeRecord(out, userRecord(user));
+          }
+          for (Map.Entry<AuthData, Long> auth : listAuths().entrySet()) {
+            writeRecord(out, issuedAuthRecord(auth.getKey(), auth.getValue()));
+          }
+          for (GameData game : listGames()) {
+            writeRecord(out, gameRecord(game.gameID(), game, game.version(), lastMoveTime(game.gameID()),
+                    GameStateCodec.encode(game.game())));
+          }
+          out.flush();
+          channel.force(false);
+        }
+        Files.move(temp, snapshot, StandardCopyOption.ATOMIC_MOVE);
+
+        for (int old : snapshots()) {
+          if (old < segment) {
+            Files.deleteIfExists(snapshotPath(old));
+          }
+        }
+        WriteAheadLog.deleteBefore(directory, segment);
+      } catch (IOException | CompletionException e) {
+        throw new DatabaseException("Unable to write snapshot: " + e.getMessage());
+      }
+    }
+  }
+
+  public WriteAheadLog.Stats logStats() {
+    return log.stats();
+  }
+
+  /**
+   * Stops taking snapshots and closes the log once everything queued is synced.
+   */
+  @Override
+  public void close() throws DataAccessException {
+    if (snapshotter != null) {
+      snapshotter.close();
+    }
+    try {
+      log.close();
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to close log: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Loads the newest snapshot, if any.
+   *
+   * @return the number of the first log file the snapshot doesn't cover
+   */
+  private int loadSnapshot() throws IOException {
+    List<Integer> snapshots = snapshots();
+    if (snapshots.isEmpty()) {
+      return 0;
+    }
+    int segment = snapshots.get(snapshots.size() - 1);
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Files.newInputStream(snapshotPath(segment)), 1 << 16))) {
+      while (true) {
+        byte[] record;
+        try {
+          record = new byte[in.readInt()];
+        } catch (EOFException e) {
+          break;
+        }
+        in.readFully(record);
+        apply(record);
+      }
+    }
+    return segment;
+  }
+
+  /**
+   * Replays one record from a snapshot or the log. Every record can be applied
+   * to a state that already includes it without changing the result.
+   */
+  private void apply(byte[] record) throws IOException {
+    try {
+      applyRecord(record);
+    } catch (DataAccessException e) {
+      throw new IOException("Unable to replay record: " + e.getMessage(), e);
+    }
+  }
+
+  private void applyRecord(byte[] record) throws IOException, DataAccessException {
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+    byte type = in.readByte();
+    switch (type) {
+      case USER -> {
+        UserData user = new UserData(in.readUTF(), in.readUTF(), readNullable(in));
+        // A later record for the same user is an update
+        if (super.getUser(user.username()) == null) {
+          super.createUser(user);
+        } else {
+          super.updateUser(user);
+        }
+      }
+      case AUTH -> restoreAuth(new AuthData(in.readUTF(), in.readUTF()), System.currentTimeMillis());
+      case AUTH_ISSUED -> restoreAuth(new AuthData(in.readUTF(), in.readUTF()), in.readLong());
+      case AUTH_DELETE -> {
+        try {
+          super.deleteAuth(in.readUTF());
+        } catch (UnauthorizedException e) {
+          // Already gone
+        }
+      }
+      case GAME -> {
+        int gameID = in.readInt();
+        int version = in.readInt();
+        String gameName = in.readUTF();
+        String white = readNullable(in);
+        String black = readNullable(in);
+        long lastMoveTime = in.readLong();
+        byte[] state = new byte[in.readInt()];
+        in.readFully(state);
+        restoreGame(new GameData(gameID, white, black, gameName, GameStateCodec.decode(state), version),
+                lastMoveTime < 0 ? null : lastMoveTime);
+      }
+      case CLEAR -> super.clear();
+      default -> throw new IOException("Unknown record type " + type);
+    }
+  }
+
+  private static byte[] userRecord(UserData user) {
+    return record(out -> {
+      out.writeByte(USER);
+      out.writeUTF(user.username());
+      out.writeUTF(user.password());
+      writeNullable(out, user.email());
+    });
+  }
+
+  private static byte[] authRecord(byte type, String authToken, String username) {
+    return record(out -> {
+      out.writeByte(type);
+      out.writeUTF(authToken);
+      if (username != null) {
+        out.writeUTF(username);
+      }
+    });
+  }
+
+  private static byte[] issuedAuthRecord(AuthData auth, long issuedAt) {
+    return record(out -> {
+      out.writeByte(AUTH_ISSUED);
+      out.writeUTF(auth.authToken());
+      out.writeUTF(auth.username());
+      out.writeLong(issuedAt);
+    });
+  }
+
+  private static byte[] gameRecord(int gameID, GameData game, int version, Long lastMoveTime, byte[] state) {
+    return record(out -> {
+      out.writeByte(GAME);
+      out.writeInt(gameID);
+      out.writeInt(version);
+      out.writeUTF(game.gameName());
+      writeNullable(out, game.whiteUsername());
+      writeNullable(out, game.blackUsername());
+      out.writeLong(lastMoveTime == null ? -1 : lastMoveTime);
+      out.writeInt(state.length);
+      out.write(state);
+    });
+  }
+
+  @FunctionalInterface
+  private interface RecordWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  private static byte[] record(RecordWriter writer) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try {
+      writer.write(new DataOutputStream(bytes));
+    } catch (IOException e) {
+      // Only a string too long for writeUTF gets here; ByteArrayOutputStream itself can't fail
+      throw new IllegalArgumentException(e.getMessage(), e);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static void writeRecord(OutputStream out, byte[] record) throws IOException {
+    new DataOutputStream(out).writeInt(record.length);
+    out.write(record);
+  }
+
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  private Path snapshotPath(int segment) {
+    return directory.resolve(String.format("%s%08d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX));
+  }
+
+  private List<Integer> snapshots() throws IOException {
+    List<Integer> snapshots = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+          snapshots.add(Integer.parseInt(
+                  name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+        }
+      }
+    }
+    snapshots.sort(null);
+    return snapshots;
+  }
+}
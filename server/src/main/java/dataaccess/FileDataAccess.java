@@ -0,0 +1,844 @@
+package dataaccess;
+
+import chess.GameStateCodec;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps users, auth tokens and games in a directory of append-only segment
+ * files, for single-node deployments that want durable storage without a
+ * MySQL server.
+ * <p>
+ * Every write appends a checksummed record to the active segment and points
+ * an in-memory index entry at it; the record it replaced becomes garbage.
+ * Full segments are sealed and read through a memory map, and each gets an
+ * index file listing its keys and offsets, so reopening a store reads the
+ * index files instead of every record. Compaction runs in the background once
+ * garbage outweighs live data, copying live records into a fresh segment and
+ * deleting the old ones.
+ * <p>
+ * A torn record at the end of the last segment, from a crash mid-write, is
+ * cut off when the store is reopened.
+ */
+public class FileDataAccess implements DataAccess, AutoCloseable {
+
+  /**
+   * @param maxSegmentBytes          size at which the active segment is sealed and a new one started
+   * @param compactionIntervalMillis how often to check whether compaction is worth it; 0 only compacts on request
+   * @param minGarbageBytes          garbage below this is never compacted, however high its share
+   * @param syncEveryWrite           force each record to disk before the write returns
+   */
+  public record Settings(int maxSegmentBytes, long compactionIntervalMillis, long minGarbageBytes,
+                         boolean syncEveryWrite) {
+    public Settings {
+      if (maxSegmentBytes < 1024 || compactionIntervalMillis < 0 || minGarbageBytes < 0) {
+        throw new IllegalArgumentException("Invalid file storage settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(64 * 1024 * 1024, 60_000, 4 * 1024 * 1024, true);
+    }
+  }
+
+  private static final byte USER = 1;
+  private static final byte AUTH = 2;
+  private static final byte AUTH_DELETE = 3;
+  private static final byte GAME = 4;
+
+  // Body length and CRC32 of the body
+  private static final int HEADER_BYTES = 8;
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String INDEX_SUFFIX = ".idx";
+
+  private record Location(Segment segment, int offset, int size) {
+  }
+
+  /**
+   * Everything the game list needs, so listing never reads a game's record.
+   */
+  private record GameEntry(Location location, GameSummary summary, int moveCount, int version) {
+  }
+
+  private record IndexEntry(byte type, int offset, String key) {
+  }
+
+  private final Path directory;
+  private final Settings settings;
+  private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<String, Location> users = new HashMap<>();
+  private final Map<String, Location> auths = new HashMap<>();
+  private final TreeMap<Integer, GameEntry> games = new TreeMap<>();
+  // Sealed segments, oldest first
+  private final List<Segment> sealed = new ArrayList<>();
+  private final BackgroundTask compactor;
+  private Segment active;
+  private int nextSegmentID = 1;
+  private int nextGameID = 1;
+  private long liveBytes = 0;
+  private long garbageBytes = 0;
+
+  public FileDataAccess(Path directory, Settings settings) throws DataAccessException {
+    this.directory = directory;
+    this.settings = settings;
+    try {
+      Files.createDirectories(directory);
+      load();
+      active = Segment.create(directory, nextSegmentID++);
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to open storage in " + directory + ": " + e.getMessage());
+    }
+    if (settings.compactionIntervalMillis() > 0) {
+      compactor = new BackgroundTask("file-storage-compactor", settings.compactionIntervalMillis(), 10_000,
+              "compact storage", this::compactIfWorthwhile);
+    } else {
+      compactor = null;
+    }
+  }
+
+  @Override
+  public void clear() throws DataAccessException {
+    lock.writeLock().lock();
+    try {
+      for (Segment segment : sealed) {
+        segment.delete();
+      }
+      sealed.clear();
+      active.delete();
+      users.clear();
+      auths.clear();
+      games.clear();
+      nextGameID = 1;
+      liveBytes = 0;
+      garbageBytes = 0;
+      active = Segment.create(directory, nextSegmentID++);
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to clear storage: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public void createUser(UserData user) throws InvalidUsernameException, DatabaseException {
+    lock.writeLock().lock();
+    try {
+      if (users.containsKey(user.username())) {
+        throw new InvalidUsernameException("User already exists");
+      }
+      Record record = new Record(USER);
+      record.out.writeUTF(user.username());
+      record.out.writeUTF(user.password());
+      writeNullable(record.out, user.email());
+      put(users, user.username(), append(record, user.username()));
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to save user: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Appends the user again; the newest record for a username is the one kept.
+   */
+  @Override
+  public void updateUser(UserData user) throws DataAccessException {
+    lock.writeLock().lock();
+    try {
+      if (!users.containsKey(user.username())) {
+        throw new InvalidUsernameException("User not found");
+      }
+      Record record = new Record(USER);
+      record.out.writeUTF(user.username());
+      record.out.writeUTF(user.password());
+      writeNullable(record.out, user.email());
+      put(users, user.username(), append(record, user.username()));
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to save user: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public UserData getUser(String username) throws DatabaseException {
+    lock.readLock().lock();
+    try {
+      Location location = users.get(username);
+      if (location == null) {
+        return null;
+      }
+      DataInputStream in = read(location);
+      return new UserData(in.readUTF(), in.readUTF(), readNullable(in));
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to read user: " + e.getMessage());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public int createGame(GameData game) throws DataAccessException {
+    return createGames(List.of(game)).get(0);
+  }
+
+  @Override
+  public List<Integer> createGames(List<GameData> newGames) throws DataAccessException {
+    lock.writeLock().lock();
+    try {
+      List<GameData> stored = new ArrayList<>(newGames.size());
+      List<Record> records = new ArrayList<>(newGames.size());
+      List<String> keys = new ArrayList<>(newGames.size());
+      for (GameData game : newGames) {
+        GameData numbered = new GameData(nextGameID + stored.size(), game.whiteUsername(), game.blackUsername(),
+                game.gameName(), game.game());
+        stored.add(numbered);
+        records.add(encodeGame(numbered, game.game().getMoveCount(), null));
+        keys.add(Integer.toString(numbered.gameID()));
+      }
+      // All on disk before any is indexed, so a failed write leaves no game behind
+      List<Location> locations = appendAll(records, keys);
+      List<Integer> ids = new ArrayList<>(stored.size());
+      for (int i = 0; i < stored.size(); i++) {
+        GameData game = stored.get(i);
+        index(game, locations.get(i), game.game().getMoveCount(), null);
+        ids.add(game.gameID());
+      }
+      nextGameID += stored.size();
+      return ids;
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to save game: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws BadRequestException, DatabaseException {
+    lock.readLock().lock();
+    try {
+      GameEntry entry = games.get(gameID);
+      if (entry == null) {
+        throw new BadRequestException("Error: Game not found");
+      }
+      return readGame(entry.location());
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to read game: " + e.getMessage());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public List<GameData> listGames() throws DataAccessException {
+    lock.readLock().lock();
+    try {
+      List<GameData> result = new ArrayList<>(games.size());
+      for (GameEntry entry : games.values()) {
+        result.add(readGame(entry.location()));
+      }
+      return result;
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to read games: " + e.getMessage());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    lock.writeLock().lock();
+    try {
+      GameEntry stored = games.get(game.gameID());
+      if (stored == null) {
+        throw new BadRequestException("Game doesn't exist");
+      }
+      if (stored.version() != game.version()) {
+        throw new GameConflictException("Error: game was changed by another update", game.gameID());
+      }
+      int moveCount = game.game().getMoveCount();
+      Long lastMoveTime = (moveCount != stored.moveCount()) ? Long.valueOf(System.currentTimeMillis())
+              : stored.summary().lastMoveTime();
+      writeGame(game.withVersion(game.version() + 1), moveCount, lastMoveTime);
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to save game: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public List<GameSummary> listGameSummaries(GameQuery query) {
+    lock.readLock().lock();
+    try {
+      return games.tailMap(query.afterGameID(), false).values().stream()
+              .map(GameEntry::summary)
+              .filter(query::matches)
+              .limit(query.limit())
+              .toList();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void createAuth(AuthData auth) throws DataAccessException {
+    lock.writeLock().lock();
+    try {
+      Record record = new Record(AUTH);
+      record.out.writeUTF(auth.authToken());
+      record.out.writeUTF(auth.username());
+      put(auths, auth.authToken(), append(record, auth.authToken()));
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to save auth token: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    lock.readLock().lock();
+    try {
+      Location location = auths.get(authToken);
+      if (location == null) {
+        throw new UnauthorizedException("Error: Unauthorized");
+      }
+      DataInputStream in = read(location);
+      return new AuthData(in.readUTF(), in.readUTF());
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to read auth token: " + e.getMessage());
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    lock.writeLock().lock();
+    try {
+      if (!auths.containsKey(authToken)) {
+        throw new UnauthorizedException("Error: Auth token not found");
+      }
+      Record record = new Record(AUTH_DELETE);
+      record.out.writeUTF(authToken);
+      Location tombstone = append(record, authToken);
+      Location removed = auths.remove(authToken);
+      // The tombstone is only needed until compaction drops the token's older records
+      liveBytes -= removed.size();
+      garbageBytes += removed.size() + tombstone.size();
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to delete auth token: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * Copies every live record into a new segment and deletes the old ones.
+   * Writers wait while this runs; readers do too, since it closes the
+   * segments they would read from.
+   */
+  public void compact() throws DataAccessException {
+    lock.writeLock().lock();
+    try {
+      // Seal the active segment without starting another, so the compacted one sorts after everything it replaces
+      List<Segment> old = new ArrayList<>(sealed);
+      old.add(active);
+      active.channel.force(false);
+
+      Segment compacted = Segment.create(directory, nextSegmentID++);
+      Map<String, Location> newUsers = new HashMap<>();
+      Map<String, Location> newAuths = new HashMap<>();
+      TreeMap<Integer, GameEntry> newGames = new TreeMap<>();
+      for (Map.Entry<String, Location> user : users.entrySet()) {
+        newUsers.put(user.getKey(), copy(user.getValue(), compacted, USER, user.getKey()));
+      }
+      for (Map.Entry<String, Location> auth : auths.entrySet()) {
+        newAuths.put(auth.getKey(), copy(auth.getValue(), compacted, AUTH, auth.getKey()));
+      }
+      for (GameEntry game : games.values()) {
+        int gameID = game.summary().gameID();
+        Location location = copy(game.location(), compacted, GAME, Integer.toString(gameID));
+        newGames.put(gameID, new GameEntry(location, game.summary(), game.moveCount(), game.version()));
+      }
+      compacted.seal();
+
+      users.clear();
+      users.putAll(newUsers);
+      auths.clear();
+      auths.putAll(newAuths);
+      games.clear();
+      games.putAll(newGames);
+      // Oldest first: if we crash partway, no surviving segment holds a record whose tombstone is gone
+      for (Segment segment : old) {
+        segment.delete();
+      }
+      sealed.clear();
+      sealed.add(compacted);
+      liveBytes = compacted.size;
+      garbageBytes = 0;
+      active = Segment.create(directory, nextSegmentID++);
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to compact storage: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void compactIfWorthwhile() throws DataAccessException {
+    boolean worthwhile;
+    lock.readLock().lock();
+    try {
+      worthwhile = garbageBytes > liveBytes && garbageBytes >= settings.minGarbageBytes();
+    } finally {
+      lock.readLock().unlock();
+    }
+    if (worthwhile) {
+      compact();
+    }
+  }
+
+  /**
+   * Bytes on disk that no longer back any entry and would go on compaction
+   */
+  public long garbageBytes() {
+    lock.readLock().lock();
+    try {
+      return garbageBytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Stops background compaction and closes the segment files.
+   */
+  @Override
+  public void close() throws DataAccessException {
+    if (compactor != null) {
+      compactor.close();
+    }
+    lock.writeLock().lock();
+    try {
+      if (active.size == 0) {
+        active.delete();
+      } else {
+        active.channel.force(false);
+        active.close();
+      }
+      for (Segment segment : sealed) {
+        segment.close();
+      }
+    } catch (IOException e) {
+      throw new DatabaseException("Unable to close storage: " + e.getMessage());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void writeGame(GameData game, int moveCount, Long lastMoveTime) throws IOException {
+    Location location = append(encodeGame(game, moveCount, lastMoveTime), Integer.toString(game.gameID()));
+    index(game, location, moveCount, lastMoveTime);
+  }
+
+  private static Record encodeGame(GameData game, int moveCount, Long lastMoveTime) throws IOException {
+    GameSummary.Status status = statusOf(game);
+    // Summary fields come before the board so the index can be rebuilt without decoding it
+    Record record = new Record(GAME);
+    record.out.writeInt(game.gameID());
+    record.out.writeInt(game.version());
+    record.out.writeUTF(game.gameName());
+    writeNullable(record.out, game.whiteUsername());
+    writeNullable(record.out, game.blackUsername());
+    record.out.writeByte(status.ordinal());
+    record.out.writeLong(lastMoveTime == null ? -1 : lastMoveTime);
+    record.out.writeInt(moveCount);
+    byte[] state = GameStateCodec.encode(game.game());
+    record.out.writeInt(state.length);
+    record.out.write(state);
+    return record;
+  }
+
+  private void index(GameData game, Location location, int moveCount, Long lastMoveTime) {
+    GameSummary summary = new GameSummary(game.gameID(), game.gameName(), game.whiteUsername(),
+            game.blackUsername(), statusOf(game), lastMoveTime);
+    GameEntry previous = games.put(game.gameID(), new GameEntry(location, summary, moveCount, game.version()));
+    account(previous == null ? null : previous.location(), location);
+  }
+
+  private static GameSummary.Status statusOf(GameData game) {
+    return game.game().isGameOver() ? GameSummary.Status.FINISHED : GameSummary.Status.ACTIVE;
+  }
+
+  private GameData readGame(Location location) throws IOException {
+    DataInputStream in = read(location);
+    int gameID = in.readInt();
+    int version = in.readInt();
+    String gameName = in.readUTF();
+    String white = readNullable(in);
+    String black = readNullable(in);
+    in.skipNBytes(1 + 8 + 4);
+    byte[] state = new byte[in.readInt()];
+    in.readFully(state);
+    return new GameData(gameID, white, black, gameName, GameStateCodec.decode(state), version);
+  }
+
+  private void put(Map<String, Location> index, String key, Location location) {
+    account(index.put(key, location), location);
+  }
+
+  private void account(Location replaced, Location written) {
+    liveBytes += written.size();
+    if (replaced != null) {
+      liveBytes -= replaced.size();
+      garbageBytes += replaced.size();
+    }
+  }
+
+  private Location append(Record record, String key) throws IOException {
+    return appendAll(List.of(record), List.of(key)).get(0);
+  }
+
+  /**
+   * Appends the records to the active segment in one write, sealing it first
+   * if they would take it past the segment size. Either every record lands or,
+   * when the write fails, the segment is cut back to where it was and none
+   * do. Must hold the write lock.
+   */
+  private List<Location> appendAll(List<Record> records, List<String> keys) throws IOException {
+    List<byte[]> bodies = new ArrayList<>(records.size());
+    long total = 0;
+    for (Record record : records) {
+      byte[] body = record.bytes.toByteArray();
+      bodies.add(body);
+      total += HEADER_BYTES + body.length;
+    }
+    if (active.size > 0 && active.size + total > settings.maxSegmentBytes()) {
+      // Created before the old one is sealed, so a failure here leaves the active segment as it was
+      Segment next = Segment.create(directory, nextSegmentID);
+      nextSegmentID++;
+      active.seal();
+      sealed.add(active);
+      active = next;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(total));
+    for (byte[] body : bodies) {
+      buffer.putInt(body.length).putInt(checksum(body, 0, body.length)).put(body);
+    }
+    buffer.flip();
+    int start = active.size;
+    try {
+      active.write(buffer);
+      if (settings.syncEveryWrite()) {
+        active.channel.force(false);
+      }
+    } catch (IOException e) {
+      try {
+        active.truncate(start);
+      } catch (IOException truncateFailure) {
+        e.addSuppressed(truncateFailure);
+      }
+      throw e;
+    }
+    List<Location> locations = new ArrayList<>(records.size());
+    int offset = start;
+    for (int i = 0; i < records.size(); i++) {
+      int size = HEADER_BYTES + bodies.get(i).length;
+      active.entries.add(new IndexEntry(records.get(i).type, offset, keys.get(i)));
+      locations.add(new Location(active, offset, size));
+      offset += size;
+    }
+    return locations;
+  }
+
+  private Location copy(Location from, Segment to, byte type, String key) throws IOException {
+    int offset = to.write(from.segment().read(from.offset(), from.size()));
+    to.entries.add(new IndexEntry(type, offset, key));
+    return new Location(to, offset, from.size());
+  }
+
+  /**
+   * The record's fields, past its header and type byte
+   */
+  private static DataInputStream read(Location location) throws IOException {
+    ByteBuffer buffer = location.segment().read(location.offset(), location.size());
+    byte[] bytes = new byte[location.size() - HEADER_BYTES];
+    buffer.position(HEADER_BYTES).get(bytes);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+    in.skipNBytes(1);
+    return in;
+  }
+
+  private void load() throws IOException {
+    List<Integer> ids = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        String name = file.getFileName().toString();
+        if (name.endsWith(SEGMENT_SUFFIX)) {
+          ids.add(Integer.parseInt(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+        }
+      }
+    }
+    ids.sort(null);
+    for (int i = 0; i < ids.size(); i++) {
+      Segment segment = Segment.open(directory, ids.get(i));
+      if (Files.exists(segment.indexPath())) {
+        loadIndex(segment);
+      } else {
+        // Only the newest segment can have been cut short by a crash
+        scan(segment, i == ids.size() - 1);
+        segment.seal();
+      }
+      sealed.add(segment);
+      nextSegmentID = segment.id + 1;
+    }
+  }
+
+  private void loadIndex(Segment segment) throws IOException {
+    segment.map();
+    try (FileChannel channel = FileChannel.open(segment.indexPath(), StandardOpenOption.READ)) {
+      MappedByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      while (index.hasRemaining()) {
+        byte type = index.get();
+        int offset = index.getInt();
+        byte[] key = new byte[index.getShort()];
+        index.get(key);
+        int size = HEADER_BYTES + segment.read(offset, 4).getInt();
+        apply(type, new String(key, StandardCharsets.UTF_8), new Location(segment, offset, size));
+      }
+    }
+  }
+
+  private void scan(Segment segment, boolean truncateTornTail) throws IOException {
+    int offset = 0;
+    while (offset + HEADER_BYTES <= segment.size) {
+      ByteBuffer header = segment.read(offset, HEADER_BYTES);
+      int length = header.getInt();
+      int crc = header.getInt();
+      if (length < 1 || (long) offset + HEADER_BYTES + length > segment.size) {
+        break;
+      }
+      ByteBuffer body = segment.read(offset + HEADER_BYTES, length);
+      byte[] bytes = new byte[length];
+      body.get(bytes);
+      if (checksum(bytes, 0, length) != crc) {
+        break;
+      }
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+      byte type = in.readByte();
+      String key = (type == GAME) ? Integer.toString(in.readInt()) : in.readUTF();
+      segment.entries.add(new IndexEntry(type, offset, key));
+      apply(type, key, new Location(segment, offset, HEADER_BYTES + length));
+      offset += HEADER_BYTES + length;
+    }
+    if (offset < segment.size) {
+      if (!truncateTornTail) {
+        throw new IOException("Corrupt record at offset " + offset + " of " + segment.path);
+      }
+      System.err.println("Discarding " + (segment.size - offset) + " bytes torn from the end of " + segment.path);
+      segment.truncate(offset);
+    }
+  }
+
+  /**
+   * Points the index at a record found while loading. Later segments are
+   * applied after earlier ones, so the newest record for each key wins.
+   */
+  private void apply(byte type, String key, Location location) throws IOException {
+    switch (type) {
+      case USER -> put(users, key, location);
+      case AUTH -> put(auths, key, location);
+      case AUTH_DELETE -> {
+        Location removed = auths.remove(key);
+        if (removed != null) {
+          liveBytes -= removed.size();
+          garbageBytes += removed.size();
+        }
+        garbageBytes += location.size();
+      }
+      case GAME -> {
+        DataInputStream in = read(location);
+        int gameID = in.readInt();
+        int version = in.readInt();
+        String gameName = in.readUTF();
+        String white = readNullable(in);
+        String black = readNullable(in);
+        GameSummary.Status status = GameSummary.Status.values()[in.readByte()];
+        long lastMoveTime = in.readLong();
+        int moveCount = in.readInt();
+        GameSummary summary = new GameSummary(gameID, gameName, white, black, status,
+                lastMoveTime < 0 ? null : lastMoveTime);
+        GameEntry previous = games.put(gameID, new GameEntry(location, summary, moveCount, version));
+        account(previous == null ? null : previous.location(), location);
+        nextGameID = Math.max(nextGameID, gameID + 1);
+      }
+      default -> throw new IOException("Unknown record type " + type + " in " + location.segment().path);
+    }
+  }
+
+  private static int checksum(byte[] bytes, int offset, int length) {
+    CRC32 crc = new CRC32();
+    crc.update(bytes, offset, length);
+    return (int) crc.getValue();
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) {
+      out.writeUTF(value);
+    }
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+  /**
+   * A record body being built, starting with its type byte
+   */
+  private static final class Record {
+    final byte type;
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    final DataOutputStream out = new DataOutputStream(bytes);
+
+    Record(byte type) throws IOException {
+      this.type = type;
+      out.writeByte(type);
+    }
+  }
+
+  /**
+   * One segment file. The active segment is read with positional reads as it
+   * grows; once sealed it is memory mapped and its index file written.
+   */
+  private static final class Segment {
+    final int id;
+    final Path path;
+    final FileChannel channel;
+    // Keys written to this segment, in order, for its index file
+    final List<IndexEntry> entries = new ArrayList<>();
+    int size;
+    MappedByteBuffer map;
+
+    private Segment(int id, Path path, FileChannel channel) throws IOException {
+      this.id = id;
+      this.path = path;
+      this.channel = channel;
+      this.size = (int) channel.size();
+    }
+
+    static Segment create(Path directory, int id) throws IOException {
+      Path path = directory.resolve(String.format("%08d%s", id, SEGMENT_SUFFIX));
+      return new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+              StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    static Segment open(Path directory, int id) throws IOException {
+      Path path = directory.resolve(String.format("%08d%s", id, SEGMENT_SUFFIX));
+      return new Segment(id, path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    Path indexPath() {
+      return path.resolveSibling(String.format("%08d%s", id, INDEX_SUFFIX));
+    }
+
+    int write(ByteBuffer buffer) throws IOException {
+      int offset = size;
+      long position = offset;
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      size = (int) position;
+      return offset;
+    }
+
+    ByteBuffer read(int offset, int length) throws IOException {
+      if (map != null) {
+        return map.slice(offset, length);
+      }
+      ByteBuffer buffer = ByteBuffer.allocate(length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, offset + buffer.position()) < 0) {
+          throw new IOException("Record runs past the end of " + path);
+        }
+      }
+      return buffer.flip();
+    }
+
+    void truncate(int length) throws IOException {
+      channel.truncate(length);
+      size = length;
+    }
+
+    void map() throws IOException {
+      map = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+    }
+
+    /**
+     * Forces the segment to disk, writes its index file and maps it. The
+     * index is written to a temporary file and renamed into place, so a crash
+     * leaves either a whole index or none, and a segment without one is
+     * scanned instead.
+     */
+    void seal() throws IOException {
+      channel.force(false);
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(bytes);
+      for (IndexEntry entry : entries) {
+        byte[] key = entry.key().getBytes(StandardCharsets.UTF_8);
+        out.writeByte(entry.type());
+        out.writeInt(entry.offset());
+        out.writeShort(key.length);
+        out.write(key);
+      }
+      Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+      try (FileChannel index = FileChannel.open(temp, StandardOpenOption.CREATE,
+              StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        while (buffer.hasRemaining()) {
+          index.write(buffer);
+        }
+        index.force(false);
+      }
+      Files.move(temp, indexPath(), StandardCopyOption.ATOMIC_MOVE);
+      entries.clear();
+      map();
+    }
+
+    void close() throws IOException {
+      map = null;
+      channel.close();
+    }
+
+    void delete() throws IOException {
+      close();
+      Files.deleteIfExists(indexPath());
+      Files.delete(path);
+    }
+  }
+}
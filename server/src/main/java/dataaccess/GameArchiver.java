@@ -0,0 +1,120 @@
+package dataaccess;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Periodically moves finished games out of the hot games table and into the
+ * compressed games_archive, so listing and the buffer pool only carry games
+ * that are still being played. Archived games load through
+ * {@link MySqlDataAccess#getGame} as before; their state is inflated on the way.
+ */
+public class GameArchiver implements AutoCloseable {
+
+  /**
+   * @param intervalMillis how often to look for games to archive
+   * @param minAgeMillis   how long a finished game stays hot after it was last written
+   * @param batchSize      games archived per query; a run keeps going while batches come back full
+   */
+  public record Settings(long intervalMillis, long minAgeMillis, int batchSize) {
+    public Settings {
+      if (intervalMillis < 1 || minAgeMillis < 0 || batchSize < 1) {
+        throw new IllegalArgumentException("Invalid archiver settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(10 * 60_000, 60 * 60_000, 200);
+    }
+  }
+
+  private final MySqlDataAccess dataAccess;
+  private final Settings settings;
+  private final BackgroundTask task;
+
+  public GameArchiver(MySqlDataAccess dataAccess, Settings settings) {
+    this.dataAccess = dataAccess;
+    this.settings = settings;
+    this.task = new BackgroundTask("game-archiver", settings.intervalMillis(), 30_000,
+            "archive finished games", this::archive);
+  }
+
+  /**
+   * Archives every game that has been finished for long enough.
+   *
+   * @return how many games were archived
+   */
+  public int archive() throws DataAccessException {
+    Timestamp finishedBefore = new Timestamp(System.currentTimeMillis() - settings.minAgeMillis());
+    int total = 0;
+    while (true) {
+      int count = dataAccess.archiveFinishedGames(finishedBefore, settings.batchSize());
+      total += count;
+      // A short batch means nothing is left, or the rest changed and wait for the next run
+      if (count < settings.batchSize()) {
+        break;
+      }
+    }
+    task.record(total);
+    return total;
+  }
+
+  /**
+   * @return runs so far and the games they archived
+   */
+  public BackgroundTask.Stats stats() {
+    return task.stats();
+  }
+
+  /**
+   * Stops scheduling runs and waits for one in progress to finish.
+   */
+  @Override
+  public void close() {
+    task.close();
+  }
+
+  static byte[] compress(byte[] state) {
+    Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    try {
+      deflater.setInput(state);
+      deflater.finish();
+      ByteArrayOutputStream out = new ByteArrayOutputStream(state.length / 2 + 16);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        out.write(buffer, 0, deflater.deflate(buffer));
+      }
+      return out.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * @throws IOException if the data is not a complete compressed state
+   */
+  static byte[] decompress(byte[] compressed) throws IOException {
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressed);
+      ByteArrayOutputStream out = new ByteArrayOutputStream(compressed.length * 2);
+      byte[] buffer = new byte[4096];
+      while (!inflater.finished()) {
+        int count = inflater.inflate(buffer);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          throw new IOException("Archived game state is truncated");
+        }
+        out.write(buffer, 0, count);
+      }
+      return out.toByteArray();
+    } catch (DataFormatException e) {
+      throw new IOException("Archived game state is corrupt: " + e.getMessage());
+    } finally {
+      inflater.end();
+    }
+  }
+}
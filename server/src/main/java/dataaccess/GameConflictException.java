@@ -0,0 +1,27 @@
+package dataaccess;
+
+import java.util.List;
+
+/**
+ * Indicates a game was changed by someone else between being read and being
+ * saved. The caller should read the game again and redo its change.
+ */
+public class GameConflictException extends DataAccessException {
+  private final List<Integer> gameIDs;
+
+  public GameConflictException(String message, List<Integer> gameIDs) {
+    super(message);
+    this.gameIDs = List.copyOf(gameIDs);
+  }
+
+  public GameConflictException(String message, int gameID) {
+    this(message, List.of(gameID));
+  }
+
+  /**
+   * @return the games whose update was rejected
+   */
+  public List<Integer> getGameIDs() {
+    return gameIDs;
+  }
+}
@@ -0,0 +1,41 @@
+package dataaccess;
+
+import model.GameSummary;
+
+/**
+ * One page of the game list. Pages are keyed on game ID rather than offset,
+ * so fetching a later page costs the same as the first.
+ *
+ * @param afterGameID  only games with a larger ID are returned; 0 starts from the beginning
+ * @param limit        maximum number of games in the page
+ * @param openSeatOnly only games with at least one empty seat
+ * @param player       only games this user is playing in, or null for any
+ * @param status       only games in this status, or null for any
+ */
+public record GameQuery(int afterGameID, int limit, boolean openSeatOnly, String player,
+                        GameSummary.Status status) {
+  public static final int MAX_LIMIT = 500;
+
+  public GameQuery {
+    if (afterGameID < 0) {
+      throw new IllegalArgumentException("afterGameID must not be negative");
+    }
+    if (limit < 1) {
+      throw new IllegalArgumentException("limit must be positive");
+    }
+  }
+
+  /**
+   * Every game, in ID order
+   */
+  public static GameQuery all() {
+    return new GameQuery(0, Integer.MAX_VALUE, false, null, null);
+  }
+
+  public boolean matches(GameSummary summary) {
+    return summary.gameID() > afterGameID
+            && (!openSeatOnly || summary.hasOpenSeat())
+            && (player == null || summary.hasPlayer(player))
+            && (status == null || summary.status() == status);
+  }
+}
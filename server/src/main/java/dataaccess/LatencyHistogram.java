@@ -0,0 +1,98 @@
+package dataaccess;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size latency histogram in the style of HdrHistogram. Each power of
+ * two is split into {@link #SUB_BUCKETS} equal buckets, so any recorded value
+ * is reported within 1/16 of what it was, from nanoseconds up to minutes, in
+ * a few kilobytes.
+ * <p>
+ * Recording is one array increment and never blocks, so it is cheap enough
+ * to call on every statement. A snapshot taken while values are being
+ * recorded may miss the latest few.
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Values from 2^40 ns, about 18 minutes, all land in the last bucket
+  private static final int MAX_EXPONENT = 40;
+  private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+
+  /**
+   * Latencies in milliseconds; all zero if nothing was recorded.
+   */
+  public record Snapshot(long count, double meanMillis, double p50Millis, double p90Millis, double p99Millis,
+                         double p999Millis, double maxMillis) {
+  }
+
+  private final AtomicLongArray counts = new AtomicLongArray((MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+  private final LongAdder totalNanos = new LongAdder();
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+  public void record(long nanos) {
+    long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+    counts.incrementAndGet(indexOf(value));
+    totalNanos.add(value);
+    maxNanos.accumulate(value);
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * The largest value that lands in the bucket, so percentiles never under-report.
+   */
+  static long highestValueIn(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int shift = exponent - SUB_BUCKET_BITS;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+
+  public Snapshot snapshot() {
+    long[] copy = new long[counts.length()];
+    long count = 0;
+    for (int i = 0; i < copy.length; i++) {
+      copy[i] = counts.get(i);
+      count += copy[i];
+    }
+    if (count == 0) {
+      return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+    }
+    long max = maxNanos.get();
+    return new Snapshot(count, millis(totalNanos.sum() / count),
+            millis(Math.min(percentile(copy, count, 0.5), max)),
+            millis(Math.min(percentile(copy, count, 0.9), max)),
+            millis(Math.min(percentile(copy, count, 0.99), max)),
+            millis(Math.min(percentile(copy, count, 0.999), max)),
+            millis(max));
+  }
+
+  private static long percentile(long[] counts, long total, double fraction) {
+    long target = Math.max(1, (long) Math.ceil(total * fraction));
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return highestValueIn(i);
+      }
+    }
+    return highestValueIn(counts.length - 1);
+  }
+
+  private static double millis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
@@ -1,91 +1,310 @@
 package dataaccess;
 
+import chess.ChessGame;
+import chess.GameStateCodec;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Keeps everything in concurrent maps, so it is safe to call from any number
+ * of request threads without a global lock. Game updates are compare-and-set
+ * on the stored entry: the version check and the write happen as one step,
+ * and of two racing updates to the same version exactly one wins.
+ * <p>
+ * Games are kept encoded, and every read decodes a copy of its own, so a
+ * caller changing the game it was handed changes nothing here until an
+ * update with it is accepted. A move made on a read that loses the race is
+ * simply thrown away with that copy.
+ * <p>
+ * Auth tokens expire by the {@link AuthExpiry} given at construction, and
+ * stay in the map until {@link #deleteExpiredAuths} sweeps them out.
+ */
 public class MemoryDataAccess implements DataAccess{
 
-  private final Map<String, UserData> users = new HashMap<>();
-  private final Map<Integer, GameData> games = new HashMap<>();
-  private final Map<String, AuthData> auths = new HashMap<>();
-  private int nextGameID = 1;
+  private final Map<String, UserData> users = new ConcurrentHashMap<>();
+  // Ordered by ID, so a page of the game list starts where the last one stopped
+  private final ConcurrentNavigableMap<Integer, StoredGame> games = new ConcurrentSkipListMap<>();
+  private final Map<String, StoredAuth> auths = new ConcurrentHashMap<>();
+  private final AtomicInteger nextGameID = new AtomicInteger(1);
+  private final AuthExpiry authExpiry;
+
+  public MemoryDataAccess() {
+    this(AuthExpiry.defaults());
+  }
+
+  public MemoryDataAccess(AuthExpiry authExpiry) {
+    this.authExpiry = authExpiry;
+  }
+
+  /**
+   * A game's encoded state and the summary fields read from it, taken while
+   * no move is being made to it. Encoding is done by the caller, outside any
+   * lock of ours, since a caller may be holding the game's monitor.
+   */
+  record GameState(byte[] bytes, int moveCount, boolean gameOver) {
+    static GameState of(ChessGame game) {
+      synchronized (game) {
+        return new GameState(GameStateCodec.encode(game), game.getMoveCount(), game.isGameOver());
+      }
+    }
+  }
+
+  /**
+   * One version of a game. Replaced as a whole, so a reader never sees a game
+   * with another version's summary.
+   */
+  private record StoredGame(int gameID, String whiteUsername, String blackUsername, String gameName, int version,
+                            GameState state, Long lastMoveTime) {
+    GameData toGameData() {
+      return new GameData(gameID, whiteUsername, blackUsername, gameName, GameStateCodec.decode(state.bytes()),
+              version);
+    }
+
+    GameSummary summary() {
+      return new GameSummary(gameID, gameName, whiteUsername, blackUsername,
+              state.gameOver() ? GameSummary.Status.FINISHED : GameSummary.Status.ACTIVE, lastMoveTime);
+    }
+  }
+
+  /**
+   * A token with the times its expiry is worked out from, all in epoch millis.
+   */
+  private record StoredAuth(AuthData auth, long issuedAt, long lastUsedAt, long expiresAt) {
+  }
 
   //implement all methods specified by DataAccess Interface
   @Override
-  public void clear(){
+  public void clear() throws DataAccessException {
     users.clear();
     games.clear();
     auths.clear();
-    nextGameID = 1;
+    nextGameID.set(1);
   }
 
   @Override
-  public void createUser(UserData user) throws InvalidUsernameException{
-      if (users.containsKey(user.username())) {
+  public void createUser(UserData user) throws InvalidUsernameException, DatabaseException {
+      if (users.putIfAbsent(user.username(), user) != null) {
         throw new InvalidUsernameException("User already exists");
       }
-      users.put(user.username(), user);
   }
 
   @Override
-  public UserData getUser(String username) {
+  public UserData getUser(String username) throws DatabaseException {
       return users.get(username);
   }
 
+  @Override
+  public void updateUser(UserData user) throws DataAccessException {
+    if (users.replace(user.username(), user) == null) {
+      throw new InvalidUsernameException("Error: User not found");
+    }
+  }
+
   @Override
   public int createGame(GameData game) throws DatabaseException {
-    int gameID = nextGameID++;
-    games.put(gameID, new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game()));
+    return insertGame(game, GameState.of(game.game()));
+  }
+
+  /**
+   * Stores a new game from state the caller has already encoded.
+   */
+  int insertGame(GameData game, GameState state) {
+    int gameID = nextGameID.getAndIncrement();
+    store(gameID, game, state);
     return gameID;
   }
 
   @Override
-  public GameData getGame(int gameID) throws BadRequestException{
-    GameData game = games.get(gameID);
-    if (game == null) {
+  public List<Integer> createGames(List<GameData> newGames) throws DataAccessException {
+    List<GameState> states = new ArrayList<>(newGames.size());
+    for (GameData game : newGames) {
+      states.add(GameState.of(game.game()));
+    }
+    return insertGames(newGames, states);
+  }
+
+  List<Integer> insertGames(List<GameData> newGames, List<GameState> states) {
+    // Claim the whole block of IDs up front
+    int firstID = nextGameID.getAndAdd(newGames.size());
+    List<Integer> ids = new ArrayList<>(newGames.size());
+    for (int i = 0; i < newGames.size(); i++) {
+      store(firstID + i, newGames.get(i), states.get(i));
+      ids.add(firstID + i);
+    }
+    return ids;
+  }
+
+  private void store(int gameID, GameData game, GameState state) {
+    games.put(gameID, new StoredGame(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), 0,
+            state, null));
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws BadRequestException, DatabaseException {
+    StoredGame stored = games.get(gameID);
+    if (stored == null) {
       throw new BadRequestException("Error: Game not found");
     }
-    return games.get(gameID);
+    return stored.toGameData();
   }
 
+  /**
+   * A snapshot taken without locking; games created or changed while it is
+   * being taken may or may not be in it.
+   */
   @Override
-  public List<GameData> listGames() {
-    return new ArrayList<>(games.values());
+  public List<GameData> listGames() throws DatabaseException {
+    List<GameData> result = new ArrayList<>();
+    for (StoredGame stored : games.values()) {
+      result.add(stored.toGameData());
+    }
+    return result;
   }
 
   @Override
-  public void updateGame(GameData game) throws BadRequestException{
-    if (!games.containsKey(game.gameID())){
+  public void updateGame(GameData game) throws DataAccessException {
+    replaceGame(game, GameState.of(game.game()));
+  }
+
+  /**
+   * Saves a game from state the caller has already encoded, if it is still
+   * at the version it was read at.
+   */
+  void replaceGame(GameData game, GameState state) throws DataAccessException {
+    StoredGame stored = games.get(game.gameID());
+    if (stored == null) {
+        throw new BadRequestException("Game doesn't exist");
+    }
+    if (stored.version() != game.version()) {
+      throw new GameConflictException("Error: game was changed by another update", game.gameID());
+    }
+    Long lastMoveTime = (state.moveCount() != stored.state().moveCount())
+            ? Long.valueOf(System.currentTimeMillis()) : stored.lastMoveTime();
+    StoredGame updated = new StoredGame(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+            game.version() + 1, state, lastMoveTime);
+    // Only swaps in if nobody replaced the entry since we read it, in which case its version has moved on too
+    StoredGame result = games.compute(game.gameID(), (id, current) -> (current == stored) ? updated : current);
+    if (result != updated) {
+      if (result == null) {
         throw new BadRequestException("Game doesn't exist");
+      }
+      throw new GameConflictException("Error: game was changed by another update", game.gameID());
+    }
+  }
+
+  @Override
+  public List<GameSummary> listGameSummaries(GameQuery query) throws DatabaseException {
+    return games.tailMap(query.afterGameID(), false).values().stream()
+            .map(StoredGame::summary)
+            .filter(query::matches)
+            .limit(query.limit())
+            .toList();
+  }
+
+  Collection<UserData> listUsers() {
+    return new ArrayList<>(users.values());
+  }
+
+  /**
+   * Every stored token with the time it was issued, expired ones included
+   */
+  Map<AuthData, Long> listAuths() {
+    Map<AuthData, Long> result = new HashMap<>();
+    for (StoredAuth stored : auths.values()) {
+      result.put(stored.auth(), stored.issuedAt());
     }
-    games.put(game.gameID(), game);
+    return result;
+  }
+
+  /**
+   * Puts back a token issued at {@code issuedAt}, counting it as used now.
+   * Used when reloading a durable copy, which doesn't keep every use.
+   */
+  void restoreAuth(AuthData auth, long issuedAt) {
+    long now = System.currentTimeMillis();
+    auths.put(auth.authToken(), new StoredAuth(auth, issuedAt, now, authExpiry.expiresAt(issuedAt, now)));
+  }
+
+  Long lastMoveTime(int gameID) {
+    StoredGame stored = games.get(gameID);
+    return (stored == null) ? null : stored.lastMoveTime();
+  }
+
+  /**
+   * Puts a game back as it was saved, version and all, unless a newer
+   * version of it is already here. Used when reloading a durable copy.
+   */
+  void restoreGame(GameData game, Long lastMoveTime) {
+    StoredGame restored = new StoredGame(game.gameID(), game.whiteUsername(), game.blackUsername(),
+            game.gameName(), game.version(), GameState.of(game.game()), lastMoveTime);
+    games.merge(game.gameID(), restored,
+            (current, incoming) -> (incoming.version() >= current.version()) ? incoming : current);
+    nextGameID.accumulateAndGet(game.gameID() + 1, Math::max);
   }
 
   @Override
-  public void createAuth(AuthData auth) {
-    auths.put(auth.authToken(),auth);
+  public void createAuth(AuthData auth) throws DataAccessException {
+    long now = System.currentTimeMillis();
+    auths.put(auth.authToken(), new StoredAuth(auth, now, now, authExpiry.expiresAt(now, now)));
   }
 
   @Override
-  public AuthData getAuth(String authToken) throws UnauthorizedException{
-    AuthData auth = auths.get(authToken);
-    if (auth == null) {
+  public AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    StoredAuth stored = auths.get(authToken);
+    long now = System.currentTimeMillis();
+    if (stored == null || stored.expiresAt() <= now) {
       throw new UnauthorizedException("Error: Unauthorized");
     }
-    return auth;
+    if (authExpiry.needsTouch(stored.lastUsedAt(), now)) {
+      // Loses quietly to a concurrent touch or logout, either of which is fine
+      auths.replace(authToken, stored, new StoredAuth(stored.auth(), stored.issuedAt(), now,
+              authExpiry.expiresAt(stored.issuedAt(), now)));
+    }
+    return stored.auth();
   }
 
   @Override
-  public void deleteAuth(String authToken) throws UnauthorizedException{
+  public void deleteAuth(String authToken) throws UnauthorizedException, DatabaseException {
     if (auths.remove(authToken) == null) {
       throw new UnauthorizedException("Error: Auth token not found");
     }
   }
+
+  @Override
+  public int deleteExpiredAuths(int limit) throws DataAccessException {
+    return removeExpiredAuths(limit).size();
+  }
+
+  /**
+   * Removes up to {@code limit} expired tokens. A token touched after it was
+   * found to be expired is left alone.
+   *
+   * @return the tokens removed
+   */
+  List<String> removeExpiredAuths(int limit) {
+    long now = System.currentTimeMillis();
+    List<String> removed = new ArrayList<>();
+    for (StoredAuth stored : auths.values()) {
+      if (removed.size() >= limit) {
+        break;
+      }
+      if (stored.expiresAt() <= now && auths.remove(stored.auth().authToken(), stored)) {
+        removed.add(stored.auth().authToken());
+      }
+    }
+    return removed;
+  }
 }
 
@@ -0,0 +1,116 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings a database schema up to date by running numbered migrations in
+ * order. The versions already applied are recorded in a schema_version
+ * table, so once the schema is current, startup costs a single query.
+ * <p>
+ * MySQL commits every DDL statement on its own, so a migration can't be
+ * rolled back halfway. Each one has to check what is already there, so that
+ * running it again after a crash finishes the job.
+ * Concurrent servers take a named lock so only one of them migrates.
+ */
+class MigrationRunner {
+
+  @FunctionalInterface
+  interface Step {
+    void apply(Connection conn) throws SQLException;
+  }
+
+  record Migration(int version, String description, Step step) {
+  }
+
+  private static final String LOCK_NAME = "chess_schema_migration";
+  private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+  private final List<Migration> migrations;
+
+  /**
+   * @param migrations in the order they run, with strictly increasing versions
+   */
+  MigrationRunner(List<Migration> migrations) {
+    for (int i = 1; i < migrations.size(); i++) {
+      if (migrations.get(i).version() <= migrations.get(i - 1).version()) {
+        throw new IllegalArgumentException("Migrations must be in increasing version order");
+      }
+    }
+    this.migrations = List.copyOf(migrations);
+  }
+
+  int latestVersion() {
+    return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).version();
+  }
+
+  /**
+   * Runs every migration newer than the schema's current version.
+   *
+   * @return the migrations that were run; empty if the schema was already current
+   */
+  List<Migration> migrate(Connection conn) throws SQLException {
+    try (var statement = conn.createStatement()) {
+      statement.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (\n" +
+              "    version INT PRIMARY KEY,\n" +
+              "    description VARCHAR(255) NOT NULL,\n" +
+              "    applied_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)\n" +
+              ")");
+    }
+    if (currentVersion(conn) >= latestVersion()) {
+      return List.of();
+    }
+
+    lock(conn);
+    try {
+      // Another server may have migrated while we waited for the lock
+      int current = currentVersion(conn);
+      List<Migration> applied = new ArrayList<>();
+      for (Migration migration : migrations) {
+        if (migration.version() <= current) {
+          continue;
+        }
+        migration.step().apply(conn);
+        try (var insert = conn.prepareStatement(
+                "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+          insert.setInt(1, migration.version());
+          insert.setString(2, migration.description());
+          insert.executeUpdate();
+        }
+        applied.add(migration);
+      }
+      return applied;
+    } finally {
+      unlock(conn);
+    }
+  }
+
+  static int currentVersion(Connection conn) throws SQLException {
+    try (var statement = conn.prepareStatement("SELECT COALESCE(MAX(version), 0) FROM schema_version");
+         var resultSet = statement.executeQuery()) {
+      resultSet.next();
+      return resultSet.getInt(1);
+    }
+  }
+
+  private static void lock(Connection conn) throws SQLException {
+    try (var statement = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+      statement.setString(1, LOCK_NAME);
+      statement.setInt(2, LOCK_TIMEOUT_SECONDS);
+      try (var resultSet = statement.executeQuery()) {
+        if (!resultSet.next() || resultSet.getInt(1) != 1) {
+          throw new SQLException("Timed out waiting for another server to finish migrating the schema");
+        }
+      }
+    }
+  }
+
+  private static void unlock(Connection conn) throws SQLException {
+    try (var statement = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+      statement.setString(1, LOCK_NAME);
+      statement.executeQuery().close();
+    }
+  }
+}
@@ -2,31 +2,86 @@ package dataaccess;
 
 
 import chess.ChessGame;
-import com.google.gson.Gson;
+import chess.ChessMove;
+import chess.GameStateCodec;
+import chess.InvalidMoveException;
+import chess.PackedMove;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import model.UserData;
 import org.mindrot.jbcrypt.BCrypt;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public class MySqlDataAccess implements DataAccess {
+  /**
+   * Moves between full game_state snapshots. Each move in between is a single
+   * game_moves row, and loading a game replays at most this many moves.
+   */
+  static final int SNAPSHOT_INTERVAL = 16;
 
-  private final Gson gson = new Gson();
+  // Rewrites the whole game as a new snapshot, only if nobody has updated it since it was read
+  private static final String UPDATE_GAME =
+          "UPDATE games SET game_state = ?, white_username = ?, black_username = ?, status = ?, " +
+                  // MySQL applies assignments in order, so this compares against the old move_count
+                  "last_move_at = IF(move_count <> ?, CURRENT_TIMESTAMP(3), last_move_at), move_count = ?, " +
+                  "snapshot_ply = ?, version = version + 1 WHERE game_id = ? AND version = ?";
+
+  // One row per move made since the snapshot, or a single row with a null move.
+  // Archived games have no game_state, so their state comes from games_archive.
+  private static final String SELECT_GAMES_WITH_TAIL =
+          "SELECT g.game_id, g.game_name, g.game_state, a.archived_state, g.white_username, g.black_username, " +
+                  "g.version, m.packed_move " +
+                  "FROM games g LEFT JOIN games_archive a ON g.game_state IS NULL AND a.game_id = g.game_id " +
+                  "LEFT JOIN game_moves m ON m.game_id = g.game_id AND m.ply > g.snapshot_ply ";
+
+  private final AuthExpiry authExpiry;
+  private final StatementMetrics metrics;
+
+  public MySqlDataAccess() {
+    this(AuthExpiry.defaults());
+  }
+
+  public MySqlDataAccess(AuthExpiry authExpiry) {
+    this(authExpiry, new StatementMetrics(StatementMetrics.DEFAULT_SLOW_MILLIS));
+  }
+
+  public MySqlDataAccess(AuthExpiry authExpiry, StatementMetrics metrics) {
+    this.authExpiry = authExpiry;
+    this.metrics = metrics;
+  }
+
+  public StatementMetrics metrics() {
+    return metrics;
+  }
 
   @Override
   public void clear() throws DataAccessException {
-    try (var conn=DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("clear"); var conn = timer.connect()) {
       try (var statement=conn.prepareStatement("DELETE FROM auth_tokens")) {
-        statement.executeUpdate();
+        timer.execute(statement::executeUpdate);
+      }
+      try (var statement = conn.prepareStatement("DELETE FROM game_moves")) {
+        timer.execute(statement::executeUpdate);
+      }
+      try (var statement = conn.prepareStatement("DELETE FROM games_archive")) {
+        timer.execute(statement::executeUpdate);
       }
       try (var statement2 = conn.prepareStatement("DELETE FROM games")) {
-        statement2.executeUpdate();
+        timer.execute(statement2::executeUpdate);
       }
       try (var statement3 = conn.prepareStatement("DELETE FROM users")){
-        statement3.executeUpdate();
+        timer.execute(statement3::executeUpdate);
       }
     } catch (SQLException e) {
       throw new DataAccessException(e.getMessage());
@@ -35,13 +90,13 @@ public class MySqlDataAccess implements DataAccess {
 
   @Override
   public void createUser(UserData user) throws InvalidUsernameException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("createUser"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
               "INSERT INTO users (username, password, email) VALUES (?, ?, ?)")) {
         statement.setString(1, user.username());
         statement.setString(2, user.password());
         statement.setString(3, user.email());
-        statement.executeUpdate();
+        timer.execute(statement::executeUpdate);
       }
     } catch (SQLException | DataAccessException e) {
       throw new InvalidUsernameException("Username already exists");
@@ -50,11 +105,11 @@ public class MySqlDataAccess implements DataAccess {
 
   @Override
   public UserData getUser(String username) throws DatabaseException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("getUser"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
               "SELECT username, password, email FROM users WHERE username = ?")){
         statement.setString(1, username);
-        try (var resultsSet = statement.executeQuery()){
+        try (var resultsSet = timer.execute(statement::executeQuery)){
           if (resultsSet.next()) {
             return new UserData(
                     resultsSet.getString("username"),
@@ -72,15 +127,36 @@ public class MySqlDataAccess implements DataAccess {
     }
   }
 
+  @Override
+  public void updateUser(UserData user) throws DataAccessException {
+    try (var timer = metrics.start("updateUser"); var conn = timer.connect()) {
+      try (var statement = conn.prepareStatement(
+              "UPDATE users SET password = ?, email = ? WHERE username = ?")) {
+        statement.setString(1, user.password());
+        statement.setString(2, user.email());
+        statement.setString(3, user.username());
+        if (timer.execute(statement::executeUpdate) == 0) {
+          throw new InvalidUsernameException("User not found");
+        }
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error updating user: " + e.getMessage());
+    }
+  }
+
   @Override
   public int createGame(GameData game) throws DataAccessException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("createGame"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
-              "INSERT INTO games (game_name, game_state) VALUES (?,?)",
+              "INSERT INTO games (game_name, game_state, status, move_count, snapshot_ply) VALUES (?,?,?,?,?)",
               Statement.RETURN_GENERATED_KEYS)) {
+        int moveCount = game.game().getMoveCount();
         statement.setString(1, game.gameName());
-        statement.setString(2, gson.toJson(game.game()));
-        statement.executeUpdate();
+        statement.setBytes(2, GameStateCodec.encode(game.game()));
+        statement.setString(3, statusOf(game.game()).name());
+        statement.setInt(4, moveCount);
+        statement.setInt(5, moveCount);
+        timer.execute(statement::executeUpdate);
 
         try (var generatedKeys = statement.getGeneratedKeys()){
           if (generatedKeys.next()) {
@@ -95,110 +171,502 @@ public class MySqlDataAccess implements DataAccess {
   }
 
 
+  /**
+   * Inserts every game in one batch and transaction. With
+   * rewriteBatchedStatements on the connection, the driver sends the batch as
+   * multi-row INSERTs rather than one round trip per game.
+   */
+  @Override
+  public List<Integer> createGames(List<GameData> games) throws DataAccessException {
+    if (games.isEmpty()) {
+      return List.of();
+    }
+    try (var timer = metrics.start("createGames"); var conn = timer.connect()) {
+      conn.setAutoCommit(false);
+      try (var statement = conn.prepareStatement(
+              "INSERT INTO games (game_name, game_state, status, move_count, snapshot_ply) VALUES (?,?,?,?,?)",
+              Statement.RETURN_GENERATED_KEYS)) {
+        for (GameData game : games) {
+          int moveCount = game.game().getMoveCount();
+          statement.setString(1, game.gameName());
+          statement.setBytes(2, GameStateCodec.encode(game.game()));
+          statement.setString(3, statusOf(game.game()).name());
+          statement.setInt(4, moveCount);
+          statement.setInt(5, moveCount);
+          statement.addBatch();
+        }
+        timer.execute(statement::executeBatch);
+
+        List<Integer> ids = new ArrayList<>(games.size());
+        try (var generatedKeys = statement.getGeneratedKeys()) {
+          while (generatedKeys.next()) {
+            ids.add(generatedKeys.getInt(1));
+          }
+        }
+        if (ids.size() != games.size()) {
+          throw new DataAccessException("Expected " + games.size() + " game IDs but got " + ids.size());
+        }
+        conn.commit();
+        return ids;
+      } catch (SQLException | DataAccessException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error creating games: " + e.getMessage());
+    }
+  }
+
   @Override
   public GameData getGame(int gameID) throws BadRequestException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("getGame"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
-              "SELECT game_name, game_state, white_username, black_username FROM games WHERE game_id = ?")) {
+              SELECT_GAMES_WITH_TAIL + "WHERE g.game_id = ? ORDER BY m.ply")) {
         statement.setInt(1, gameID);
 
-        try (var resultSet = statement.executeQuery()) {
-          if (resultSet.next()) {
-            ChessGame game = gson.fromJson(resultSet.getString("game_state"), ChessGame.class);
-            return new GameData(
-                    gameID,
-                    resultSet.getString("white_username"),
-                    resultSet.getString("black_username"),
-                    resultSet.getString("game_name"),
-                    game
-            );
+        try (var resultSet = timer.execute(statement::executeQuery)) {
+          List<GameData> games = new ArrayList<>(1);
+          readGames(resultSet, games::add);
+          if (games.isEmpty()) {
+            throw new BadRequestException("Game not found");
           }
-          throw new BadRequestException("Game not found");
+          return games.get(0);
         }
       }
-    } catch (SQLException | DataAccessException e) {
+    } catch (SQLException | IOException | DataAccessException e) {
       throw new BadRequestException("Error accessing game: " + e.getMessage());
     }
   }
 
   @Override
   public List<GameData> listGames() throws DataAccessException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("listGames"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
-              "SELECT game_id, game_name, game_state, white_username, black_username FROM games")) {
+              SELECT_GAMES_WITH_TAIL + "ORDER BY g.game_id, m.ply")) {
 
-        try (var resultSet = statement.executeQuery()) {
+        try (var resultSet = timer.execute(statement::executeQuery)) {
           List<GameData> games = new ArrayList<>();
-          while (resultSet.next()) {
-            ChessGame game = gson.fromJson(resultSet.getString("game_state"), ChessGame.class);
-            games.add(new GameData(
-                    resultSet.getInt("game_id"),
-                    resultSet.getString("white_username"),
-                    resultSet.getString("black_username"),
-                    resultSet.getString("game_name"),
-                    game
-            ));
-          }
+          readGames(resultSet, games::add);
           return games;
         }
       }
-    } catch (SQLException e) {
+    } catch (SQLException | IOException e) {
       throw new DataAccessException("Error listing games: " + e.getMessage());
     }
   }
 
+  /**
+   * Rebuilds games from {@link #SELECT_GAMES_WITH_TAIL} rows ordered by game
+   * and ply: each game's snapshot is decoded once and the moves logged after
+   * it are replayed on top.
+   */
+  private static void readGames(ResultSet resultSet, Consumer<GameData> consumer)
+          throws SQLException, IOException, DataAccessException {
+    GameData current = null;
+    while (resultSet.next()) {
+      int gameID = resultSet.getInt("game_id");
+      if (current == null || current.gameID() != gameID) {
+        if (current != null) {
+          consumer.accept(current);
+        }
+        current = new GameData(
+                gameID,
+                resultSet.getString("white_username"),
+                resultSet.getString("black_username"),
+                resultSet.getString("game_name"),
+                GameStateCodec.decode(stateOf(resultSet)),
+                resultSet.getInt("version")
+        );
+      }
+      int packedMove = resultSet.getInt("packed_move");
+      if (!resultSet.wasNull()) {
+        try {
+          current.game().makeMove(PackedMove.unpack(packedMove));
+        } catch (InvalidMoveException e) {
+          throw new DataAccessException("Move log for game " + gameID + " does not match its snapshot");
+        }
+      }
+    }
+    if (current != null) {
+      consumer.accept(current);
+    }
+  }
+
+  private static byte[] stateOf(ResultSet resultSet) throws SQLException, IOException, DataAccessException {
+    byte[] state = resultSet.getBytes("game_state");
+    if (state != null) {
+      return state;
+    }
+    byte[] archived = resultSet.getBytes("archived_state");
+    if (archived == null) {
+      throw new DataAccessException("Game " + resultSet.getInt("game_id") + " has no stored state");
+    }
+    return GameArchiver.decompress(archived);
+  }
+
   @Override
-  public void updateGame(GameData game) throws BadRequestException {
-    try (var conn = DatabaseManager.getConnection()) {
-      try (var statement = conn.prepareStatement(
-              "UPDATE games SET game_state = ?, white_username = ?, black_username = ? WHERE game_id = ?")) {
-        statement.setString(1, gson.toJson(game.game()));
-        statement.setString(2, game.whiteUsername());
-        statement.setString(3, game.blackUsername());
-        statement.setInt(4, game.gameID());
-        statement.executeUpdate();
-
-        int rowsAffected = statement.executeUpdate();
+  public void updateGame(GameData game) throws DataAccessException {
+    try (var timer = metrics.start("updateGame"); var conn = timer.connect()) {
+      try (var statement = conn.prepareStatement(UPDATE_GAME)) {
+        bindUpdate(statement, game);
+
+        int rowsAffected = timer.execute(statement::executeUpdate);
         if (rowsAffected == 0) {
-          throw new BadRequestException("Game not found");
+          throw missingOrConflict(conn, game.gameID());
         }
       }
-    } catch (SQLException | DataAccessException e) {
+    } catch (SQLException e) {
       throw new BadRequestException("Error updating game: " + e.getMessage());
     }
   }
 
+  /**
+   * Works out why a versioned update matched no rows.
+   */
+  private static DataAccessException missingOrConflict(Connection conn, int gameID) throws SQLException {
+    try (var statement = conn.prepareStatement("SELECT 1 FROM games WHERE game_id = ?")) {
+      statement.setInt(1, gameID);
+      try (var resultSet = statement.executeQuery()) {
+        if (resultSet.next()) {
+          return new GameConflictException("Error: game was changed by another update", gameID);
+        }
+        return new BadRequestException("Game not found");
+      }
+    }
+  }
+
+  /**
+   * Writes every game as a fresh snapshot in one JDBC batch and transaction.
+   * Games whose version check fails are left out and reported afterwards.
+   */
+  @Override
+  public void updateGames(Collection<GameData> games) throws DataAccessException {
+    if (games.isEmpty()) {
+      return;
+    }
+    List<Integer> conflicts = new ArrayList<>();
+    try (var timer = metrics.start("updateGames"); var conn = timer.connect()) {
+      conn.setAutoCommit(false);
+      try (var statement = conn.prepareStatement(UPDATE_GAME)) {
+        List<GameData> batch = new ArrayList<>(games);
+        for (GameData game : batch) {
+          bindUpdate(statement, game);
+          statement.addBatch();
+        }
+        int[] counts = timer.execute(statement::executeBatch);
+        for (int i = 0; i < counts.length; i++) {
+          if (counts[i] == 0 && missingOrConflict(conn, batch.get(i).gameID()) instanceof GameConflictException) {
+            conflicts.add(batch.get(i).gameID());
+          }
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error updating games: " + e.getMessage());
+    }
+    if (!conflicts.isEmpty()) {
+      throw new GameConflictException("Games changed before they could be saved", conflicts);
+    }
+  }
+
+  private static void bindUpdate(PreparedStatement statement, GameData game) throws SQLException {
+    int moveCount = game.game().getMoveCount();
+    statement.setBytes(1, GameStateCodec.encode(game.game()));
+    statement.setString(2, game.whiteUsername());
+    statement.setString(3, game.blackUsername());
+    statement.setString(4, statusOf(game.game()).name());
+    statement.setInt(5, moveCount);
+    statement.setInt(6, moveCount);
+    statement.setInt(7, moveCount);
+    statement.setInt(8, game.gameID());
+    statement.setInt(9, game.version());
+  }
+
+  /**
+   * Logs the game's last move as one game_moves row and bumps the summary
+   * columns. The full game_state is only rewritten every
+   * {@link #SNAPSHOT_INTERVAL} moves.
+   */
+  @Override
+  public void appendMove(GameData game) throws DataAccessException {
+    ChessGame chessGame = game.game();
+    int ply = chessGame.getMoveCount();
+    if (ply == 0) {
+      throw new BadRequestException("Game has no move to append");
+    }
+    ChessMove move = chessGame.getMoveHistory().get(ply - 1);
+    boolean snapshot = ply % SNAPSHOT_INTERVAL == 0;
+
+    try (var timer = metrics.start("appendMove"); var conn = timer.connect()) {
+      conn.setAutoCommit(false);
+      try {
+        String sql = snapshot
+                ? "UPDATE games SET status = ?, move_count = ?, last_move_at = CURRENT_TIMESTAMP(3), " +
+                        "game_state = ?, snapshot_ply = ?, version = version + 1 WHERE game_id = ? AND version = ?"
+                : "UPDATE games SET status = ?, move_count = ?, last_move_at = CURRENT_TIMESTAMP(3), " +
+                        "version = version + 1 WHERE game_id = ? AND version = ?";
+        try (var update = conn.prepareStatement(sql)) {
+          int index = 1;
+          update.setString(index++, statusOf(chessGame).name());
+          update.setInt(index++, ply);
+          if (snapshot) {
+            update.setBytes(index++, GameStateCodec.encode(chessGame));
+            update.setInt(index++, ply);
+          }
+          update.setInt(index++, game.gameID());
+          update.setInt(index, game.version());
+          if (timer.execute(update::executeUpdate) == 0) {
+            throw missingOrConflict(conn, game.gameID());
+          }
+        }
+        // Only reached by the writer that won the version check, so the ply is free
+        try (var insert = conn.prepareStatement(
+                "INSERT INTO game_moves (game_id, ply, packed_move) VALUES (?, ?, ?)")) {
+          insert.setInt(1, game.gameID());
+          insert.setInt(2, ply);
+          insert.setInt(3, PackedMove.pack(move));
+          timer.execute(insert::executeUpdate);
+        }
+        conn.commit();
+      } catch (SQLException | DataAccessException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      throw new BadRequestException("Error saving move: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Moves finished games not written to since {@code finishedBefore} into
+   * games_archive, oldest IDs first. Each game's state, with its move log
+   * replayed in, is compressed into one archive row, and its game_state and
+   * game_moves rows are dropped from the hot tables. The summary columns and
+   * version stay as they were, so the game still lists and loads the same.
+   * <p>
+   * A game updated while it is being archived is left for the next run.
+   *
+   * @return how many games were archived
+   */
+  public int archiveFinishedGames(Timestamp finishedBefore, int limit) throws DataAccessException {
+    try (var timer = metrics.start("archiveFinishedGames"); var conn = timer.connect()) {
+      List<Integer> candidates = new ArrayList<>();
+      try (var statement = conn.prepareStatement(
+              "SELECT game_id FROM games WHERE status = 'FINISHED' AND game_state IS NOT NULL " +
+                      "AND updated_at < ? ORDER BY game_id LIMIT ?")) {
+        statement.setTimestamp(1, finishedBefore);
+        statement.setInt(2, limit);
+        try (var resultSet = timer.execute(statement::executeQuery)) {
+          while (resultSet.next()) {
+            candidates.add(resultSet.getInt(1));
+          }
+        }
+      }
+
+      int archived = 0;
+      for (int gameID : candidates) {
+        if (archiveGame(conn, timer, gameID)) {
+          archived++;
+        }
+      }
+      return archived;
+    } catch (SQLException | IOException e) {
+      throw new DataAccessException("Error archiving games: " + e.getMessage());
+    }
+  }
+
+  private static boolean archiveGame(Connection conn, StatementMetrics.Timer timer, int gameID)
+          throws SQLException, IOException, DataAccessException {
+    List<GameData> games = new ArrayList<>(1);
+    try (var statement = conn.prepareStatement(
+            SELECT_GAMES_WITH_TAIL + "WHERE g.game_id = ? ORDER BY m.ply")) {
+      statement.setInt(1, gameID);
+      try (var resultSet = timer.execute(statement::executeQuery)) {
+        readGames(resultSet, games::add);
+      }
+    }
+    if (games.isEmpty()) {
+      return false;
+    }
+    GameData game = games.get(0);
+    byte[] archivedState = GameArchiver.compress(GameStateCodec.encode(game.game()));
+
+    conn.setAutoCommit(false);
+    try {
+      try (var update = conn.prepareStatement(
+              "UPDATE games SET game_state = NULL, snapshot_ply = move_count " +
+                      "WHERE game_id = ? AND version = ? AND game_state IS NOT NULL")) {
+        update.setInt(1, gameID);
+        update.setInt(2, game.version());
+        if (timer.execute(update::executeUpdate) == 0) {
+          conn.rollback();
+          return false;
+        }
+      }
+      // A game written again after being archived has an old row here to replace
+      try (var insert = conn.prepareStatement(
+              "INSERT INTO games_archive (game_id, archived_state) VALUES (?, ?) " +
+                      "ON DUPLICATE KEY UPDATE archived_state = VALUES(archived_state), " +
+                      "archived_at = CURRENT_TIMESTAMP(3)")) {
+        insert.setInt(1, gameID);
+        insert.setBytes(2, archivedState);
+        timer.execute(insert::executeUpdate);
+      }
+      try (var delete = conn.prepareStatement("DELETE FROM game_moves WHERE game_id = ?")) {
+        delete.setInt(1, gameID);
+        timer.execute(delete::executeUpdate);
+      }
+      conn.commit();
+      return true;
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(true);
+    }
+  }
+
+  @Override
+  public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+    List<GameSummary> summaries = new ArrayList<>();
+    try {
+      readGameSummaries("listGameSummaries", query, false, summaries::add);
+    } catch (SQLException | IOException e) {
+      throw new DataAccessException("Error listing games: " + e.getMessage());
+    }
+    return summaries;
+  }
+
+  @Override
+  public void streamGameSummaries(GameQuery query, SummaryConsumer consumer) throws DataAccessException {
+    try {
+      readGameSummaries("streamGameSummaries", query, true, consumer);
+    } catch (SQLException | IOException e) {
+      throw new DataAccessException("Error streaming games: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Runs the summary query and feeds each row to the consumer. Streamed
+   * rows come off the connection one at a time rather than being buffered
+   * by the driver first, which holds the connection until the consumer is
+   * through with the last one.
+   */
+  private void readGameSummaries(String operation, GameQuery query, boolean stream, SummaryConsumer consumer)
+          throws SQLException, IOException, DataAccessException {
+    // Only narrow columns are read, so the game_state blobs are never touched
+    var sql = new StringBuilder(
+            "SELECT game_id, game_name, white_username, black_username, status, last_move_at FROM games " +
+                    "WHERE game_id > ?");
+    List<Object> parameters = new ArrayList<>();
+    parameters.add(query.afterGameID());
+    if (query.status() != null) {
+      sql.append(" AND status = ?");
+      parameters.add(query.status().name());
+    }
+    if (query.openSeatOnly()) {
+      sql.append(" AND (white_username IS NULL OR black_username IS NULL)");
+    }
+    if (query.player() != null) {
+      sql.append(" AND (white_username = ? OR black_username = ?)");
+      parameters.add(query.player());
+      parameters.add(query.player());
+    }
+    sql.append(" ORDER BY game_id LIMIT ?");
+    parameters.add(query.limit());
+
+    try (var timer = metrics.start(operation); var conn = timer.connect()) {
+      try (var statement = conn.prepareStatement(sql.toString(),
+              ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+        if (stream) {
+          // Tells Connector/J to stream rows instead of buffering the whole result
+          statement.setFetchSize(Integer.MIN_VALUE);
+        }
+        for (int i = 0; i < parameters.size(); i++) {
+          statement.setObject(i + 1, parameters.get(i));
+        }
+        try (var resultSet = timer.execute(statement::executeQuery)) {
+          while (resultSet.next()) {
+            Timestamp lastMove = resultSet.getTimestamp("last_move_at");
+            consumer.accept(new GameSummary(
+                    resultSet.getInt("game_id"),
+                    resultSet.getString("game_name"),
+                    resultSet.getString("white_username"),
+                    resultSet.getString("black_username"),
+                    GameSummary.Status.valueOf(resultSet.getString("status")),
+                    (lastMove == null) ? null : lastMove.getTime()
+            ));
+          }
+        }
+      }
+    }
+  }
+
+  private static GameSummary.Status statusOf(ChessGame game) {
+    return game.isGameOver() ? GameSummary.Status.FINISHED : GameSummary.Status.ACTIVE;
+  }
+
   @Override
   public void createAuth(AuthData auth) throws DataAccessException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("createAuth"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
-              "INSERT INTO auth_tokens (auth_token, username) VALUES (?,?)")) {
+              "INSERT INTO auth_tokens (auth_token, username, issued_at, last_used_at, expires_at) " +
+                      "VALUES (?,?,?,?,?)")) {
+        long now = System.currentTimeMillis();
         statement.setString(1, auth.authToken());
         statement.setString(2, auth.username());
-        statement.executeUpdate();
+        statement.setTimestamp(3, new Timestamp(now));
+        statement.setTimestamp(4, new Timestamp(now));
+        statement.setTimestamp(5, new Timestamp(authExpiry.expiresAt(now, now)));
+        timer.execute(statement::executeUpdate);
       }
     } catch (SQLException e) {
         throw new DataAccessException(e.getMessage());
     }
   }
 
+  /**
+   * Accepts a token that hasn't expired, and slides its expiry forward if
+   * its recorded last use is older than the touch interval.
+   */
   @Override
   public AuthData getAuth(String authToken) throws UnauthorizedException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("getAuth"); var conn = timer.connect()) {
+      long now = System.currentTimeMillis();
+      AuthData auth;
+      long issuedAt;
+      long lastUsedAt;
       try (var statement = conn.prepareStatement(
-              "SELECT auth_token, username FROM auth_tokens WHERE auth_token = ?")) {
+              "SELECT auth_token, username, issued_at, last_used_at FROM auth_tokens " +
+                      "WHERE auth_token = ? AND expires_at > ?")) {
         statement.setString(1, authToken);
+        statement.setTimestamp(2, new Timestamp(now));
 
-        try (var resultSet = statement.executeQuery()) {
-          if (resultSet.next()) {
-            return new AuthData(
-                    resultSet.getString("auth_token"),
-                    resultSet.getString("username")
-            );
+        try (var resultSet = timer.execute(statement::executeQuery)) {
+          if (!resultSet.next()) {
+            throw new UnauthorizedException("Invalid auth token");
           }
-          throw new UnauthorizedException("Invalid auth token");
+          auth = new AuthData(
+                  resultSet.getString("auth_token"),
+                  resultSet.getString("username")
+          );
+          issuedAt = resultSet.getTimestamp("issued_at").getTime();
+          lastUsedAt = resultSet.getTimestamp("last_used_at").getTime();
         }
       }
+      if (authExpiry.needsTouch(lastUsedAt, now)) {
+        try (var touch = conn.prepareStatement(
+                "UPDATE auth_tokens SET last_used_at = ?, expires_at = ? WHERE auth_token = ?")) {
+          touch.setTimestamp(1, new Timestamp(now));
+          touch.setTimestamp(2, new Timestamp(authExpiry.expiresAt(issuedAt, now)));
+          touch.setString(3, authToken);
+          timer.execute(touch::executeUpdate);
+        }
+      }
+      return auth;
     } catch (SQLException | DataAccessException e) {
       throw new UnauthorizedException("Error validating auth token: " + e.getMessage());
     }
@@ -206,12 +674,12 @@ public class MySqlDataAccess implements DataAccess {
 
   @Override
   public void deleteAuth(String authToken) throws UnauthorizedException {
-    try (var conn = DatabaseManager.getConnection()) {
+    try (var timer = metrics.start("deleteAuth"); var conn = timer.connect()) {
       try (var statement = conn.prepareStatement(
               "DELETE FROM auth_tokens WHERE auth_token = ?")) {
         statement.setString(1, authToken);
 
-        int rowsAffected = statement.executeUpdate();
+        int rowsAffected = timer.execute(statement::executeUpdate);
         if (rowsAffected == 0) {
           throw new UnauthorizedException("Invalid auth token");
         }
@@ -220,4 +688,23 @@ public class MySqlDataAccess implements DataAccess {
       throw new UnauthorizedException("Error deleting auth token: " + e.getMessage());
     }
   }
+
+  /**
+   * Deletes the tokens that expired first, using idx_auth_tokens_expires.
+   * Each call is one short statement, so a sweep in small batches never
+   * holds row locks for long.
+   */
+  @Override
+  public int deleteExpiredAuths(int limit) throws DataAccessException {
+    try (var timer = metrics.start("deleteExpiredAuths"); var conn = timer.connect()) {
+      try (var statement = conn.prepareStatement(
+              "DELETE FROM auth_tokens WHERE expires_at <= ? ORDER BY expires_at LIMIT ?")) {
+        statement.setTimestamp(1, new Timestamp(System.currentTimeMillis()));
+        statement.setInt(2, limit);
+        return timer.execute(statement::executeUpdate);
+      }
+    } catch (SQLException e) {
+      throw new DataAccessException("Error deleting expired auth tokens: " + e.getMessage());
+    }
+  }
 }
@@ -0,0 +1,10 @@
+package dataaccess;
+
+/**
+ * The server is too busy to take the request now; the client should retry shortly.
+ */
+public class ServerBusyException extends DataAccessException {
+  public ServerBusyException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,305 @@
+package dataaccess;
+
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads games across several DataAccess backends. Users and auth tokens all
+ * live on one home shard.
+ * <p>
+ * The shard is encoded in the game ID: local game {@code l} on shard {@code s}
+ * of {@code n} is game {@code (l - 1) * n + s + 1}, so every ID routes without
+ * a lookup and each shard's games keep their order among everyone's. The
+ * number of shards therefore can't change once games exist.
+ * <p>
+ * Listing asks every shard at once and merges the answers in ID order.
+ */
+public class ShardedDataAccess implements DataAccess, AutoCloseable {
+
+  private final List<DataAccess> shards;
+  private final DataAccess home;
+  private final ExecutorService scatter;
+  private final AtomicInteger nextShard = new AtomicInteger();
+
+  /**
+   * @param homeShard index of the shard that keeps users and auth tokens
+   */
+  public ShardedDataAccess(List<DataAccess> shards, int homeShard) {
+    if (shards.isEmpty() || homeShard < 0 || homeShard >= shards.size()) {
+      throw new IllegalArgumentException("Invalid shard layout");
+    }
+    this.shards = List.copyOf(shards);
+    this.home = shards.get(homeShard);
+    this.scatter = Executors.newFixedThreadPool(shards.size(), runnable -> {
+      Thread thread = new Thread(runnable, "shard-scatter");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private int shardOf(int gameID) {
+    return (gameID - 1) % shards.size();
+  }
+
+  private int localID(int gameID) {
+    return (gameID - 1) / shards.size() + 1;
+  }
+
+  private int globalID(int shard, int localID) {
+    return (localID - 1) * shards.size() + shard + 1;
+  }
+
+  /**
+   * The largest local ID on the shard whose global ID is at most {@code gameID}
+   */
+  private int localAfter(int shard, int gameID) {
+    return (gameID > shard) ? (gameID - 1 - shard) / shards.size() + 1 : 0;
+  }
+
+  private static GameData withID(GameData game, int gameID) {
+    return new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(), game.game(),
+            game.version());
+  }
+
+  private GameData toLocal(GameData game) {
+    return withID(game, localID(game.gameID()));
+  }
+
+  private DataAccess shardFor(int gameID) throws BadRequestException {
+    if (gameID < 1) {
+      throw new BadRequestException("Error: Game not found");
+    }
+    return shards.get(shardOf(gameID));
+  }
+
+  @Override
+  public void clear() throws DataAccessException {
+    gather(shards.stream().<Callable<Void>>map(shard -> () -> {
+      shard.clear();
+      return null;
+    }).toList());
+    // Start over on the first shard, so IDs restart at 1 like they do on a single backend
+    nextShard.set(0);
+  }
+
+  @Override
+  public void createUser(UserData user) throws InvalidUsernameException, DatabaseException {
+    home.createUser(user);
+  }
+
+  @Override
+  public UserData getUser(String username) throws DatabaseException {
+    return home.getUser(username);
+  }
+
+  @Override
+  public void updateUser(UserData user) throws DataAccessException {
+    home.updateUser(user);
+  }
+
+  @Override
+  public int createGame(GameData game) throws DataAccessException {
+    int shard = pickShard();
+    return globalID(shard, shards.get(shard).createGame(game));
+  }
+
+  /**
+   * The whole batch goes to one shard, so it is still created all or nothing.
+   */
+  @Override
+  public List<Integer> createGames(List<GameData> games) throws DataAccessException {
+    int shard = pickShard();
+    List<Integer> localIDs = shards.get(shard).createGames(games);
+    List<Integer> ids = new ArrayList<>(localIDs.size());
+    for (int localID : localIDs) {
+      ids.add(globalID(shard, localID));
+    }
+    return ids;
+  }
+
+  private int pickShard() {
+    return Math.floorMod(nextShard.getAndIncrement(), shards.size());
+  }
+
+  @Override
+  public GameData getGame(int gameID) throws BadRequestException, DatabaseException {
+    return withID(shardFor(gameID).getGame(localID(gameID)), gameID);
+  }
+
+  @Override
+  public List<GameData> listGames() throws DataAccessException {
+    List<Callable<List<GameData>>> calls = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      calls.add(() -> {
+        List<GameData> games = shards.get(shard).listGames();
+        List<GameData> global = new ArrayList<>(games.size());
+        for (GameData game : games) {
+          global.add(withID(game, globalID(shard, game.gameID())));
+        }
+        return global;
+      });
+    }
+    List<GameData> merged = new ArrayList<>();
+    for (List<GameData> games : gather(calls)) {
+      merged.addAll(games);
+    }
+    merged.sort(Comparator.comparingInt(GameData::gameID));
+    return merged;
+  }
+
+  @Override
+  public void updateGame(GameData game) throws DataAccessException {
+    shardFor(game.gameID()).updateGame(toLocal(game));
+  }
+
+  @Override
+  public void updateGames(Collection<GameData> games) throws DataAccessException {
+    List<List<GameData>> byShard = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      byShard.add(new ArrayList<>());
+    }
+    for (GameData game : games) {
+      if (game.gameID() > 0) {
+        byShard.get(shardOf(game.gameID())).add(toLocal(game));
+      }
+    }
+
+    List<Callable<List<Integer>>> calls = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      List<GameData> batch = byShard.get(shard);
+      if (batch.isEmpty()) {
+        continue;
+      }
+      calls.add(() -> {
+        try {
+          shards.get(shard).updateGames(batch);
+          return List.of();
+        } catch (GameConflictException e) {
+          return e.getGameIDs().stream().map(localID -> globalID(shard, localID)).toList();
+        }
+      });
+    }
+    List<Integer> conflicts = new ArrayList<>();
+    for (List<Integer> shardConflicts : gather(calls)) {
+      conflicts.addAll(shardConflicts);
+    }
+    if (!conflicts.isEmpty()) {
+      throw new GameConflictException("Games changed before they could be saved", conflicts);
+    }
+  }
+
+  @Override
+  public void appendMove(GameData game) throws DataAccessException {
+    shardFor(game.gameID()).appendMove(toLocal(game));
+  }
+
+  /**
+   * Asks every shard for a full page past the same point, then keeps the
+   * lowest IDs of the merged answers.
+   */
+  @Override
+  public List<GameSummary> listGameSummaries(GameQuery query) throws DataAccessException {
+    List<Callable<List<GameSummary>>> calls = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      GameQuery local = new GameQuery(localAfter(shard, query.afterGameID()), query.limit(),
+              query.openSeatOnly(), query.player(), query.status());
+      calls.add(() -> shards.get(shard).listGameSummaries(local).stream()
+              .map(summary -> new GameSummary(globalID(shard, summary.gameID()), summary.gameName(),
+                      summary.whiteUsername(), summary.blackUsername(), summary.status(), summary.lastMoveTime()))
+              .toList());
+    }
+    List<GameSummary> merged = new ArrayList<>();
+    for (List<GameSummary> summaries : gather(calls)) {
+      merged.addAll(summaries);
+    }
+    return merged.stream()
+            .sorted(Comparator.comparingInt(GameSummary::gameID))
+            .limit(query.limit())
+            .toList();
+  }
+
+  @Override
+  public void createAuth(AuthData auth) throws DataAccessException {
+    home.createAuth(auth);
+  }
+
+  @Override
+  public AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    return home.getAuth(authToken);
+  }
+
+  @Override
+  public void deleteAuth(String authToken) throws UnauthorizedException, DatabaseException {
+    home.deleteAuth(authToken);
+  }
+
+  @Override
+  public int deleteExpiredAuths(int limit) throws DataAccessException {
+    return home.deleteExpiredAuths(limit);
+  }
+
+  /**
+   * Runs the calls in parallel and waits for all of them. The first failure
+   * is rethrown once every call has finished.
+   */
+  private <T> List<T> gather(List<Callable<T>> calls) throws DataAccessException {
+    List<Future<T>> futures = new ArrayList<>(calls.size());
+    for (Callable<T> call : calls) {
+      futures.add(scatter.submit(call));
+    }
+    List<T> results = new ArrayList<>(calls.size());
+    DataAccessException failure = null;
+    for (Future<T> future : futures) {
+      try {
+        results.add(future.get());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new DataAccessException("Interrupted waiting for shards");
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = (e.getCause() instanceof DataAccessException cause) ? cause
+                  : new DataAccessException("Shard failed: " + e.getCause().getMessage());
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+    return results;
+  }
+
+  /**
+   * Stops the scatter threads and closes any shards that hold resources.
+   */
+  @Override
+  public void close() throws DataAccessException {
+    scatter.shutdown();
+    for (DataAccess shard : shards) {
+      if (shard instanceof AutoCloseable closeable) {
+        try {
+          closeable.close();
+        } catch (DataAccessException e) {
+          throw e;
+        } catch (Exception e) {
+          throw new DatabaseException("Unable to close shard: " + e.getMessage());
+        }
+      }
+    }
+  }
+}
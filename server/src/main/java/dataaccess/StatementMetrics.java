@@ -0,0 +1,125 @@
+package dataaccess;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms for each MySqlDataAccess operation. Every call is split
+ * into three parts: waiting for a pooled connection, time spent inside JDBC
+ * execute calls, and the rest, which is mostly reading rows and decoding game
+ * state. Calls slower than the threshold are logged with that split, so a
+ * slow lobby can be told apart from a starved pool or a slow query.
+ */
+public class StatementMetrics {
+  public static final long DEFAULT_SLOW_MILLIS = 250;
+
+  @FunctionalInterface
+  interface SqlCall<T> {
+    T run() throws SQLException;
+  }
+
+  public record OperationStats(LatencyHistogram.Snapshot total, LatencyHistogram.Snapshot acquire,
+                               LatencyHistogram.Snapshot execute, LatencyHistogram.Snapshot mapping) {
+  }
+
+  private static final class Operation {
+    final LatencyHistogram total = new LatencyHistogram();
+    final LatencyHistogram acquire = new LatencyHistogram();
+    final LatencyHistogram execute = new LatencyHistogram();
+    final LatencyHistogram mapping = new LatencyHistogram();
+  }
+
+  private final long slowNanos;
+  private final Map<String, Operation> operations = new ConcurrentHashMap<>();
+  private final LongAdder slowCalls = new LongAdder();
+
+  /**
+   * @param slowThresholdMillis calls taking at least this long are logged
+   */
+  public StatementMetrics(long slowThresholdMillis) {
+    if (slowThresholdMillis < 0) {
+      throw new IllegalArgumentException("slowThresholdMillis must not be negative");
+    }
+    this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+  }
+
+  /**
+   * Starts timing one call. Close the timer when the call is done, whether
+   * or not it succeeded.
+   */
+  Timer start(String operation) {
+    Operation stats = operations.get(operation);
+    if (stats == null) {
+      stats = operations.computeIfAbsent(operation, name -> new Operation());
+    }
+    return new Timer(operation, stats);
+  }
+
+  /**
+   * @return every operation called so far, by name
+   */
+  public Map<String, OperationStats> snapshot() {
+    Map<String, OperationStats> result = new TreeMap<>();
+    operations.forEach((name, stats) -> result.put(name, new OperationStats(stats.total.snapshot(),
+            stats.acquire.snapshot(), stats.execute.snapshot(), stats.mapping.snapshot())));
+    return result;
+  }
+
+  public long slowCalls() {
+    return slowCalls.sum();
+  }
+
+  /**
+   * Times one call on the thread making it.
+   */
+  final class Timer implements AutoCloseable {
+    private final String name;
+    private final Operation operation;
+    private final long startNanos = System.nanoTime();
+    private long acquireNanos;
+    private long executeNanos;
+
+    private Timer(String name, Operation operation) {
+      this.name = name;
+      this.operation = operation;
+    }
+
+    Connection connect() throws DataAccessException {
+      Connection conn = DatabaseManager.getConnection();
+      acquireNanos = System.nanoTime() - startNanos;
+      return conn;
+    }
+
+    /**
+     * Runs a JDBC execute call, counting its time as execution.
+     */
+    <T> T execute(SqlCall<T> call) throws SQLException {
+      long start = System.nanoTime();
+      try {
+        return call.run();
+      } finally {
+        executeNanos += System.nanoTime() - start;
+      }
+    }
+
+    @Override
+    public void close() {
+      long totalNanos = System.nanoTime() - startNanos;
+      long mappingNanos = Math.max(0, totalNanos - acquireNanos - executeNanos);
+      operation.total.record(totalNanos);
+      operation.acquire.record(acquireNanos);
+      operation.execute.record(executeNanos);
+      operation.mapping.record(mappingNanos);
+      if (totalNanos >= slowNanos) {
+        slowCalls.increment();
+        System.err.printf("Slow MySQL call %s: %.1f ms (connection %.1f ms, execute %.1f ms, mapping %.1f ms)%n",
+                name, totalNanos / 1e6, acquireNanos / 1e6, executeNanos / 1e6, mappingNanos / 1e6);
+      }
+    }
+  }
+}
@@ -0,0 +1,352 @@
+package dataaccess;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Numbered log files of checksummed records, written by one thread with group
+ * commit: whatever callers appended while the last batch was being synced is
+ * written and synced together, so many concurrent writers share each fsync.
+ * <p>
+ * {@link #append} returns a future that completes once the records are on
+ * disk. A commit delay makes the writer wait a little before each batch to
+ * gather more records, trading latency for fewer syncs.
+ * <p>
+ * A failed write or sync fails the log for good: the partial batch is cut
+ * off the end of the file where possible, and every later append fails
+ * without being written. Nothing can then land after a torn record, where
+ * replay would throw it away even though its caller was told it was synced.
+ */
+public class WriteAheadLog implements AutoCloseable {
+
+  public record Stats(long records, long batches, boolean failed) {
+  }
+
+  @FunctionalInterface
+  interface RecordConsumer {
+    void accept(byte[] record) throws IOException;
+  }
+
+  private static final int HEADER_BYTES = 8;
+  private static final String PREFIX = "wal-";
+  private static final String SUFFIX = ".log";
+  private static final int STOP = -1;
+
+  /**
+   * Records to write, or a request to switch to log file {@code rotateTo}
+   */
+  private record Pending(List<byte[]> records, int rotateTo, CompletableFuture<Void> done) {
+  }
+
+  private final Path directory;
+  private final long commitDelayMillis;
+  private final int maxBatch;
+  private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+  private final Thread writer;
+  private final LongAdder records = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private FileChannel channel;
+  private int segment;
+  private volatile boolean closed = false;
+  private volatile IOException failure;
+
+  /**
+   * @param segment           number of the log file to append to
+   * @param commitDelayMillis how long the writer waits for more records before each batch
+   * @param maxBatch          appends written and synced together at most
+   */
+  WriteAheadLog(Path directory, int segment, long commitDelayMillis, int maxBatch) throws IOException {
+    this.directory = directory;
+    this.commitDelayMillis = commitDelayMillis;
+    this.maxBatch = maxBatch;
+    this.segment = segment;
+    this.channel = open(directory, segment);
+    this.writer = new Thread(this::run, "write-ahead-log");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  private static FileChannel open(Path directory, int segment) throws IOException {
+    FileChannel channel = FileChannel.open(path(directory, segment), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    return channel;
+  }
+
+  static Path path(Path directory, int segment) {
+    return directory.resolve(String.format("%s%08d%s", PREFIX, segment, SUFFIX));
+  }
+
+  CompletableFuture<Void> append(List<byte[]> newRecords) {
+    return enqueue(new Pending(newRecords, 0, new CompletableFuture<>()));
+  }
+
+  /**
+   * Moves on to the next log file. Records appended before this call end up
+   * in earlier files and those appended after it in the new one. Callers
+   * must not rotate concurrently with each other.
+   *
+   * @return a future for the new file's number, completing once earlier files are synced
+   */
+  CompletableFuture<Integer> rotate() {
+    int next = segment + 1;
+    segment = next;
+    return enqueue(new Pending(null, next, new CompletableFuture<>())).thenApply(ignored -> next);
+  }
+
+  private CompletableFuture<Void> enqueue(Pending pending) {
+    if (closed) {
+      pending.done().completeExceptionally(new IOException("Log is closed"));
+    } else if (failure != null) {
+      pending.done().completeExceptionally(failed());
+    } else {
+      queue.add(pending);
+    }
+    return pending.done();
+  }
+
+  private void run() {
+    List<Pending> batch = new ArrayList<>();
+    while (true) {
+      try {
+        batch.add(queue.take());
+        if (commitDelayMillis > 0) {
+          Thread.sleep(commitDelayMillis);
+        }
+      } catch (InterruptedException e) {
+        return;
+      }
+      queue.drainTo(batch, maxBatch - 1);
+      boolean stop = write(batch);
+      batch.clear();
+      if (stop) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Writes and syncs the batch, switching files where it asks to, then
+   * completes every future in it. Returns whether the log was told to stop.
+   */
+  private boolean write(List<Pending> batch) {
+    boolean stop = false;
+    for (Pending pending : batch) {
+      stop |= pending.records() == null && pending.rotateTo() == STOP;
+    }
+    if (failure != null) {
+      for (Pending pending : batch) {
+        pending.done().completeExceptionally(failed());
+      }
+      return stop;
+    }
+    try {
+      List<Pending> unsynced = new ArrayList<>();
+      List<byte[]> pendingRecords = new ArrayList<>();
+      for (Pending pending : batch) {
+        if (pending.records() != null) {
+          pendingRecords.addAll(pending.records());
+          unsynced.add(pending);
+          continue;
+        }
+        sync(pendingRecords);
+        pendingRecords.clear();
+        // On disk now, whatever happens to the rest of the batch
+        for (Pending synced : unsynced) {
+          synced.done().complete(null);
+        }
+        unsynced.clear();
+        if (pending.rotateTo() != STOP) {
+          channel.close();
+          channel = open(directory, pending.rotateTo());
+        }
+        pending.done().complete(null);
+      }
+      sync(pendingRecords);
+      batches.increment();
+      for (Pending pending : unsynced) {
+        pending.done().complete(null);
+      }
+    } catch (IOException e) {
+      failure = e;
+      System.err.println("Write-ahead log failed, refusing further writes: " + e.getMessage());
+      // Futures already completed above keep their result
+      for (Pending pending : batch) {
+        pending.done().completeExceptionally(e);
+      }
+    }
+    return stop;
+  }
+
+  private void sync(List<byte[]> pendingRecords) throws IOException {
+    if (pendingRecords.isEmpty()) {
+      return;
+    }
+    int size = 0;
+    for (byte[] record : pendingRecords) {
+      size += HEADER_BYTES + record.length;
+    }
+    ByteBuffer buffer = ByteBuffer.allocate(size);
+    for (byte[] record : pendingRecords) {
+      buffer.putInt(record.length).putInt(checksum(record)).put(record);
+    }
+    buffer.flip();
+    long start = channel.position();
+    try {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+      channel.force(false);
+    } catch (IOException e) {
+      try {
+        // So the file ends at the last whole batch rather than partway through this one
+        channel.truncate(start);
+        channel.force(false);
+      } catch (IOException truncateFailure) {
+        e.addSuppressed(truncateFailure);
+      }
+      throw e;
+    }
+    records.add(pendingRecords.size());
+  }
+
+  private IOException failed() {
+    return new IOException("Log failed earlier: " + failure.getMessage());
+  }
+
+  /**
+   * @return whether a write has failed, after which the log accepts nothing more
+   */
+  boolean isFailed() {
+    return failure != null;
+  }
+
+  public Stats stats() {
+    return new Stats(records.sum(), batches.sum(), failure != null);
+  }
+
+  /**
+   * Writes out everything appended so far and closes the file.
+   */
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    queue.add(new Pending(null, STOP, new CompletableFuture<>()));
+    try {
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    // Anything that slipped in behind the stop request was never written
+    for (Pending pending : queue) {
+      pending.done().completeExceptionally(new IOException("Log is closed"));
+    }
+    channel.close();
+  }
+
+  /**
+   * Feeds every record in log files numbered {@code fromSegment} and up to
+   * the consumer, oldest first. A torn record at the end of the newest file
+   * is cut off; anywhere else it means the log is damaged.
+   *
+   * @return the number of the newest log file, or {@code fromSegment} if there are none
+   */
+  static int replay(Path directory, int fromSegment, RecordConsumer consumer) throws IOException {
+    List<Integer> segments = segments(directory);
+    segments.removeIf(segment -> segment < fromSegment);
+    int last = fromSegment;
+    for (int i = 0; i < segments.size(); i++) {
+      last = segments.get(i);
+      Path path = path(directory, last);
+      long valid = replayFile(path, consumer);
+      long size = Files.size(path);
+      if (valid < size) {
+        if (i < segments.size() - 1) {
+          throw new IOException("Corrupt record at offset " + valid + " of " + path);
+        }
+        System.err.println("Discarding " + (size - valid) + " bytes torn from the end of " + path);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.truncate(valid);
+        }
+      }
+    }
+    return last;
+  }
+
+  /**
+   * @return how many bytes from the start of the file held whole records
+   */
+  private static long replayFile(Path path, RecordConsumer consumer) throws IOException {
+    long valid = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+      while (true) {
+        byte[] record;
+        try {
+          int length = in.readInt();
+          int crc = in.readInt();
+          if (length < 1) {
+            return valid;
+          }
+          record = new byte[length];
+          in.readFully(record);
+          if (checksum(record) != crc) {
+            return valid;
+          }
+        } catch (EOFException e) {
+          return valid;
+        }
+        consumer.accept(record);
+        valid += HEADER_BYTES + record.length;
+      }
+    }
+  }
+
+  /**
+   * Deletes log files numbered below {@code segment}, once a snapshot covers them
+   */
+  static void deleteBefore(Path directory, int segment) throws IOException {
+    for (int old : segments(directory)) {
+      if (old < segment) {
+        Files.deleteIfExists(path(directory, old));
+      }
+    }
+  }
+
+  private static List<Integer> segments(Path directory) throws IOException {
+    List<Integer> segments = new ArrayList<>();
+    try (Stream<Path> files = Files.list(directory)) {
+      for (Path file : files.toList()) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(PREFIX) && name.endsWith(SUFFIX)) {
+          segments.add(Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+        }
+      }
+    }
+    segments.sort(null);
+    return segments;
+  }
+
+  private static int checksum(byte[] record) {
+    CRC32 crc = new CRC32();
+    crc.update(record);
+    return (int) crc.getValue();
+  }
+}
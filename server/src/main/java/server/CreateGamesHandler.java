@@ -0,0 +1,68 @@
+package server;
+
+import com.google.gson.Gson;
+import dataaccess.BadRequestException;
+import dataaccess.DataAccessException;
+import dataaccess.UnauthorizedException;
+import service.GameService;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.util.List;
+
+/**
+ * POST /game/batch. Creates one game per name in {@code gameNames} and
+ * returns their IDs in the same order, or creates none if any fails.
+ */
+public class CreateGamesHandler implements Route {
+  private final GameService gameService;
+  private final Gson gson;
+
+  public CreateGamesHandler(GameService gameService) {
+    this.gameService = gameService;
+    this.gson = new Gson();
+  }
+
+  @Override
+  public Object handle(Request request, Response response) {
+    response.type("application/json");
+    try {
+      // Check for authorization header
+      String authToken = request.headers("authorization");
+      if (authToken == null || authToken.isEmpty()) {
+        response.status(401);
+        return gson.toJson(new ErrorResponse("Error: unauthorized"));
+      }
+
+      // Parse request body
+      CreateGamesRequest createRequest = gson.fromJson(request.body(), CreateGamesRequest.class);
+      if (createRequest == null || createRequest.gameNames() == null || createRequest.gameNames().isEmpty()) {
+        response.status(400);
+        return gson.toJson(new ErrorResponse("Error: bad request"));
+      }
+
+      List<Integer> gameIds = gameService.createGames(authToken, createRequest.gameNames());
+
+      response.status(200);
+      return gson.toJson(new CreateGamesResponse(gameIds));
+
+    } catch (BadRequestException e) {
+      response.status(400);
+      return gson.toJson(new ErrorResponse(e.getMessage()));
+    } catch (UnauthorizedException e) {
+      response.status(401);
+      return gson.toJson(new ErrorResponse("Error: unauthorized"));
+    } catch (DataAccessException e) {
+      response.status(500);
+      return gson.toJson(new ErrorResponse("Error: " + e.getMessage()));
+    } catch (Exception e) {
+      response.status(500);
+      return gson.toJson(new ErrorResponse("Error: " + e.getMessage()));
+    }
+  }
+
+  private record CreateGamesRequest(List<String> gameNames) {}
+  private record CreateGamesResponse(List<Integer> gameIDs) {}
+  private record ErrorResponse(String message) {}
+}
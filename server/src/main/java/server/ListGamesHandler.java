@@ -1,28 +1,45 @@
 package server;
 
 import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import dataaccess.BadRequestException;
 import dataaccess.DataAccessException;
+import dataaccess.GameQuery;
 import dataaccess.UnauthorizedException;
-import model.GameData;
+import model.GameSummary;
+import serialization.GsonFactory;
 import service.GameService;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
-import java.util.List;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * GET /game. Streams game summaries rather than full games, optionally one page
+ * at a time: {@code ?after=<gameID>&limit=<n>}, filtered with {@code open=true},
+ * {@code player=<username>} and {@code status=active|finished}. When a page is
+ * full the response includes {@code next}, the value to pass as {@code after}
+ * for the following page. A limit above {@link GameQuery#MAX_LIMIT} is
+ * cut down to it. Without a limit every matching game is returned, which
+ * costs no more memory than a page since rows are written as they are read.
+ */
 public class ListGamesHandler implements Route {
   private final GameService gameService;
   private final Gson gson;
 
   public ListGamesHandler(GameService gameService) {
     this.gameService = gameService;
-    this.gson = new Gson();
+    this.gson = GsonFactory.gson();
   }
 
   @Override
   public Object handle(Request request, Response response) {
     response.type("application/json");
+    GameListWriter listWriter = new GameListWriter(response);
     try {
       // Check for authorization header
       String authToken = request.headers("authorization");
@@ -31,26 +48,109 @@ public class ListGamesHandler implements Route {
         response.status(401);
         return gson.toJson(new ErrorResponse("Error: unauthorized"));
       }
-      // Call service method to get games
-      List<GameData> games = gameService.listGames(authToken);
-
-      // Successful retrieval
+      GameQuery query = parseQuery(request);
+      // Set first, since the first game written commits the headers
       response.status(200);
-      ListGamesResponse myResponse = new ListGamesResponse((games));
-      return gson.toJson(myResponse);
+      gameService.streamGameSummaries(authToken, query, listWriter::write);
+
+      boolean fullPage = listWriter.count() > 0 && listWriter.count() == query.limit();
+      listWriter.finish(fullPage ? listWriter.lastGameID() : null);
+      return "";
 
+    } catch (BadRequestException e) {
+      response.status(400);
+      return gson.toJson(new ErrorResponse("Error: bad request"));
     } catch (UnauthorizedException e) {
       response.status(401);
       return gson.toJson(new ErrorResponse("Error: unauthorized"));
     } catch (DataAccessException e) {
-      response.status(500);
-      return gson.toJson(new ErrorResponse("Error: " + e.getMessage()));
+      return failure(response, listWriter, e);
     } catch (Exception e) {
-      response.status(500);
-      return gson.toJson(new ErrorResponse("Error: " + e.getMessage()));
+      return failure(response, listWriter, e);
+    }
+  }
+
+  private static GameQuery parseQuery(Request request) throws BadRequestException {
+    try {
+      String after = request.queryParams("after");
+      String limit = request.queryParams("limit");
+      String status = request.queryParams("status");
+      return new GameQuery(
+              (after == null) ? 0 : Integer.parseInt(after),
+              (limit == null) ? Integer.MAX_VALUE : Math.min(Integer.parseInt(limit), GameQuery.MAX_LIMIT),
+              Boolean.parseBoolean(request.queryParams("open")),
+              request.queryParams("player"),
+              (status == null) ? null : GameSummary.Status.valueOf(status.toUpperCase()));
+    } catch (IllegalArgumentException e) {
+      throw new BadRequestException("Error: bad request");
+    }
+  }
+
+  private Object failure(Response response, GameListWriter listWriter, Exception e) {
+    if (listWriter.isStarted()) {
+      // Part of the list is already on the wire; the client will see a truncated body
+      System.err.println("Error while streaming game list: " + e.getMessage());
+      return "";
+    }
+    response.status(500);
+    return gson.toJson(new ErrorResponse("Error: " + e.getMessage()));
+  }
+
+  /**
+   * Writes {@code {"games":[...]}} straight to the response as rows come in
+   * from storage, instead of building the page first. Nothing is written
+   * until the first game (or the end of an empty list), so an error before
+   * then can still be sent as a normal error body.
+   */
+  private class GameListWriter {
+    private final Response response;
+    private JsonWriter writer;
+    private int count = 0;
+    private int lastGameID = 0;
+
+    GameListWriter(Response response) {
+      this.response = response;
+    }
+
+    void write(GameSummary game) throws IOException {
+      start();
+      gson.toJson(game, GameSummary.class, writer);
+      count++;
+      lastGameID = game.gameID();
+    }
+
+    int count() {
+      return count;
+    }
+
+    int lastGameID() {
+      return lastGameID;
+    }
+
+    void finish(Integer next) throws IOException {
+      start();
+      writer.endArray();
+      if (next != null) {
+        writer.name("next").value(next);
+      }
+      writer.endObject();
+      writer.flush();
+    }
+
+    boolean isStarted() {
+      return writer != null;
+    }
+
+    private void start() throws IOException {
+      if (writer == null) {
+        writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(response.raw().getOutputStream(), StandardCharsets.UTF_8)));
+        writer.beginObject();
+        writer.name("games");
+        writer.beginArray();
+      }
     }
   }
 
-  private record ListGamesResponse(List<GameData> games) {}
   private record ErrorResponse(String message) {}
 }
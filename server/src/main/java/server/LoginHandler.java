@@ -3,6 +3,7 @@ package server;
 import com.google.gson.Gson;
 import dataaccess.DatabaseException;
 import dataaccess.InvalidUsernameException;
+import dataaccess.ServerBusyException;
 import dataaccess.WrongPasswordException;
 import model.AuthData;
 import model.UserData;
@@ -39,6 +40,12 @@ public class LoginHandler implements Route {
           response.status(200);
           return gson.toJson(auth);
 
+        } catch (ServerBusyException e) {
+          // Too many password checks queued; turned away before any hashing
+          response.status(503);
+          response.header("Retry-After", "1");
+          return gson.toJson(new ErrorResponse(e.getMessage()));
+
         } catch (InvalidUsernameException e) {
           // Handle invalid username error
           response.status(401); // Unauthorized
@@ -0,0 +1,81 @@
+package server;
+
+import com.google.gson.Gson;
+import dataaccess.AuthCache;
+import dataaccess.AuthSweeper;
+import dataaccess.BackgroundTask;
+import dataaccess.CachingDataAccess;
+import dataaccess.ConnectionPool;
+import dataaccess.DatabaseManager;
+import dataaccess.DurableMemoryDataAccess;
+import dataaccess.GameArchiver;
+import dataaccess.StatementMetrics;
+import dataaccess.WriteAheadLog;
+import server.websocket.BroadcastMetrics;
+import service.PasswordHasher;
+import spark.Request;
+import spark.Response;
+import spark.Route;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /metrics. Reports storage latency and the counters of the background
+ * jobs as JSON. Statement timings are only there when MySQL is the backend,
+ * and so are the archiver's counters and the connection pool's. Journal
+ * backends report their write-ahead logs, one entry per shard. Password
+ * hashing reports its queue and how long hashes take, and WebSocket
+ * broadcasts how long encoding and sending frames take.
+ */
+public class MetricsHandler implements Route {
+  private final CachingDataAccess dataAccess;
+  private final StatementMetrics statementMetrics;
+  private final GameArchiver gameArchiver;
+  private final AuthSweeper authSweeper;
+  private final PasswordHasher passwordHasher;
+  private final BroadcastMetrics broadcastMetrics;
+  private final List<DurableMemoryDataAccess> journals;
+  private final Gson gson;
+
+  /**
+   * @param statementMetrics null unless the backend is MySQL
+   * @param gameArchiver     null unless the backend is MySQL
+   * @param journals         empty unless the backend is the journal
+   */
+  public MetricsHandler(CachingDataAccess dataAccess, StatementMetrics statementMetrics,
+                        GameArchiver gameArchiver, AuthSweeper authSweeper, PasswordHasher passwordHasher,
+                        BroadcastMetrics broadcastMetrics, List<DurableMemoryDataAccess> journals) {
+    this.dataAccess = dataAccess;
+    this.statementMetrics = statementMetrics;
+    this.gameArchiver = gameArchiver;
+    this.authSweeper = authSweeper;
+    this.passwordHasher = passwordHasher;
+    this.broadcastMetrics = broadcastMetrics;
+    this.journals = journals;
+    this.gson = new Gson();
+  }
+
+  @Override
+  public Object handle(Request request, Response response) {
+    response.type("application/json");
+    response.status(200);
+    return gson.toJson(new MetricsResponse(
+            (statementMetrics == null) ? null : statementMetrics.snapshot(),
+            (statementMetrics == null) ? null : statementMetrics.slowCalls(),
+            (statementMetrics == null) ? null : DatabaseManager.poolStats(),
+            dataAccess.authCacheStats(),
+            (gameArchiver == null) ? null : gameArchiver.stats(),
+            authSweeper.stats(),
+            passwordHasher.stats(),
+            broadcastMetrics.snapshot(),
+            journals.isEmpty() ? null : journals.stream().map(DurableMemoryDataAccess::logStats).toList()
+    ));
+  }
+
+  private record MetricsResponse(Map<String, StatementMetrics.OperationStats> statements, Long slowStatements,
+                                 ConnectionPool.Stats connectionPool, AuthCache.Stats authCache,
+                                 BackgroundTask.Stats archiver, BackgroundTask.Stats authSweeper,
+                                 PasswordHasher.Stats passwordHashing, BroadcastMetrics.Snapshot broadcast,
+                                 List<WriteAheadLog.Stats> writeAheadLogs) {}
+}
@@ -2,6 +2,7 @@ package server;
 
 import com.google.gson.Gson;
 import dataaccess.DatabaseException;
+import dataaccess.ServerBusyException;
 import model.AuthData;
 import model.UserData;
 import service.UserService;
@@ -30,6 +31,10 @@ public class RegisterHandler implements Route {
       AuthData authData=userService.register(userData);
       response.status(200);
       return gson.toJson(authData);
+    } catch (ServerBusyException e) {
+      response.status(503);
+      response.header("Retry-After", "1");
+      return gson.toJson(new ErrorResponse(e.getMessage()));
     } catch (DatabaseException e) {
         response.status(403);
         return gson.toJson(new ErrorResponse("Error: already taken"));
@@ -1,14 +1,26 @@
 package server;
 
 import com.google.gson.Gson;
+import dataaccess.AsyncDataAccess;
+import dataaccess.AuthExpiry;
+import dataaccess.AuthSweeper;
+import dataaccess.CachingDataAccess;
 import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
+import dataaccess.DurableMemoryDataAccess;
+import dataaccess.FileDataAccess;
+import dataaccess.GameArchiver;
+import dataaccess.MemoryDataAccess;
 import dataaccess.MySqlDataAccess;
+import dataaccess.ShardedDataAccess;
+import dataaccess.StatementMetrics;
 import server.websocket.WebSocketHandler;
 import model.*;
 import service.*;
 import spark.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 public class Server {
@@ -16,18 +28,33 @@ public class Server {
     private final GameService gameService;
     private final AdminService adminService;
     private final WebSocketHandler webSocketHandler;
+    private final CachingDataAccess dataAccess;
+    private final AsyncDataAccess asyncDataAccess;
+    // Only the MySQL backend archives finished games; null for the others
+    private final GameArchiver gameArchiver;
+    private final AuthSweeper authSweeper;
+    // Only the MySQL backend times its statements; null for the others
+    private final StatementMetrics statementMetrics;
+    private final PasswordHasher passwordHasher;
+    private final List<DurableMemoryDataAccess> journals = new ArrayList<>();
 
     private final Gson gson;
 
     public Server(){
         try {
-            DatabaseManager.createDatabase();
-            DatabaseManager.createTables();
-
-            DataAccess dataAccess = new MySqlDataAccess();
-
-            this.userService = new UserService(dataAccess);
-            this.gameService = new GameService(dataAccess);
+            DataAccess backend = createBackend(journals);
+            MySqlDataAccess mySql = (backend instanceof MySqlDataAccess m) ? m : null;
+            this.gameArchiver = (mySql != null) ? new GameArchiver(mySql, GameArchiver.Settings.defaults()) : null;
+            this.statementMetrics = (mySql != null) ? mySql.metrics() : null;
+            this.dataAccess = new CachingDataAccess(backend, CachingDataAccess.Settings.defaults());
+            this.authSweeper = new AuthSweeper(dataAccess, AuthSweeper.Settings.defaults());
+
+            PasswordHasher.Settings hashing = PasswordHasher.Settings.defaults();
+            this.passwordHasher = new PasswordHasher(new PasswordHasher.Settings(hashing.threads(),
+                    hashing.maxQueued(), Integer.getInteger("chess.bcrypt.cost", hashing.cost())));
+            this.userService = new UserService(dataAccess, passwordHasher);
+            this.asyncDataAccess = new AsyncDataAccess(dataAccess, AsyncDataAccess.DEFAULT_MAX_CONCURRENT);
+            this.gameService = new GameService(dataAccess, asyncDataAccess);
             this.adminService = new AdminService(dataAccess);
             this.webSocketHandler = new WebSocketHandler(gameService);
             this.gson = new Gson();
@@ -37,6 +64,60 @@ public class Server {
         }
     }
 
+    /**
+     * Picks the storage backend from the {@code chess.storage} system property:
+     * {@code mysql} (the default), {@code file} for local segment files,
+     * {@code journal} for the in-memory store with a write-ahead log, or
+     * {@code memory}. The file and journal backends keep their files under
+     * {@code chess.storage.dir}. Setting {@code chess.storage.shards} above 1
+     * spreads games over that many backends of the chosen kind, each in its
+     * own subdirectory; users and auth tokens stay on the first. MySQL calls
+     * taking longer than {@code chess.mysql.slowMillis} are logged. Journal
+     * backends are also added to {@code journals} so their logs can be watched.
+     */
+    private static DataAccess createBackend(List<DurableMemoryDataAccess> journals) throws DataAccessException {
+        String storage = System.getProperty("chess.storage", "mysql");
+        int shards = Integer.getInteger("chess.storage.shards", 1);
+        if (shards <= 1) {
+            return createShard(storage, storageDirectory(), journals);
+        }
+        if (storage.equals("mysql")) {
+            // Every MySqlDataAccess uses the one schema DatabaseManager points at
+            throw new DataAccessException("MySQL storage can't be sharded");
+        }
+        List<DataAccess> backends = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            backends.add(createShard(storage, storageDirectory().resolve("shard-" + i), journals));
+        }
+        return new ShardedDataAccess(backends, 0);
+    }
+
+    private static DataAccess createShard(String storage, Path directory, List<DurableMemoryDataAccess> journals)
+            throws DataAccessException {
+        switch (storage) {
+            case "mysql":
+                DatabaseManager.createDatabase();
+                DatabaseManager.createTables();
+                return new MySqlDataAccess(AuthExpiry.defaults(), new StatementMetrics(
+                        Long.getLong("chess.mysql.slowMillis", StatementMetrics.DEFAULT_SLOW_MILLIS)));
+            case "file":
+                return new FileDataAccess(directory, FileDataAccess.Settings.defaults());
+            case "journal":
+                DurableMemoryDataAccess journal = new DurableMemoryDataAccess(directory,
+                        DurableMemoryDataAccess.Settings.defaults());
+                journals.add(journal);
+                return journal;
+            case "memory":
+                return new MemoryDataAccess();
+            default:
+                throw new DataAccessException("Unknown storage backend: " + storage);
+        }
+    }
+
+    private static Path storageDirectory() {
+        return Path.of(System.getProperty("chess.storage.dir", "chess-data"));
+    }
+
     public int run(int desiredPort) {
         Spark.port(desiredPort);
 
@@ -54,6 +135,9 @@ public class Server {
         ClearHandler clearHandler = new ClearHandler(adminService);
         ListGamesHandler listGamesHandler = new ListGamesHandler(gameService);
         CreateGameHandler createGameHandler = new CreateGameHandler(gameService);
+        CreateGamesHandler createGamesHandler = new CreateGamesHandler(gameService);
+        MetricsHandler metricsHandler = new MetricsHandler(dataAccess, statementMetrics, gameArchiver, authSweeper,
+                passwordHasher, webSocketHandler.getBroadcastMetrics(), journals);
 
 
         Spark.post("/user", registerHandler);
@@ -63,6 +147,8 @@ public class Server {
         Spark.delete("/db", clearHandler);
         Spark.get("/game", listGamesHandler);
         Spark.post("/game", createGameHandler);
+        Spark.post("/game/batch", createGamesHandler);
+        Spark.get("/metrics", metricsHandler);
         //Add endpoints here
 
         Spark.exception(Exception.class, (e, req, res) -> {
@@ -78,6 +164,18 @@ public class Server {
         // Close all active WebSocket sessions
         webSocketHandler.closeAllSessions();
         Spark.stop();
+        asyncDataAccess.close();
+        passwordHasher.close();
+        if (gameArchiver != null) {
+            gameArchiver.close();
+        }
+        authSweeper.close();
+        try {
+            // Save moves still waiting in the game cache
+            dataAccess.close();
+        } catch (DataAccessException e) {
+            System.err.println("Failed to save cached games: " + e.getMessage());
+        }
     }
 
     private record CreateGameRequest(String gameName) {}
@@ -0,0 +1,47 @@
+package server.websocket;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters for WebSocket broadcasts, kept separately for encoding a message
+ * to JSON and for fanning the encoded frame out to sessions, so the cost of
+ * each can be watched on its own.
+ */
+public class BroadcastMetrics {
+  private final LongAdder encodes = new LongAdder();
+  private final LongAdder encodeNanos = new LongAdder();
+  private final LongAdder encodedChars = new LongAdder();
+  private final LongAdder fanOuts = new LongAdder();
+  private final LongAdder fanOutNanos = new LongAdder();
+  private final LongAdder framesSent = new LongAdder();
+  private final LongAdder sendFailures = new LongAdder();
+
+  public record Snapshot(long encodes, long encodeNanos, long encodedChars,
+                         long fanOuts, long fanOutNanos, long framesSent, long sendFailures) {
+    public double averageEncodeMicros() {
+      return encodes == 0 ? 0 : encodeNanos / 1000.0 / encodes;
+    }
+
+    public double averageFanOutMicros() {
+      return fanOuts == 0 ? 0 : fanOutNanos / 1000.0 / fanOuts;
+    }
+  }
+
+  void recordEncode(long nanos, int chars) {
+    encodes.increment();
+    encodeNanos.add(nanos);
+    encodedChars.add(chars);
+  }
+
+  void recordFanOut(long nanos, int sent, int failed) {
+    fanOuts.increment();
+    fanOutNanos.add(nanos);
+    framesSent.add(sent);
+    sendFailures.add(failed);
+  }
+
+  public Snapshot snapshot() {
+    return new Snapshot(encodes.sum(), encodeNanos.sum(), encodedChars.sum(),
+            fanOuts.sum(), fanOutNanos.sum(), framesSent.sum(), sendFailures.sum());
+  }
+}
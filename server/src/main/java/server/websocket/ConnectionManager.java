@@ -3,24 +3,31 @@ package server.websocket;
 import chess.ChessGame;
 import com.google.gson.Gson;
 import org.eclipse.jetty.websocket.api.Session;
+import serialization.GsonFactory;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
 import websocket.messages.ServerMessage;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 
 public class ConnectionManager {
-  public record Connection(String username, Session session, Integer gameId, ChessGame.TeamColor playerColor) {
+  public record Connection(String username, Session session, Integer gameId, ChessGame.TeamColor playerColor,
+                           boolean deltaUpdates) {
   }
 
   private final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
   private final ConcurrentHashMap<Integer, ArrayList<String>> gameConnections = new ConcurrentHashMap<>();
-  private final Gson gson = new Gson();
+  private final Gson gson = GsonFactory.gson();
+  private final BroadcastMetrics metrics = new BroadcastMetrics();
 
 
-  public void add(Integer gameId, String username, Session session, ChessGame.TeamColor playerColor) {
+  public void add(Integer gameId, String username, Session session, ChessGame.TeamColor playerColor,
+                  boolean deltaUpdates) {
     if (gameId == null || username == null || session == null) {
       throw new IllegalArgumentException("Required parameters cannot be null");
     }
@@ -28,10 +35,13 @@ public class ConnectionManager {
     // Remove any existing connection for this username
     remove(username);
 
-    Connection connection = new Connection(username, session, gameId, playerColor);
+    Connection connection = new Connection(username, session, gameId, playerColor, deltaUpdates);
     connections.put(username, connection);
 
-    gameConnections.computeIfAbsent(gameId, k -> new ArrayList<>()).add(username);
+    ArrayList<String> gameUsers = gameConnections.computeIfAbsent(gameId, k -> new ArrayList<>());
+    synchronized (gameUsers) {
+      gameUsers.add(username);
+    }
   }
 
   public void remove(String username) {
@@ -39,10 +49,12 @@ public class ConnectionManager {
     if (connection != null) {
       ArrayList<String> gameUsers = gameConnections.get(connection.gameId());
       if (gameUsers != null) {
-        gameUsers.remove(username);
-        // Clean up empty game entries
-        if (gameUsers.isEmpty()) {
-          gameConnections.remove(connection.gameId());
+        synchronized (gameUsers) {
+          gameUsers.remove(username);
+          // Clean up empty game entries
+          if (gameUsers.isEmpty()) {
+            gameConnections.remove(connection.gameId());
+          }
         }
       }
       connections.remove(username);
@@ -71,50 +83,107 @@ public class ConnectionManager {
     if (gameId == null || message == null) {
       throw new IllegalArgumentException("GameId and message cannot be null");
     }
+    String frame = encode(message);
+    fanOut(recipients(gameId, excludeUsername), connection -> frame);
+  }
 
-    ArrayList<String> users = gameConnections.get(gameId);
-    if (users != null) {
-      List<String> disconnectedUsers = new ArrayList<>();
-
-      for (String username : users) {
-        if (!username.equals(excludeUsername)) {
-          Connection connection = connections.get(username);
-          if (connection != null && connection.session().isOpen()) {
-            try {
-              connection.session().getRemote().sendString(gson.toJson(message));
-            } catch (IOException e) {
-              System.err.println("Error sending message to " + username + ": " + e.getMessage());
-              disconnectedUsers.add(username);
-            }
-          } else {
-            disconnectedUsers.add(username);
-          }
-        }
-      }
+  public void broadcastToGame(Integer gameId, ServerMessage message) throws IOException {
+    broadcast(gameId, null, message);
+  }
 
-      // Clean up disconnected users
-      for (String username : disconnectedUsers) {
-        remove(username);
-      }
+  /**
+   * Sends a move to everyone in the game: the small MOVE delta to connections
+   * that asked for it, the full LOAD_GAME to the rest. Each form is only
+   * encoded if someone will receive it, judged from the same recipient list
+   * the frames then go to.
+   */
+  public void broadcastMove(Integer gameId, MoveMessage delta, LoadGameMessage fullState) throws IOException {
+    if (gameId == null || delta == null || fullState == null) {
+      throw new IllegalArgumentException("GameId and messages cannot be null");
+    }
+    List<Connection> recipients = recipients(gameId, null);
+    boolean anyDelta = false;
+    boolean anyFull = false;
+    for (Connection connection : recipients) {
+      anyDelta |= connection.deltaUpdates();
+      anyFull |= !connection.deltaUpdates();
     }
+    String deltaFrame = anyDelta ? encode(delta) : null;
+    String fullFrame = anyFull ? encode(fullState) : null;
+    fanOut(recipients, connection -> connection.deltaUpdates() ? deltaFrame : fullFrame);
   }
 
-  public void broadcastToGame(Integer gameId, ServerMessage message) throws IOException {
-    if (gameId == null || message == null) {
-      throw new IllegalArgumentException("GameId and message cannot be null");
+  public BroadcastMetrics getMetrics() {
+    return metrics;
+  }
+
+  private String encode(ServerMessage message) {
+    long start = System.nanoTime();
+    String frame = gson.toJson(message);
+    metrics.recordEncode(System.nanoTime() - start, frame.length());
+    return frame;
+  }
+
+  /**
+   * The connections of everyone in the game but {@code excludeUsername},
+   * looked up once so a broadcast picks frames for and sends to the same
+   * connections even if someone joins or reconnects meanwhile.
+   */
+  private List<Connection> recipients(Integer gameId, String excludeUsername) {
+    List<Connection> recipients = new ArrayList<>();
+    for (String username : usersInGame(gameId)) {
+      Connection connection = connections.get(username);
+      if (connection != null && !username.equals(excludeUsername)) {
+        recipients.add(connection);
+      }
     }
+    return recipients;
+  }
 
-    ArrayList<String> users=gameConnections.get(gameId);
-    if (users != null) {
-      for (String username : users) {
-        Connection connection=connections.get(username);
-        if (connection != null && connection.session().isOpen()) {
-          connection.session().getRemote().sendString(gson.toJson(message));
+  /**
+   * Sends already-encoded frames to every open session among the recipients.
+   * Strings are immutable, so one frame is shared by all recipients. Sessions
+   * that fail or have closed are removed afterwards.
+   */
+  private void fanOut(List<Connection> recipients, Function<Connection, String> frameFor) {
+    long start = System.nanoTime();
+    int sent = 0;
+    List<Connection> disconnected = new ArrayList<>();
+
+    for (Connection connection : recipients) {
+      if (connection.session().isOpen()) {
+        try {
+          connection.session().getRemote().sendString(frameFor.apply(connection));
+          sent++;
+        } catch (IOException e) {
+          System.err.println("Error sending message to " + connection.username() + ": " + e.getMessage());
+          disconnected.add(connection);
         }
+      } else {
+        disconnected.add(connection);
+      }
+    }
+    metrics.recordFanOut(System.nanoTime() - start, sent, disconnected.size());
+
+    // Clean up disconnected users, unless they have reconnected since
+    for (Connection connection : disconnected) {
+      if (connections.get(connection.username()) == connection) {
+        remove(connection.username());
       }
     }
   }
 
+  // Copy so sends don't race with users joining or leaving the game
+  private List<String> usersInGame(Integer gameId) {
+    ArrayList<String> users = gameConnections.get(gameId);
+    if (users == null) {
+      return List.of();
+    }
+    synchronized (users) {
+      return new ArrayList<>(users);
+    }
+  }
+
   public void cleanupInactiveSessions() {
     List<String> inactiveUsers = new ArrayList<>();
 
@@ -3,11 +3,13 @@ package server.websocket;
 import chess.ChessGame;
 import chess.ChessMove;
 import chess.ChessPiece;
+import chess.PositionHash;
 import com.google.gson.Gson;
 import model.AuthData;
 import model.GameData;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.annotations.*;
+import serialization.GsonFactory;
 import service.GameService;
 import websocket.messages.*;
 import websocket.commands.UserGameCommand;
@@ -22,7 +24,7 @@ public class WebSocketHandler {
   public WebSocketHandler(GameService gameService) {
     this.gameService = gameService;
     this.connectionManager = new ConnectionManager();
-    this.gson = new Gson();
+    this.gson = GsonFactory.gson();
   }
 
   @OnWebSocketConnect
@@ -72,6 +74,7 @@ public class WebSocketHandler {
         case MAKE_MOVE -> handleMove(command, session);
         case LEAVE -> handleLeave(session);
         case RESIGN -> handleResign(session);
+        case SYNC -> handleSync(session);
         default -> sendError(session, "Unknown command type");
       }
     } catch (Exception e) {
@@ -89,15 +92,10 @@ public class WebSocketHandler {
       Integer gameId = command.getGameID();
       String authToken = command.getAuthToken();
 
-      // Validate auth token and get username
-      AuthData auth = gameService.getAuth(authToken);
-      String username = auth.username();
-
-      // Get game data
-      GameData game = gameService.getGame(gameId);
-      if (game == null) {
-        throw new Exception("Game not found");
-      }
+      // Validate the auth token and load the game together
+      GameService.GameSession opened = gameService.openGame(authToken, gameId);
+      String username = opened.auth().username();
+      GameData game = opened.game();
 
       // Determine player's color
       ChessGame.TeamColor playerColor = null;
@@ -108,7 +106,7 @@ public class WebSocketHandler {
       }
 
       // Add connection
-      connectionManager.add(gameId, username, session, playerColor);
+      connectionManager.add(gameId, username, session, playerColor, command.wantsDeltaUpdates());
 
       // Send initial game state
       LoadGameMessage loadGameMessage = new LoadGameMessage(game);
@@ -195,9 +193,11 @@ public class WebSocketHandler {
           //fix makeMove error
           GameData updatedGame = gameService.makeMove(connection.gameId(), move);
           // Send updates only if move was successful
-          LoadGameMessage loadGameMessage = new LoadGameMessage(updatedGame);
-          //Send Load Game message to all players
-          connectionManager.broadcastToGame(connection.gameId(), loadGameMessage);
+          ChessGame updatedChessGame = updatedGame.game();
+          MoveMessage moveMessage = new MoveMessage(move, updatedChessGame.getMoveCount(),
+                  PositionHash.of(updatedChessGame));
+          //Send the move to delta clients and a full Load Game message to everyone else
+          connectionManager.broadcastMove(connection.gameId(), moveMessage, new LoadGameMessage(updatedGame));
 
 
         // Notify about the move
@@ -230,34 +230,11 @@ public class WebSocketHandler {
     try {
       ConnectionManager.Connection connection = connectionManager.getConnection(session);
       if (connection != null) {
-        GameData game = gameService.getGame(connection.gameId());
-
-        // Create updated game data with the leaving player removed
-        GameData updatedGame;
-        if (connection.playerColor() == ChessGame.TeamColor.WHITE) {
-          updatedGame = new GameData(
-                  game.gameID(),
-                  null,  // Remove white player
-                  game.blackUsername(),
-                  game.gameName(),
-                  game.game()
-          );
-        } else if (connection.playerColor() == ChessGame.TeamColor.BLACK) {
-          updatedGame = new GameData(
-                  game.gameID(),
-                  game.whiteUsername(),
-                  null,  // Remove black player
-                  game.gameName(),
-                  game.game()
-          );
-        } else {
-          // Observer leaving doesn't need to update game data
-          updatedGame = game;
+        // Free the leaving player's seat; observers don't hold one
+        if (connection.playerColor() != null) {
+          gameService.leaveGame(connection.gameId(), connection.playerColor());
         }
 
-        // Update the game in the database
-        gameService.updateGame(updatedGame);
-
         String leaveMessage = connection.username() + " left the game";
         connectionManager.broadcast(connection.gameId(), connection.username(),
                 new NotificationMessage(leaveMessage));
@@ -312,6 +289,21 @@ public class WebSocketHandler {
     }
   }
 
+  // Full resync for a delta client whose copy of the game fell out of step
+  private void handleSync(Session session) {
+    try {
+      ConnectionManager.Connection connection = connectionManager.getConnection(session);
+      if (connection == null) {
+        sendError(session, "Not connected to game");
+        return;
+      }
+      GameData game = gameService.getGame(connection.gameId());
+      session.getRemote().sendString(gson.toJson(new LoadGameMessage(game)));
+    } catch (Exception e) {
+      sendError(session, "Error syncing game: " + e.getMessage());
+    }
+  }
+
   private void sendError(Session session, String message) {
     try {
       ErrorMessage errorMessage = new ErrorMessage("Error: " + message);
@@ -325,6 +317,10 @@ public class WebSocketHandler {
     connectionManager.cleanupInactiveSessions();
   }
 
+  public BroadcastMetrics getBroadcastMetrics() {
+    return connectionManager.getMetrics();
+  }
+
 
   class ContextProvider {
     private static final ThreadLocal<Session> CURRENT_SESSION = new ThreadLocal<>();
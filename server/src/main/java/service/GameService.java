@@ -4,16 +4,43 @@ import chess.*;
 import dataaccess.*;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import server.websocket.WebSocketHandler;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class GameService implements AutoCloseable {
+  private static final int MAX_UPDATE_ATTEMPTS = 5;
+  public static final int MAX_BATCH_SIZE = 5000;
 
-public class GameService {
   private final DataAccess dataAccess;
+  private final AsyncDataAccess asyncDataAccess;
+  // Whether asyncDataAccess was made here, and so is ours to close
+  private final boolean ownsAsync;
   private final WebSocketHandler webSocketHandler;
 
+  /**
+   * A player's auth and the game they are opening, fetched together
+   */
+  public record GameSession(AuthData auth, GameData game) {
+  }
 
+  /**
+   * Makes its own AsyncDataAccess; call {@link #close()} when done with the service.
+   */
   public GameService(DataAccess dataAccess) {
+    this(dataAccess, new AsyncDataAccess(dataAccess, AsyncDataAccess.DEFAULT_MAX_CONCURRENT), true);
+  }
+
+  public GameService(DataAccess dataAccess, AsyncDataAccess asyncDataAccess) {
+    this(dataAccess, asyncDataAccess, false);
+  }
+
+  private GameService(DataAccess dataAccess, AsyncDataAccess asyncDataAccess, boolean ownsAsync) {
     this.dataAccess = dataAccess;
+    this.asyncDataAccess = asyncDataAccess;
+    this.ownsAsync = ownsAsync;
     this.webSocketHandler = new WebSocketHandler(this);
   }
 
@@ -24,6 +51,21 @@ public class GameService {
     return dataAccess.listGames();
   }
 
+  public List<GameSummary> listGameSummaries(String authToken, GameQuery query) throws DataAccessException {
+    if (dataAccess.getAuth(authToken) == null) {
+      throw new UnauthorizedException("Error: unauthorized");
+    }
+    return dataAccess.listGameSummaries(query);
+  }
+
+  public void streamGameSummaries(String authToken, GameQuery query, DataAccess.SummaryConsumer consumer)
+          throws DataAccessException {
+    if (dataAccess.getAuth(authToken) == null) {
+      throw new UnauthorizedException("Error: unauthorized");
+    }
+    dataAccess.streamGameSummaries(query, consumer);
+  }
+
   public int createGame(String authToken, String gameName) throws DataAccessException {
     if (dataAccess.getAuth(authToken) == null) {
       throw new UnauthorizedException("Error: unauthorized");
@@ -32,6 +74,28 @@ public class GameService {
     return dataAccess.createGame(newGame);
   }
 
+  /**
+   * Creates a fresh game for each name, all or nothing.
+   *
+   * @return the new games' IDs, in the same order as the names
+   */
+  public List<Integer> createGames(String authToken, List<String> gameNames) throws DataAccessException {
+    if (dataAccess.getAuth(authToken) == null) {
+      throw new UnauthorizedException("Error: unauthorized");
+    }
+    if (gameNames.size() > MAX_BATCH_SIZE) {
+      throw new BadRequestException("Error: at most " + MAX_BATCH_SIZE + " games per batch");
+    }
+    List<GameData> newGames = new ArrayList<>(gameNames.size());
+    for (String gameName : gameNames) {
+      if (gameName == null || gameName.isEmpty()) {
+        throw new BadRequestException("Error: bad request");
+      }
+      newGames.add(new GameData(0, null, null, gameName, new ChessGame()));
+    }
+    return dataAccess.createGames(newGames);
+  }
+
   public void joinGame(String authToken, String playerColor, int gameID) throws BadRequestException,
           UnauthorizedException, GameAlreadyTakenException, DataAccessException {
       AuthData auth = dataAccess.getAuth(authToken);
@@ -39,34 +103,35 @@ public class GameService {
           throw new UnauthorizedException("Error: unauthorized");
       }
 
-      GameData game = dataAccess.getGame(gameID);
-      if (game == null) {
-          throw new BadRequestException("Error: invalid game ID");
-      }
+      retryOnConflict(() -> {
+        GameData game = dataAccess.getGame(gameID);
+        if (game == null) {
+            throw new BadRequestException("Error: invalid game ID");
+        }
 
-      if (playerColor == null || playerColor.isEmpty()) {
-        throw new BadRequestException("Error: player color is required");
-      }
+        if (playerColor == null || playerColor.isEmpty()) {
+          throw new BadRequestException("Error: player color is required");
+        }
 
-      GameData updatedGame;
-      switch (playerColor.toUpperCase()) {
-        case "WHITE" -> {
-          if (game.whiteUsername() != null) {
-            throw new GameAlreadyTakenException("Error: already taken");
+        GameData updatedGame;
+        switch (playerColor.toUpperCase()) {
+          case "WHITE" -> {
+            if (game.whiteUsername() != null) {
+              throw new GameAlreadyTakenException("Error: already taken");
+            }
+            updatedGame = game.withWhiteUsername(auth.username());
           }
-          updatedGame = new GameData(game.gameID(), auth.username(), game.blackUsername(),
-                  game.gameName(), game.game());
-        }
-        case "BLACK" -> {
-          if (game.blackUsername() != null) {
-            throw new GameAlreadyTakenException("Error: already taken");
+          case "BLACK" -> {
+            if (game.blackUsername() != null) {
+              throw new GameAlreadyTakenException("Error: already taken");
+            }
+            updatedGame = game.withBlackUsername(auth.username());
           }
-          updatedGame = new GameData(game.gameID(), game.whiteUsername(), auth.username(),
-                  game.gameName(), game.game());
+          default -> throw new BadRequestException("Error: invalid player color");
         }
-        default -> throw new BadRequestException("Error: invalid player color");
-      }
-      dataAccess.updateGame(updatedGame);
+        dataAccess.updateGame(updatedGame);
+        return updatedGame;
+      });
   }
 
   public AuthData getAuth(String authToken) throws Exception {
@@ -83,6 +148,29 @@ public class GameService {
   }
 
 
+  /**
+   * Checks the auth token and loads the game at the same time, rather than
+   * one lookup after the other.
+   */
+  public GameSession openGame(String authToken, int gameID) throws DataAccessException {
+    CompletableFuture<AuthData> auth = asyncDataAccess.getAuth(authToken);
+    CompletableFuture<GameData> game = asyncDataAccess.getGame(gameID);
+    AuthData authData;
+    try {
+      authData = AsyncDataAccess.await(auth);
+    } catch (DataAccessException e) {
+      throw new UnauthorizedException("Error validating auth token");
+    }
+    if (authData == null) {
+      throw new UnauthorizedException("Invalid auth token");
+    }
+    GameData gameData = AsyncDataAccess.await(game);
+    if (gameData == null) {
+      throw new BadRequestException("Error: game not found");
+    }
+    return new GameSession(authData, gameData);
+  }
+
   public GameData getGame(int gameID) throws DataAccessException {
     GameData game = dataAccess.getGame(gameID);
     if (game == null) {
@@ -92,32 +180,71 @@ public class GameService {
   }
 
   public GameData makeMove(int gameID, ChessMove move) throws DataAccessException, InvalidMoveException{
-    GameData gameData = getGame(gameID);
-    ChessGame game = gameData.game();
-    // make move
-    game.makeMove(move);
-    // Update game in database
-    dataAccess.updateGame(gameData);
-    return gameData;
+    return retryOnConflict(() -> {
+      GameData gameData = getGame(gameID);
+      ChessGame game = gameData.game();
+      // Games may be shared with other requests through the cache, so change them one at a time
+      synchronized (game) {
+        game.makeMove(move);
+        // Append the move rather than rewriting the stored game
+        dataAccess.appendMove(gameData);
+      }
+      return gameData;
+    });
   }
 
   public GameData resignGame(int gameID, String username) throws DataAccessException {
-    GameData gameData = getGame(gameID);
+    return retryOnConflict(() -> {
+      GameData gameData = getGame(gameID);
 
-    // Verify player is in the game
-    if (!username.equals(gameData.whiteUsername()) &&
-            !username.equals(gameData.blackUsername())) {
-      throw new UnauthorizedException("Error: not a player in this game");
-    }
+      // Verify player is in the game
+      if (!username.equals(gameData.whiteUsername()) &&
+              !username.equals(gameData.blackUsername())) {
+        throw new UnauthorizedException("Error: not a player in this game");
+      }
 
-    // Mark game as over (you might want to add a field to GameData for this)
-    ChessGame game = gameData.game();
+      ChessGame game = gameData.game();
+      synchronized (game) {
+        game.setGameOver(true);
+        dataAccess.updateGame(gameData);
+      }
+      return gameData;
+    });
+  }
 
-    game.setGameOver(true);
-    dataAccess.updateGame(gameData);
-    return gameData;
+  /**
+   * Frees the seat a player held in a game.
+   */
+  public GameData leaveGame(int gameID, ChessGame.TeamColor color) throws DataAccessException {
+    return retryOnConflict(() -> {
+      GameData gameData = getGame(gameID);
+      GameData updatedGame = (color == ChessGame.TeamColor.WHITE)
+              ? gameData.withWhiteUsername(null) : gameData.withBlackUsername(null);
+      dataAccess.updateGame(updatedGame);
+      return updatedGame;
+    });
   }
 
+  @FunctionalInterface
+  private interface GameUpdate<T, X extends Exception> {
+    T apply() throws DataAccessException, X;
+  }
+
+  /**
+   * Runs a read-modify-write of a game, starting again from a fresh read when
+   * another update to the same game was saved first.
+   */
+  private <T, X extends Exception> T retryOnConflict(GameUpdate<T, X> update) throws DataAccessException, X {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return update.apply();
+      } catch (GameConflictException e) {
+        if (attempt == MAX_UPDATE_ATTEMPTS) {
+          throw e;
+        }
+      }
+    }
+  }
 
   public boolean isGameOver(int gameID) throws DataAccessException {
     GameData game = getGame(gameID);
@@ -133,5 +260,14 @@ public class GameService {
     dataAccess.updateGame(game);
   }
 
+  /**
+   * Shuts down the AsyncDataAccess this service made for itself. One passed
+   * in is left for its owner to close.
+   */
+  @Override
+  public void close() {
+    if (ownsAsync) {
+      asyncDataAccess.close();
+    }
+  }
 }
-
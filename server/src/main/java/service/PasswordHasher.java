@@ -0,0 +1,147 @@
+package service;
+
+import dataaccess.DatabaseException;
+import dataaccess.LatencyHistogram;
+import dataaccess.ServerBusyException;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs BCrypt on a small pool of its own instead of on request threads.
+ * <p>
+ * A hash is deliberately slow, so a burst of logins could otherwise take up
+ * every request thread and stall players already in games. The pool is sized
+ * to leave cores free, and at most {@code maxQueued} hashes wait for it.
+ * Past that a request is turned away at once with a
+ * {@link ServerBusyException} rather than queueing behind work that won't
+ * finish in time.
+ */
+public class PasswordHasher implements AutoCloseable {
+
+  /**
+   * @param threads   hashes run at once
+   * @param maxQueued hashes waiting for a thread before more are rejected
+   * @param cost      BCrypt log rounds for new hashes; stored hashes of another cost are redone at login
+   */
+  public record Settings(int threads, int maxQueued, int cost) {
+    public Settings {
+      if (threads < 1 || maxQueued < 0 || cost < 4 || cost > 31) {
+        throw new IllegalArgumentException("Invalid password hasher settings");
+      }
+    }
+
+    public static Settings defaults() {
+      return new Settings(Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64, 10);
+    }
+  }
+
+  /**
+   * @param queueWait how long hashes waited for a thread
+   * @param hash      how long hashes took once running
+   * @param queued    hashes waiting right now
+   * @param rejected  hashes turned away because the queue was full
+   */
+  public record Stats(LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot hash, int queued,
+                      long rejected) {
+  }
+
+  private final Settings settings;
+  private final ThreadPoolExecutor executor;
+  private final LatencyHistogram queueWait = new LatencyHistogram();
+  private final LatencyHistogram hashTime = new LatencyHistogram();
+  private final LongAdder rejected = new LongAdder();
+
+  public PasswordHasher(Settings settings) {
+    this.settings = settings;
+    BlockingQueue<Runnable> queue = (settings.maxQueued() == 0) ? new SynchronousQueue<>()
+            : new ArrayBlockingQueue<>(settings.maxQueued());
+    this.executor = new ThreadPoolExecutor(settings.threads(), settings.threads(), 0, TimeUnit.MILLISECONDS,
+            queue, runnable -> {
+              Thread thread = new Thread(runnable, "password-hasher");
+              thread.setDaemon(true);
+              return thread;
+            });
+  }
+
+  public String hash(String password) throws DatabaseException, ServerBusyException {
+    return run(() -> BCrypt.hashpw(password, BCrypt.gensalt(settings.cost())));
+  }
+
+  /**
+   * @throws IllegalArgumentException if the stored hash isn't a BCrypt hash
+   */
+  public boolean check(String password, String storedHash) throws DatabaseException, ServerBusyException {
+    return run(() -> BCrypt.checkpw(password, storedHash));
+  }
+
+  /**
+   * Whether a stored hash was made with a different cost than new hashes use.
+   */
+  public boolean needsRehash(String storedHash) {
+    // "$2a$10$..." keeps the cost in the two digits after the version
+    if (storedHash == null || storedHash.length() < 7 || storedHash.charAt(6) != '$') {
+      return false;
+    }
+    try {
+      return Integer.parseInt(storedHash.substring(4, 6)) != settings.cost();
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Runs the work on the pool and waits for it, or rejects it if the queue is full.
+   */
+  <T> T run(Callable<T> work) throws DatabaseException, ServerBusyException {
+    long submitted = System.nanoTime();
+    Future<T> future;
+    try {
+      future = executor.submit(() -> {
+        long started = System.nanoTime();
+        queueWait.record(started - submitted);
+        try {
+          return work.call();
+        } finally {
+          hashTime.record(System.nanoTime() - started);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      throw new ServerBusyException("Error: server busy, try again");
+    }
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new DatabaseException("Interrupted waiting for password check");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException cause) {
+        throw cause;
+      }
+      throw new DatabaseException("Password check failed: " + e.getCause().getMessage());
+    }
+  }
+
+  public Stats stats() {
+    return new Stats(queueWait.snapshot(), hashTime.snapshot(), executor.getQueue().size(), rejected.sum());
+  }
+
+  /**
+   * Stops taking work; hashes already queued still finish.
+   */
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+}
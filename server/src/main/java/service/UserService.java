@@ -3,16 +3,30 @@ package service;
 import dataaccess.*;
 import model.AuthData;
 import model.UserData;
-import org.mindrot.jbcrypt.BCrypt;
 import java.util.Collection;
 import java.util.UUID;
 
-public class UserService {
+public class UserService implements AutoCloseable {
   private final DataAccess dataAccess;
+  private final PasswordHasher passwordHasher;
+  // Whether passwordHasher was made here, and so is ours to close
+  private final boolean ownsHasher;
 
+  /**
+   * Makes its own PasswordHasher; call {@link #close()} when done with the service.
+   */
   public UserService(DataAccess dataAccess) {
+    this(dataAccess, new PasswordHasher(PasswordHasher.Settings.defaults()), true);
+  }
+
+  public UserService(DataAccess dataAccess, PasswordHasher passwordHasher) {
+    this(dataAccess, passwordHasher, false);
+  }
 
+  private UserService(DataAccess dataAccess, PasswordHasher passwordHasher, boolean ownsHasher) {
     this.dataAccess=dataAccess;
+    this.passwordHasher=passwordHasher;
+    this.ownsHasher=ownsHasher;
   }
 
   public AuthData register(UserData user) throws DataAccessException, DatabaseException {
@@ -22,12 +36,14 @@ public class UserService {
       if (existingUser != null) {
         throw new DatabaseException("Error: username already taken");
       }
-      String hashedPassword = BCrypt.hashpw(user.password(), BCrypt.gensalt());
+      String hashedPassword = passwordHasher.hash(user.password());
       UserData userWithHashedPassword = new UserData(user.username(), hashedPassword, user.email());
       //create user
       dataAccess.createUser(userWithHashedPassword);
       //generate authToken
       return createAuthToken(user.username());
+    } catch (ServerBusyException e) {
+      throw e;
     } catch (DataAccessException e) {
       throw new DatabaseException("Error registering user: " + e.getMessage());
     }
@@ -47,9 +63,12 @@ public class UserService {
       }
 
       //compare passwords
-      if (!BCrypt.checkpw(loginData.password(), storedUser.password())) {
+      if (!passwordHasher.check(loginData.password(), storedUser.password())) {
         throw new WrongPasswordException("Error: wrong password");
       }
+      if (passwordHasher.needsRehash(storedUser.password())) {
+        rehash(storedUser, loginData.password());
+      }
 
       String authToken=UUID.randomUUID().toString();
       AuthData authData=new AuthData(authToken, loginData.username());
@@ -61,7 +80,20 @@ public class UserService {
     }
   }
 
-  public void logout(String authToken) throws UnauthorizedException {
+  /**
+   * Stores the password again at the current cost. The login goes ahead even
+   * if this fails; it will be tried again next time.
+   */
+  private void rehash(UserData storedUser, String password) {
+    try {
+      String hashedPassword = passwordHasher.hash(password);
+      dataAccess.updateUser(new UserData(storedUser.username(), hashedPassword, storedUser.email()));
+    } catch (DataAccessException e) {
+      System.err.println("Kept old password hash for " + storedUser.username() + ": " + e.getMessage());
+    }
+  }
+
+  public void logout(String authToken) throws UnauthorizedException, DatabaseException {
     try {
       if (dataAccess.getAuth(authToken) == null) {
         throw new UnauthorizedException("Error: unauthorized");
@@ -89,4 +121,15 @@ public class UserService {
       throw new DatabaseException("Error while creating auth token");
     }
   }
+
+  /**
+   * Shuts down the PasswordHasher this service made for itself. One passed
+   * in is left for its owner to close.
+   */
+  @Override
+  public void close() {
+    if (ownsHasher) {
+      passwordHasher.close();
+    }
+  }
 }
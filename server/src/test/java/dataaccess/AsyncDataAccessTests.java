@@ -0,0 +1,91 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AsyncDataAccessTests {
+
+  private final MemoryDataAccess backend = new MemoryDataAccess();
+
+  @Test
+  @DisplayName("Independent calls run at the same time")
+  public void concurrentCalls() throws Exception {
+    AsyncDataAccess async = new AsyncDataAccess(backend, 4);
+    // Neither call can finish until both have started
+    CountDownLatch bothStarted = new CountDownLatch(2);
+    AsyncDataAccess.Call<Boolean> waitForOther = () -> {
+      bothStarted.countDown();
+      try {
+        return bothStarted.await(5, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        throw new DataAccessException("Interrupted");
+      }
+    };
+
+    CompletableFuture<Boolean> first = async.supply(waitForOther);
+    CompletableFuture<Boolean> second = async.supply(waitForOther);
+    assertTrue(AsyncDataAccess.await(first));
+    assertTrue(AsyncDataAccess.await(second));
+    async.close();
+  }
+
+  @Test
+  @DisplayName("Failures are rethrown as the original exception")
+  public void failures() throws DataAccessException {
+    AsyncDataAccess async = new AsyncDataAccess(backend, 4);
+    backend.createAuth(new AuthData("token", "user"));
+
+    assertEquals("user", AsyncDataAccess.await(async.getAuth("token")).username());
+    assertThrows(UnauthorizedException.class, () -> AsyncDataAccess.await(async.getAuth("missing")));
+    assertThrows(BadRequestException.class, () -> AsyncDataAccess.await(async.getGame(42)));
+    async.close();
+  }
+
+  @Test
+  @DisplayName("Calls run on daemon platform threads, which JDBC can't pin")
+  public void platformThreads() throws DataAccessException {
+    AsyncDataAccess async = new AsyncDataAccess(backend, 2);
+    Thread thread = AsyncDataAccess.await(async.supply(Thread::currentThread));
+    assertFalse(thread.isVirtual());
+    assertTrue(thread.isDaemon());
+    async.close();
+  }
+
+  @Test
+  @DisplayName("No more calls than allowed reach the backend at once")
+  public void bounded() throws DataAccessException {
+    AsyncDataAccess async = new AsyncDataAccess(backend, 3);
+    AtomicInteger inside = new AtomicInteger();
+    AtomicInteger mostInside = new AtomicInteger();
+
+    List<CompletableFuture<Void>> calls = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      calls.add(async.supply(() -> {
+        mostInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(2);
+        } catch (InterruptedException e) {
+          throw new DataAccessException("Interrupted");
+        } finally {
+          inside.decrementAndGet();
+        }
+        return null;
+      }));
+    }
+    for (CompletableFuture<Void> call : calls) {
+      AsyncDataAccess.await(call);
+    }
+    assertTrue(mostInside.get() <= 3, mostInside.get() + " calls at once");
+    async.close();
+  }
+}
@@ -0,0 +1,103 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AuthCacheTests {
+
+  /**
+   * Memory backend that counts auth lookups reaching it.
+   */
+  private static class CountingBackend extends MemoryDataAccess {
+    int authReads = 0;
+
+    @Override
+    public AuthData getAuth(String authToken) throws UnauthorizedException, DatabaseException {
+      authReads++;
+      return super.getAuth(authToken);
+    }
+  }
+
+  private final CountingBackend backend = new CountingBackend();
+
+  private CachingDataAccess cache(AuthCache.Settings authSettings) {
+    return new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 0), authSettings);
+  }
+
+  @Test
+  @DisplayName("Known tokens are served from the cache")
+  public void hits() throws DataAccessException {
+    CachingDataAccess cache = cache(AuthCache.Settings.defaults());
+    cache.createAuth(new AuthData("token", "user"));
+
+    assertEquals("user", cache.getAuth("token").username());
+    assertEquals("user", cache.getAuth("token").username());
+    assertEquals(0, backend.authReads);
+    assertEquals(2, cache.authCacheStats().hits());
+  }
+
+  @Test
+  @DisplayName("Unknown tokens are rejected from the cache")
+  public void negativeCaching() {
+    CachingDataAccess cache = cache(AuthCache.Settings.defaults());
+
+    assertThrows(UnauthorizedException.class, () -> cache.getAuth("missing"));
+    assertThrows(UnauthorizedException.class, () -> cache.getAuth("missing"));
+    assertEquals(1, backend.authReads);
+
+    AuthCache.Stats stats = cache.authCacheStats();
+    assertEquals(1, stats.misses());
+    assertEquals(1, stats.negativeHits());
+    assertEquals(0.5, stats.hitRate());
+  }
+
+  @Test
+  @DisplayName("Logout takes effect immediately")
+  public void deleteInvalidates() throws DataAccessException {
+    CachingDataAccess cache = cache(AuthCache.Settings.defaults());
+    cache.createAuth(new AuthData("token", "user"));
+    cache.getAuth("token");
+
+    cache.deleteAuth("token");
+    assertThrows(UnauthorizedException.class, () -> cache.getAuth("token"));
+  }
+
+  @Test
+  @DisplayName("Clear drops cached tokens")
+  public void clearInvalidates() throws DataAccessException {
+    CachingDataAccess cache = cache(AuthCache.Settings.defaults());
+    cache.createAuth(new AuthData("token", "user"));
+
+    cache.clear();
+    assertThrows(UnauthorizedException.class, () -> cache.getAuth("token"));
+  }
+
+  @Test
+  @DisplayName("Entries expire after their TTL")
+  public void ttl() throws Exception {
+    CachingDataAccess cache = cache(new AuthCache.Settings(100, 1, 1));
+    cache.createAuth(new AuthData("token", "user"));
+    Thread.sleep(5);
+
+    assertEquals("user", cache.getAuth("token").username());
+    assertEquals(1, backend.authReads);
+  }
+
+  @Test
+  @DisplayName("Cache size stays bounded")
+  public void sizeBound() throws DataAccessException {
+    CachingDataAccess cache = cache(new AuthCache.Settings(10, 60_000, 60_000));
+    for (int i = 0; i < 50; i++) {
+      cache.createAuth(new AuthData("token" + i, "user"));
+    }
+
+    AuthCache.Stats stats = cache.authCacheStats();
+    assertTrue(stats.size() <= 10, "cache holds " + stats.size() + " tokens");
+    assertTrue(stats.evictions() >= 40);
+    // Evicted tokens are still valid, just looked up again
+    assertEquals("user", cache.getAuth("token0").username());
+  }
+}
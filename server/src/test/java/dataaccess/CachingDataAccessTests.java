@@ -0,0 +1,282 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import service.GameService;
+import service.UserService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachingDataAccessTests {
+
+  /**
+   * Memory backend that counts the game calls reaching it, and can be made
+   * to fail every write.
+   */
+  private static class CountingBackend extends MemoryDataAccess {
+    int gameReads = 0;
+    int gameWrites = 0;
+    int batches = 0;
+    volatile boolean down = false;
+
+    @Override
+    public GameData getGame(int gameID) throws BadRequestException, DatabaseException {
+      gameReads++;
+      return super.getGame(gameID);
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+      if (down) {
+        throw new DatabaseException("Error: storage unavailable");
+      }
+      gameWrites++;
+      super.updateGame(game);
+    }
+
+    @Override
+    public void updateGames(Collection<GameData> games) throws DataAccessException {
+      if (down) {
+        throw new DatabaseException("Error: storage unavailable");
+      }
+      batches++;
+      super.updateGames(games);
+    }
+  }
+
+  private static final ChessMove[] KNIGHT_SHUFFLE = {
+          new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+          new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+          new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null)
+  };
+
+  private final CountingBackend backend = new CountingBackend();
+
+  private static GameData newGame(String name) {
+    return new GameData(0, null, null, name, new ChessGame());
+  }
+
+  private static void playMoves(DataAccess dataAccess, int gameID, int count)
+          throws DataAccessException, InvalidMoveException {
+    GameData game = dataAccess.getGame(gameID);
+    for (int i = 0; i < count; i++) {
+      game.game().makeMove(KNIGHT_SHUFFLE[i]);
+      dataAccess.appendMove(game);
+    }
+  }
+
+  @Test
+  @DisplayName("Cached games are read from memory")
+  public void cachedReads() throws DataAccessException {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 60_000));
+    int gameID = cache.createGame(newGame("Game"));
+
+    GameData first = cache.getGame(gameID);
+    assertSame(first, cache.getGame(gameID));
+    assertEquals(0, backend.gameReads);
+  }
+
+  @Test
+  @DisplayName("Moves are saved in one batch on flush")
+  public void writeBehind() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 60_000));
+    int first = cache.createGame(newGame("First"));
+    int second = cache.createGame(newGame("Second"));
+    playMoves(cache, first, 3);
+    playMoves(cache, second, 2);
+
+    assertEquals(0, backend.gameWrites);
+    assertEquals(0, backend.getGame(first).game().getMoveCount());
+
+    cache.flush();
+    assertEquals(1, backend.batches);
+    assertEquals(3, backend.getGame(first).game().getMoveCount());
+    assertEquals(2, backend.getGame(second).game().getMoveCount());
+    // Saved copies are detached from the live games
+    assertNotSame(cache.getGame(first).game(), backend.getGame(first).game());
+  }
+
+  @Test
+  @DisplayName("Close saves pending moves")
+  public void closeFlushes() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 60_000));
+    int gameID = cache.createGame(newGame("Game"));
+    playMoves(cache, gameID, 1);
+
+    cache.close();
+    assertEquals(1, backend.getGame(gameID).game().getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Zero durability window writes moves through")
+  public void writeThrough() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 0));
+    int gameID = cache.createGame(newGame("Game"));
+    playMoves(cache, gameID, 2);
+
+    assertEquals(2, backend.gameWrites);
+    assertEquals(2, backend.getGame(gameID).game().getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Least recently used clean games are evicted")
+  public void eviction() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(1, 10, 60_000));
+    int dirtyGame = cache.createGame(newGame("Dirty"));
+    playMoves(cache, dirtyGame, 1);
+    int cleanGame = cache.createGame(newGame("Clean"));
+    int newest = cache.createGame(newGame("Newest"));
+
+    // The dirty game is kept until it is saved, the clean one is not
+    cache.getGame(dirtyGame);
+    cache.getGame(cleanGame);
+    assertEquals(1, backend.gameReads);
+
+    cache.flush();
+    assertEquals(1, backend.getGame(dirtyGame).game().getMoveCount());
+    assertNotNull(cache.getGame(newest));
+  }
+
+  @Test
+  @DisplayName("Clear drops cached and pending games")
+  public void clear() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 60_000));
+    int gameID = cache.createGame(newGame("Game"));
+    playMoves(cache, gameID, 1);
+
+    cache.clear();
+    cache.flush();
+    assertEquals(0, backend.batches);
+    assertThrows(BadRequestException.class, () -> cache.getGame(gameID));
+  }
+
+  @Test
+  @DisplayName("Saving a game read before it was reloaded conflicts")
+  public void staleGameConflicts() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(1, 10, 0));
+    int gameID = cache.createGame(newGame("Game"));
+    GameData stale = cache.getGame(gameID);
+    cache.createGame(newGame("Evicts the first"));
+    GameData fresh = cache.getGame(gameID);
+    fresh.game().makeMove(KNIGHT_SHUFFLE[0]);
+    cache.appendMove(fresh);
+
+    stale.game().makeMove(KNIGHT_SHUFFLE[0]);
+    assertThrows(GameConflictException.class, () -> cache.appendMove(stale));
+    assertEquals(1, backend.getGame(gameID).version());
+  }
+
+  @Test
+  @DisplayName("A seat change read before the last update conflicts")
+  public void staleSeatChangeConflicts() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 0));
+    int gameID = cache.createGame(newGame("Game"));
+    GameData first = cache.getGame(gameID);
+    GameData second = cache.getGame(gameID);
+    cache.updateGame(first.withWhiteUsername("alice"));
+
+    assertThrows(GameConflictException.class, () -> cache.updateGame(second.withWhiteUsername("bob")));
+    assertEquals("alice", backend.getGame(gameID).whiteUsername());
+    assertEquals("alice", cache.getGame(gameID).whiteUsername());
+  }
+
+  @Test
+  @DisplayName("Of two joins racing for one seat through the cache, exactly one wins")
+  public void racingJoinsOneWins() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 60_000));
+    UserService users = new UserService(cache);
+    GameService games = new GameService(cache);
+    String alice = users.register(new UserData("alice", "password", "alice@example.com")).authToken();
+    String bob = users.register(new UserData("bob", "password", "bob@example.com")).authToken();
+    for (int round = 0; round < 50; round++) {
+      int gameID = games.createGame(alice, "Game" + round);
+      CountDownLatch start = new CountDownLatch(1);
+      List<CompletableFuture<Boolean>> joins = new ArrayList<>();
+      for (String token : List.of(alice, bob)) {
+        joins.add(CompletableFuture.supplyAsync(() -> {
+          try {
+            start.await();
+            games.joinGame(token, "WHITE", gameID);
+            return true;
+          } catch (GameAlreadyTakenException e) {
+            return false;
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        }));
+      }
+      start.countDown();
+      int winners = 0;
+      for (CompletableFuture<Boolean> join : joins) {
+        winners += join.get(10, TimeUnit.SECONDS) ? 1 : 0;
+      }
+
+      assertEquals(1, winners);
+      assertEquals(cache.getGame(gameID).whiteUsername(), backend.getGame(gameID).whiteUsername());
+    }
+    games.close();
+    users.close();
+  }
+
+  @Test
+  @DisplayName("A game reloaded after losing a race to another cache holds only the stored moves")
+  public void reloadAfterConflict() throws Exception {
+    CachingDataAccess first = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 0));
+    CachingDataAccess second = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 10, 0));
+    int gameID = first.createGame(newGame("Game"));
+    GameData ours = first.getGame(gameID);
+    GameData theirs = second.getGame(gameID);
+
+    theirs.game().makeMove(KNIGHT_SHUFFLE[0]);
+    second.appendMove(theirs);
+    ours.game().makeMove(new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null));
+    assertThrows(GameConflictException.class, () -> first.appendMove(ours));
+
+    GameData reloaded = first.getGame(gameID);
+    assertNotSame(ours.game(), reloaded.game());
+    assertEquals(1, reloaded.game().getMoveCount());
+    reloaded.game().makeMove(KNIGHT_SHUFFLE[1]);
+    first.appendMove(reloaded);
+    assertEquals(2, backend.getGame(gameID).game().getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Moves past the pending limit go to the backend while it is down")
+  public void pendingLimitWhileBackendDown() throws Exception {
+    CachingDataAccess cache = new CachingDataAccess(backend, new CachingDataAccess.Settings(10, 2, 60_000));
+    int first = cache.createGame(newGame("First"));
+    int second = cache.createGame(newGame("Second"));
+    int third = cache.createGame(newGame("Third"));
+    backend.down = true;
+
+    playMoves(cache, first, 1);
+    playMoves(cache, second, 1);
+    assertThrows(DatabaseException.class, cache::flush);
+    assertEquals(2, cache.pendingGames());
+
+    // Full, so this move is written through and the failure reaches the caller
+    assertThrows(DatabaseException.class, () -> playMoves(cache, third, 1));
+    assertEquals(2, cache.pendingGames());
+    assertEquals(0, cache.getGame(third).game().getMoveCount());
+
+    backend.down = false;
+    cache.flush();
+    assertEquals(0, cache.pendingGames());
+    assertEquals(1, backend.getGame(first).game().getMoveCount());
+    playMoves(cache, third, 1);
+    assertEquals(1, cache.pendingGames());
+  }
+}
@@ -0,0 +1,168 @@
+package dataaccess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionPoolTests {
+
+  /**
+   * Stand-in for a driver connection that records what the pool did to it.
+   */
+  private static class FakeConnection {
+    boolean closed = false;
+    boolean autoCommit = true;
+    boolean valid = true;
+    int rollbacks = 0;
+
+    Connection proxy() {
+      return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+              new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "close" -> {
+                  closed = true;
+                  yield null;
+                }
+                case "isClosed" -> closed;
+                case "isValid" -> valid && !closed;
+                case "getAutoCommit" -> autoCommit;
+                case "setAutoCommit" -> {
+                  autoCommit = (Boolean) args[0];
+                  yield null;
+                }
+                case "rollback" -> {
+                  rollbacks++;
+                  yield null;
+                }
+                case "toString" -> "FakeConnection";
+                default -> null;
+              });
+    }
+  }
+
+  private final List<FakeConnection> opened = new ArrayList<>();
+
+  private ConnectionPool pool(int maxSize, long acquireTimeoutMillis, long maxLifetimeMillis) {
+    return new ConnectionPool(() -> {
+      FakeConnection connection = new FakeConnection();
+      opened.add(connection);
+      return connection.proxy();
+    }, new ConnectionPool.Settings(maxSize, acquireTimeoutMillis, 60_000, maxLifetimeMillis));
+  }
+
+  @Test
+  @DisplayName("Returned connections are reused")
+  public void reuse() throws SQLException {
+    ConnectionPool pool = pool(2, 1000, 60_000);
+    try (var conn = pool.getConnection()) {
+      assertFalse(conn.isClosed());
+    }
+    try (var conn = pool.getConnection()) {
+      assertFalse(conn.isClosed());
+    }
+
+    assertEquals(1, opened.size());
+    assertFalse(opened.get(0).closed);
+    ConnectionPool.Stats stats = pool.stats();
+    assertEquals(0, stats.active());
+    assertEquals(1, stats.idle());
+    assertEquals(2, stats.acquires());
+  }
+
+  @Test
+  @DisplayName("Acquire times out when the pool is exhausted")
+  public void acquireTimeout() throws SQLException {
+    ConnectionPool pool = pool(1, 50, 60_000);
+    try (var held = pool.getConnection()) {
+      assertThrows(SQLException.class, pool::getConnection);
+      assertEquals(1, pool.stats().active());
+    }
+    assertEquals(1, pool.stats().acquireTimeouts());
+    assertEquals(0, pool.stats().waiters());
+  }
+
+  @Test
+  @DisplayName("Waiting caller gets the next returned connection")
+  public void waiterWakes() throws Exception {
+    ConnectionPool pool = pool(1, 5000, 60_000);
+    Connection held = pool.getConnection();
+    CompletableFuture<Connection> waiting = CompletableFuture.supplyAsync(() -> {
+      try {
+        return pool.getConnection();
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (pool.stats().waiters() == 0 && System.nanoTime() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(1, pool.stats().waiters());
+    held.close();
+
+    try (var conn = waiting.get(5, TimeUnit.SECONDS)) {
+      assertFalse(conn.isClosed());
+    }
+    assertEquals(1, opened.size());
+  }
+
+  @Test
+  @DisplayName("Connections past their lifetime are closed on return")
+  public void maxLifetime() throws Exception {
+    ConnectionPool pool = pool(1, 1000, 0);
+    pool.getConnection().close();
+    pool.getConnection().close();
+
+    assertEquals(2, opened.size());
+    assertTrue(opened.get(0).closed);
+    assertEquals(0, pool.stats().idle());
+  }
+
+  @Test
+  @DisplayName("Idle connections that fail validation are replaced")
+  public void validation() throws Exception {
+    ConnectionPool pool = pool(1, 1000, 60_000);
+    pool.getConnection().close();
+    opened.get(0).valid = false;
+    Thread.sleep(600);
+
+    try (var conn = pool.getConnection()) {
+      assertFalse(conn.isClosed());
+    }
+    assertEquals(2, opened.size());
+    assertTrue(opened.get(0).closed);
+  }
+
+  @Test
+  @DisplayName("Open transactions are rolled back on return")
+  public void rollbackOnReturn() throws SQLException {
+    ConnectionPool pool = pool(1, 1000, 60_000);
+    try (var conn = pool.getConnection()) {
+      conn.setAutoCommit(false);
+    }
+    assertEquals(1, opened.get(0).rollbacks);
+    assertTrue(opened.get(0).autoCommit);
+  }
+
+  @Test
+  @DisplayName("Closed lease cannot be used or returned twice")
+  public void closedLease() throws SQLException {
+    ConnectionPool pool = pool(1, 1000, 60_000);
+    Connection conn = pool.getConnection();
+    conn.close();
+    conn.close();
+
+    assertTrue(conn.isClosed());
+    assertThrows(SQLException.class, () -> conn.prepareStatement("SELECT 1"));
+    assertEquals(1, pool.stats().idle());
+  }
+}
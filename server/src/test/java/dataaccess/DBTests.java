@@ -7,6 +7,10 @@ import chess.*;
 
 import javax.xml.crypto.Data;
 
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DBTests {
@@ -34,7 +38,7 @@ public class DBTests {
 
   @Test
   @DisplayName("Duplicate user")
-  public void duplicateUser() throws InvalidUsernameException {
+  public void duplicateUser() throws DataAccessException {
     UserData user = new UserData("testUser", "password123", "test@email.com");
     dataAccess.createUser(user);
     assertThrows(InvalidUsernameException.class, () -> dataAccess.createUser(user));
@@ -152,6 +156,113 @@ public class DBTests {
     assertEquals(2, games.size());
   }
 
+  @Test
+  @DisplayName("append move rebuilds from snapshot and log")
+  public void appendMoveSuccess() throws DataAccessException, InvalidMoveException {
+    ChessGame chessGame = new ChessGame();
+    int gameId = dataAccess.createGame(new GameData(0, null, null, "Test Game", chessGame));
+
+    // Knights out and back, past one snapshot and into the log after it
+    ChessMove[] shuffle = {
+            new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+            new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+            new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null),
+            new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null)
+    };
+    int plies = MySqlDataAccess.SNAPSHOT_INTERVAL + 3;
+    for (int i = 0; i < plies; i++) {
+      chessGame.makeMove(shuffle[i % shuffle.length]);
+      // Each save moves the stored version on, so carry it forward as a fresh read would
+      dataAccess.appendMove(new GameData(gameId, null, null, "Test Game", chessGame, i));
+    }
+
+    ChessGame loaded = dataAccess.getGame(gameId).game();
+    assertEquals(plies, loaded.getMoveCount());
+    assertEquals(chessGame.getMoveHistory(), loaded.getMoveHistory());
+    assertEquals(chessGame.getBoard(), loaded.getBoard());
+    assertEquals(chessGame.getTeamTurn(), loaded.getTeamTurn());
+  }
+
+  @Test
+  @DisplayName("archived games load from the archive and still list")
+  public void archiveFinishedGames() throws DataAccessException, InvalidMoveException {
+    ChessGame chessGame = new ChessGame();
+    int finishedId = dataAccess.createGame(new GameData(0, null, null, "Finished", chessGame));
+    int activeId = dataAccess.createGame(new GameData(0, null, null, "Active", new ChessGame()));
+    chessGame.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    dataAccess.appendMove(new GameData(finishedId, null, null, "Finished", chessGame, 0));
+    chessGame.setGameOver(true);
+    dataAccess.updateGame(new GameData(finishedId, null, null, "Finished", chessGame, 1));
+
+    Timestamp finishedBefore = new Timestamp(System.currentTimeMillis() + 60_000);
+    assertEquals(1, ((MySqlDataAccess) dataAccess).archiveFinishedGames(finishedBefore, 10));
+    assertEquals(0, ((MySqlDataAccess) dataAccess).archiveFinishedGames(finishedBefore, 10));
+
+    GameData loaded = dataAccess.getGame(finishedId);
+    assertEquals(2, loaded.version());
+    assertTrue(loaded.game().isGameOver());
+    assertEquals(chessGame.getMoveHistory(), loaded.game().getMoveHistory());
+    assertEquals(chessGame.getBoard(), loaded.game().getBoard());
+    assertNotNull(dataAccess.getGame(activeId));
+    assertEquals(2, dataAccess.listGames().size());
+    List<GameSummary> finished = dataAccess.listGameSummaries(
+            new GameQuery(0, 10, false, null, GameSummary.Status.FINISHED));
+    assertEquals(List.of(finishedId), finished.stream().map(GameSummary::gameID).toList());
+  }
+
+  @Test
+  @DisplayName("a game that just finished without a move stays hot")
+  public void archiveSkipsRecentlyFinished() throws DataAccessException {
+    ChessGame chessGame = new ChessGame();
+    int gameId = dataAccess.createGame(new GameData(0, null, null, "Resigned", chessGame));
+    chessGame.setGameOver(true);
+    dataAccess.updateGame(new GameData(gameId, null, null, "Resigned", chessGame, 0));
+
+    Timestamp anHourAgo = new Timestamp(System.currentTimeMillis() - 60 * 60_000);
+    assertEquals(0, ((MySqlDataAccess) dataAccess).archiveFinishedGames(anHourAgo, 10));
+    Timestamp soon = new Timestamp(System.currentTimeMillis() + 60_000);
+    assertEquals(1, ((MySqlDataAccess) dataAccess).archiveFinishedGames(soon, 10));
+  }
+
+  @Test
+  @DisplayName("append move rejects a stale game")
+  public void appendMoveDuplicate() throws DataAccessException, InvalidMoveException {
+    ChessGame chessGame = new ChessGame();
+    int gameId = dataAccess.createGame(new GameData(0, null, null, "Test Game", chessGame));
+    GameData gameData = new GameData(gameId, null, null, "Test Game", chessGame);
+    chessGame.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    dataAccess.appendMove(gameData);
+
+    assertThrows(GameConflictException.class, () -> dataAccess.appendMove(gameData));
+  }
+
+  @Test
+  @DisplayName("update game rejects a stale version")
+  public void updateGameConflict() throws DataAccessException {
+    int gameId = dataAccess.createGame(new GameData(0, null, null, "Test Game", initialGame));
+    GameData first = dataAccess.getGame(gameId);
+    GameData second = dataAccess.getGame(gameId);
+
+    dataAccess.updateGame(first.withBlackUsername(null));
+    assertEquals(1, dataAccess.getGame(gameId).version());
+    assertThrows(GameConflictException.class, () -> dataAccess.updateGame(second));
+    assertThrows(BadRequestException.class,
+            () -> dataAccess.updateGame(new GameData(gameId + 1, null, null, "Missing", initialGame)));
+  }
+
+  @Test
+  @DisplayName("create games in one batch")
+  public void createGamesSuccess() throws DataAccessException {
+    List<Integer> ids = dataAccess.createGames(List.of(
+            new GameData(0, null, null, "Game 1", initialGame),
+            new GameData(0, null, null, "Game 2", initialGame),
+            new GameData(0, null, null, "Game 3", initialGame)));
+
+    assertEquals(3, ids.size());
+    assertEquals(3, new HashSet<>(ids).size());
+    assertEquals("Game 3", dataAccess.getGame(ids.get(2)).gameName());
+  }
+
   @Test
   @DisplayName("create auth positive")
   public void createAuthSuccess() throws DataAccessException {
@@ -208,10 +319,37 @@ public class DBTests {
             () -> dataAccess.deleteAuth("nonexistentToken"));
   }
 
+  @Test
+  @DisplayName("Expired auth is rejected and swept")
+  public void expiredAuth() throws Exception {
+    MySqlDataAccess expiring = new MySqlDataAccess(new AuthExpiry(200, 60_000, 0));
+    expiring.createUser(new UserData("testUser", "password123", "test@email.com"));
+    expiring.createAuth(new AuthData("idleToken", "testUser"));
+    expiring.createAuth(new AuthData("usedToken", "testUser"));
+
+    for (int i = 0; i < 3; i++) {
+      Thread.sleep(100);
+      assertEquals("testUser", expiring.getAuth("usedToken").username());
+    }
+    assertThrows(UnauthorizedException.class, () -> expiring.getAuth("idleToken"));
+    assertEquals(1, expiring.deleteExpiredAuths(10));
+    assertEquals(0, expiring.deleteExpiredAuths(10));
+    assertEquals("testUser", expiring.getAuth("usedToken").username());
+  }
+
   @Test
   @DisplayName("Clear Test")
   public void clearSuccess() {
     assertDoesNotThrow(() -> dataAccess.clear());
   }
-}
 
+  @Test
+  @DisplayName("Schema is current after startup and stays so")
+  public void schemaCurrent() throws Exception {
+    DatabaseManager.createTables();
+    DatabaseManager.createTables();
+    try (var conn = DatabaseManager.getConnection()) {
+      assertEquals(DatabaseManager.latestSchemaVersion(), MigrationRunner.currentVersion(conn));
+    }
+  }
+}
@@ -0,0 +1,193 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DurableMemoryDataAccessTests {
+
+  @TempDir
+  Path directory;
+
+  private DurableMemoryDataAccess store;
+
+  private DurableMemoryDataAccess open(long commitDelayMillis) throws DataAccessException {
+    store = new DurableMemoryDataAccess(directory, new DurableMemoryDataAccess.Settings(commitDelayMillis, 1024, 0));
+    return store;
+  }
+
+  private DurableMemoryDataAccess reopen() throws DataAccessException {
+    store.close();
+    return open(0);
+  }
+
+  @AfterEach
+  public void tearDown() throws DataAccessException {
+    store.close();
+  }
+
+  private List<Path> files(String prefix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().toList();
+    }
+  }
+
+  @Test
+  @DisplayName("Mutations are replayed from the log after a restart")
+  public void replay() throws Exception {
+    DurableMemoryDataAccess data = open(0);
+    data.createUser(new UserData("user", "hash", "user@mail.com"));
+    data.createAuth(new AuthData("kept", "user"));
+    data.createAuth(new AuthData("dropped", "user"));
+    data.deleteAuth("dropped");
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    GameData game = data.getGame(gameID);
+    game.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    data.updateGame(game.withWhiteUsername("user"));
+
+    DurableMemoryDataAccess reopened = reopen();
+    assertEquals("user@mail.com", reopened.getUser("user").email());
+    assertEquals("user", reopened.getAuth("kept").username());
+    assertThrows(UnauthorizedException.class, () -> reopened.getAuth("dropped"));
+    GameData loaded = reopened.getGame(gameID);
+    assertEquals(1, loaded.version());
+    assertEquals("user", loaded.whiteUsername());
+    assertEquals(1, loaded.game().getMoveCount());
+    assertEquals(gameID + 1, reopened.createGame(new GameData(0, null, null, "Next", new ChessGame())));
+  }
+
+  @Test
+  @DisplayName("A snapshot replaces the log it covers")
+  public void snapshot() throws Exception {
+    DurableMemoryDataAccess data = open(0);
+    data.createUser(new UserData("before", "hash", null));
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    data.snapshot();
+    data.updateGame(data.getGame(gameID).withBlackUsername("after"));
+    data.createUser(new UserData("after", "hash", null));
+
+    assertEquals(1, files("snapshot-").size());
+    assertEquals(1, files("wal-").size());
+
+    DurableMemoryDataAccess reopened = reopen();
+    assertNotNull(reopened.getUser("before"));
+    assertNotNull(reopened.getUser("after"));
+    assertEquals("after", reopened.getGame(gameID).blackUsername());
+    assertEquals(1, reopened.getGame(gameID).version());
+  }
+
+  @Test
+  @DisplayName("Clear is replayed in order")
+  public void clear() throws Exception {
+    DurableMemoryDataAccess data = open(0);
+    data.createUser(new UserData("old", "hash", null));
+    data.createGame(new GameData(0, null, null, "Old", new ChessGame()));
+    data.clear();
+    int gameID = data.createGame(new GameData(0, null, null, "New", new ChessGame()));
+
+    DurableMemoryDataAccess reopened = reopen();
+    assertNull(reopened.getUser("old"));
+    assertEquals(1, reopened.listGames().size());
+    assertEquals("New", reopened.getGame(gameID).gameName());
+  }
+
+  @Test
+  @DisplayName("Swept tokens stay gone after a restart")
+  public void sweptTokens() throws Exception {
+    store = new DurableMemoryDataAccess(directory, new DurableMemoryDataAccess.Settings(0, 1024, 0),
+            new AuthExpiry(300, 60_000, 0));
+    store.createAuth(new AuthData("expired", "user"));
+    Thread.sleep(400);
+    store.createAuth(new AuthData("live", "user"));
+    assertEquals(1, store.deleteExpiredAuths(10));
+
+    DurableMemoryDataAccess reopened = reopen();
+    assertEquals("user", reopened.getAuth("live").username());
+    assertThrows(UnauthorizedException.class, () -> reopened.getAuth("expired"));
+  }
+
+  @Test
+  @DisplayName("A torn record at the end of the log is discarded")
+  public void tornTail() throws Exception {
+    DurableMemoryDataAccess data = open(0);
+    data.createUser(new UserData("whole", "hash", null));
+    data.createUser(new UserData("torn", "hash", null));
+    data.close();
+
+    try (FileChannel channel = FileChannel.open(files("wal-").get(0), StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    DurableMemoryDataAccess reopened = open(0);
+    assertNotNull(reopened.getUser("whole"));
+    assertNull(reopened.getUser("torn"));
+  }
+
+  @Test
+  @DisplayName("After a failed log write nothing more is accepted or served")
+  public void failedLogStopsStore() throws Exception {
+    DurableMemoryDataAccess data = open(0);
+    data.createUser(new UserData("logged", "hash", "logged@mail.com"));
+    // A directory where the next log file should go makes switching to it fail
+    Path next = WriteAheadLog.path(directory, files("wal-").size() + 1);
+    Files.createDirectory(next);
+
+    assertThrows(DatabaseException.class, data::snapshot);
+    assertTrue(data.logStats().failed());
+    assertThrows(DatabaseException.class, () -> data.createUser(new UserData("unlogged", "hash", null)));
+    assertThrows(DatabaseException.class, () -> data.getUser("logged"));
+
+    Files.delete(next);
+    DurableMemoryDataAccess reopened = reopen();
+    assertEquals("logged@mail.com", reopened.getUser("logged").email());
+    assertNull(reopened.getUser("unlogged"));
+  }
+
+  @Test
+  @DisplayName("Concurrent writers share syncs")
+  public void groupCommit() throws Exception {
+    DurableMemoryDataAccess data = open(5);
+    ExecutorService pool = Executors.newFixedThreadPool(32);
+    try {
+      List<CompletableFuture<Void>> writes = new ArrayList<>();
+      for (int i = 0; i < 32; i++) {
+        String token = "token" + i;
+        writes.add(CompletableFuture.runAsync(() -> {
+          try {
+            data.createAuth(new AuthData(token, "user"));
+          } catch (DataAccessException e) {
+            throw new RuntimeException(e);
+          }
+        }, pool));
+      }
+      CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).join();
+    } finally {
+      pool.shutdown();
+    }
+
+    WriteAheadLog.Stats stats = data.logStats();
+    assertEquals(32, stats.records());
+    assertTrue(stats.batches() < 32, stats.batches() + " syncs for 32 writes");
+  }
+}
@@ -0,0 +1,210 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileDataAccessTests {
+
+  @TempDir
+  Path directory;
+
+  private FileDataAccess store;
+
+  private FileDataAccess open(int maxSegmentBytes) throws DataAccessException {
+    store = new FileDataAccess(directory, new FileDataAccess.Settings(maxSegmentBytes, 0, 0, false));
+    return store;
+  }
+
+  private FileDataAccess reopen() throws DataAccessException {
+    store.close();
+    return open(64 * 1024);
+  }
+
+  @AfterEach
+  public void tearDown() throws DataAccessException {
+    store.close();
+  }
+
+  private List<Path> files(String suffix) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      return files.filter(file -> file.toString().endsWith(suffix)).sorted().toList();
+    }
+  }
+
+  @Test
+  @DisplayName("Everything survives a restart")
+  public void reopenKeepsData() throws Exception {
+    FileDataAccess data = open(64 * 1024);
+    data.createUser(new UserData("user", "hash", "user@mail.com"));
+    data.createAuth(new AuthData("kept", "user"));
+    data.createAuth(new AuthData("dropped", "user"));
+    data.deleteAuth("dropped");
+    int gameID = data.createGame(new GameData(0, "user", null, "Game", new ChessGame()));
+    GameData game = data.getGame(gameID);
+    game.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    data.updateGame(game);
+
+    FileDataAccess reopened = reopen();
+    assertEquals("user@mail.com", reopened.getUser("user").email());
+    assertEquals("user", reopened.getAuth("kept").username());
+    assertThrows(UnauthorizedException.class, () -> reopened.getAuth("dropped"));
+    GameData loaded = reopened.getGame(gameID);
+    assertEquals(1, loaded.version());
+    assertEquals(1, loaded.game().getMoveCount());
+    assertNotNull(reopened.listGameSummaries(GameQuery.all()).get(0).lastMoveTime());
+    assertEquals(gameID + 1, reopened.createGame(new GameData(0, null, null, "Next", new ChessGame())));
+  }
+
+  @Test
+  @DisplayName("Full segments are sealed and reloaded from their index")
+  public void segmentsRoll() throws Exception {
+    FileDataAccess data = open(1024);
+    for (int i = 0; i < 100; i++) {
+      data.createUser(new UserData("user" + i, "hash", null));
+    }
+    assertFalse(files(".idx").isEmpty());
+
+    data = reopen();
+    for (int i = 0; i < 100; i++) {
+      assertEquals("user" + i, data.getUser("user" + i).username());
+    }
+    assertNull(data.getUser("missing"));
+  }
+
+  @Test
+  @DisplayName("Compaction drops replaced records and keeps live ones")
+  public void compaction() throws Exception {
+    FileDataAccess data = open(1024);
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    for (int version = 0; version < 40; version++) {
+      data.updateGame(new GameData(gameID, null, null, "Game", new ChessGame(), version));
+    }
+    assertTrue(data.garbageBytes() > 0);
+    assertTrue(files(".seg").size() > 1);
+
+    data.compact();
+    assertEquals(0, data.garbageBytes());
+    assertEquals(40, data.getGame(gameID).version());
+
+    data = reopen();
+    assertEquals(40, data.getGame(gameID).version());
+    assertEquals(1, data.listGames().size());
+  }
+
+  @Test
+  @DisplayName("A torn record at the end is discarded")
+  public void tornTail() throws Exception {
+    FileDataAccess data = open(64 * 1024);
+    data.createUser(new UserData("whole", "hash", null));
+    data.createUser(new UserData("torn", "hash", null));
+    data.close();
+
+    Path segment = files(".seg").get(0);
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 3);
+    }
+
+    data = open(64 * 1024);
+    assertNotNull(data.getUser("whole"));
+    assertNull(data.getUser("torn"));
+    data.createUser(new UserData("torn", "hash", null));
+    assertNotNull(reopen().getUser("torn"));
+  }
+
+  @Test
+  @DisplayName("Stale updates conflict")
+  public void staleUpdate() throws Exception {
+    FileDataAccess data = open(64 * 1024);
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    GameData first = data.getGame(gameID);
+    GameData second = data.getGame(gameID);
+
+    data.updateGame(first.withWhiteUsername("white"));
+    assertThrows(GameConflictException.class, () -> data.updateGame(second.withBlackUsername("black")));
+    assertThrows(BadRequestException.class,
+            () -> data.updateGame(new GameData(gameID + 1, null, null, "Missing", new ChessGame())));
+  }
+
+  @Test
+  @DisplayName("Summaries page by game ID and filter")
+  public void summaries() throws Exception {
+    FileDataAccess data = open(64 * 1024);
+    List<Integer> ids = data.createGames(List.of(
+            new GameData(0, "alice", null, "One", new ChessGame()),
+            new GameData(0, "alice", "bob", "Two", new ChessGame()),
+            new GameData(0, null, null, "Three", new ChessGame())));
+
+    List<GameSummary> page = data.listGameSummaries(new GameQuery(ids.get(0), 1, true, null, null));
+    assertEquals(1, page.size());
+    assertEquals(ids.get(2), page.get(0).gameID());
+    assertEquals(2, data.listGameSummaries(new GameQuery(0, 10, false, "alice", null)).size());
+  }
+
+  @Test
+  @DisplayName("Clear removes everything on disk")
+  public void clear() throws Exception {
+    FileDataAccess data = open(64 * 1024);
+    data.createUser(new UserData("user", "hash", null));
+    data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+
+    data.clear();
+    data = reopen();
+    assertNull(data.getUser("user"));
+    assertTrue(data.listGames().isEmpty());
+  }
+
+  @Test
+  @DisplayName("I/O failures are reported as storage errors, not as bad input")
+  public void ioFailuresAreDatabaseErrors() throws Exception {
+    FileDataAccess data = open(64 * 1024);
+    data.createAuth(new AuthData("token", "user"));
+    data.close();
+
+    assertThrows(DatabaseException.class, () -> data.createUser(new UserData("user", "hash", "user@mail.com")));
+    assertThrows(DatabaseException.class, () -> data.getAuth("token"));
+    assertThrows(DatabaseException.class, () -> data.deleteAuth("token"));
+    // None of the failed calls touched what was stored
+    assertEquals("user", open(64 * 1024).getAuth("token").username());
+  }
+
+  @Test
+  @DisplayName("A batch of games that fails to save leaves none of them behind")
+  public void failedBatchSavesNothing() throws Exception {
+    FileDataAccess data = open(1024);
+    int first = data.createGame(new GameData(0, null, null, "First", new ChessGame()));
+    List<GameData> batch = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      batch.add(new GameData(0, null, null, "Round " + i, new ChessGame()));
+    }
+    // The batch needs a new segment, and a directory where its file should go makes creating it fail
+    Path blocker = Files.createDirectory(directory.resolve("00000002.seg"));
+
+    assertThrows(DatabaseException.class, () -> data.createGames(batch));
+    assertEquals(List.of(first), data.listGames().stream().map(GameData::gameID).toList());
+
+    Files.delete(blocker);
+    List<Integer> ids = data.createGames(batch);
+    assertEquals(first + 1, ids.get(0));
+    assertEquals(21, reopen().listGames().size());
+  }
+}
@@ -0,0 +1,50 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.GameStateCodec;
+import chess.InvalidMoveException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameArchiverTests {
+
+  @Test
+  @DisplayName("A compressed game state inflates back to the same game")
+  public void roundTrip() throws IOException, InvalidMoveException {
+    ChessGame game = new ChessGame();
+    // Knights out and back, so the move list repeats and compresses well
+    ChessMove[] shuffle = {
+            new ChessMove(new ChessPosition(1, 2), new ChessPosition(3, 3), null),
+            new ChessMove(new ChessPosition(8, 2), new ChessPosition(6, 3), null),
+            new ChessMove(new ChessPosition(3, 3), new ChessPosition(1, 2), null),
+            new ChessMove(new ChessPosition(6, 3), new ChessPosition(8, 2), null)
+    };
+    for (int i = 0; i < 200; i++) {
+      game.makeMove(shuffle[i % shuffle.length]);
+    }
+    game.setGameOver(true);
+    byte[] state = GameStateCodec.encode(game);
+
+    byte[] compressed = GameArchiver.compress(state);
+    assertTrue(compressed.length < state.length, compressed.length + " of " + state.length + " bytes");
+    ChessGame restored = GameStateCodec.decode(GameArchiver.decompress(compressed));
+    assertEquals(game.getMoveHistory(), restored.getMoveHistory());
+    assertEquals(game.getBoard(), restored.getBoard());
+    assertEquals(game.getWinner(), restored.getWinner());
+  }
+
+  @Test
+  @DisplayName("A truncated archive is reported rather than half read")
+  public void truncated() {
+    byte[] compressed = GameArchiver.compress(GameStateCodec.encode(new ChessGame()));
+    byte[] cut = Arrays.copyOf(compressed, compressed.length / 2);
+    assertThrows(IOException.class, () -> GameArchiver.decompress(cut));
+  }
+}
@@ -0,0 +1,43 @@
+package dataaccess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTests {
+
+  @Test
+  @DisplayName("Every value lands in a bucket that covers it, within 1/16")
+  public void buckets() {
+    for (long value = 0; value < 1_000_000; value += 7) {
+      long highest = LatencyHistogram.highestValueIn(LatencyHistogram.indexOf(value));
+      assertTrue(highest >= value, value + " reported as " + highest);
+      assertTrue(highest - value <= value / 16, value + " reported as " + highest);
+    }
+  }
+
+  @Test
+  @DisplayName("Percentiles come from the recorded distribution")
+  public void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    // 1ms to 1000ms, one of each
+    for (int millis = 1; millis <= 1000; millis++) {
+      histogram.record(millis * 1_000_000L);
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assertEquals(1000, snapshot.count());
+    assertEquals(500.5, snapshot.meanMillis(), 0.01);
+    assertEquals(500, snapshot.p50Millis(), 500 / 16.0);
+    assertEquals(900, snapshot.p90Millis(), 900 / 16.0);
+    assertEquals(990, snapshot.p99Millis(), 990 / 16.0);
+    assertEquals(1000, snapshot.maxMillis(), 0.001);
+  }
+
+  @Test
+  @DisplayName("An empty histogram reports zeros")
+  public void empty() {
+    assertEquals(new LatencyHistogram.Snapshot(0, 0, 0, 0, 0, 0, 0), new LatencyHistogram().snapshot());
+  }
+}
@@ -0,0 +1,230 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import model.AuthData;
+import model.GameData;
+import model.UserData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryDataAccessTests {
+
+  private static final int WRITERS = 64;
+
+  // Four moves that bring the board back to where it started
+  private static final ChessMove[] KNIGHT_CYCLE = {
+          new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+          new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+          new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+          new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)
+  };
+
+  @FunctionalInterface
+  private interface Writer {
+    void run(int writer) throws Exception;
+  }
+
+  private final MemoryDataAccess data = new MemoryDataAccess();
+
+  /**
+   * Runs the writer on every thread at once and waits for all of them.
+   */
+  private static void race(Writer writer) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      Future<?>[] futures = new Future<?>[WRITERS];
+      for (int i = 0; i < WRITERS; i++) {
+        int id = i;
+        futures[i] = pool.submit(() -> {
+          start.await();
+          writer.run(id);
+          return null;
+        });
+      }
+      start.countDown();
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("Concurrent game creation hands out unique IDs")
+  public void uniqueGameIDs() throws Exception {
+    race(writer -> {
+      for (int i = 0; i < 200; i++) {
+        if (i % 10 == 0) {
+          data.createGames(List.of(new GameData(0, null, null, "Batch", new ChessGame()),
+                  new GameData(0, null, null, "Batch", new ChessGame())));
+        } else {
+          data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+        }
+      }
+    });
+
+    List<GameData> games = data.listGames();
+    Set<Integer> ids = new HashSet<>();
+    for (GameData game : games) {
+      ids.add(game.gameID());
+    }
+    assertEquals(WRITERS * 220, games.size());
+    assertEquals(games.size(), ids.size());
+  }
+
+  @Test
+  @DisplayName("Only one of many racing registrations wins")
+  public void oneUserWins() throws Exception {
+    AtomicInteger created = new AtomicInteger();
+    race(writer -> {
+      try {
+        data.createUser(new UserData("contested", "hash" + writer, null));
+        created.incrementAndGet();
+      } catch (InvalidUsernameException e) {
+        // Expected for everyone but the winner
+      }
+    });
+
+    assertEquals(1, created.get());
+  }
+
+  @Test
+  @DisplayName("Racing updates to one game never lose a write")
+  public void noLostUpdates() throws Exception {
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    AtomicInteger saved = new AtomicInteger();
+    AtomicInteger conflicts = new AtomicInteger();
+    race(writer -> {
+      for (int i = 0; i < 100; i++) {
+        GameData game = data.getGame(gameID);
+        try {
+          data.updateGame(game.withWhiteUsername("writer" + writer));
+          saved.incrementAndGet();
+        } catch (GameConflictException e) {
+          conflicts.incrementAndGet();
+        }
+      }
+    });
+
+    // Every save moved the version on by exactly one
+    assertEquals(saved.get(), data.getGame(gameID).version());
+    assertEquals(WRITERS * 100, saved.get() + conflicts.get());
+  }
+
+  @Test
+  @DisplayName("A move made on a read that lost the race is not kept")
+  public void losingMoveDiscarded() throws Exception {
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    GameData winner = data.getGame(gameID);
+    GameData loser = data.getGame(gameID);
+
+    winner.game().makeMove(KNIGHT_CYCLE[0]);
+    data.appendMove(winner);
+    loser.game().makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    assertThrows(GameConflictException.class, () -> data.appendMove(loser));
+
+    GameData stored = data.getGame(gameID);
+    assertEquals(1, stored.game().getMoveCount());
+    assertEquals(1, stored.version());
+    // The losing read's board is its own; a fresh read carries on from the winner's move
+    stored.game().makeMove(KNIGHT_CYCLE[1]);
+    data.appendMove(stored);
+    assertEquals(2, data.getGame(gameID).game().getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Racing moves to one game are each saved exactly once")
+  public void noLostOrRepeatedMoves() throws Exception {
+    int gameID = data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+    AtomicInteger saved = new AtomicInteger();
+    race(writer -> {
+      for (int i = 0; i < 50; i++) {
+        GameData game = data.getGame(gameID);
+        game.game().makeMove(KNIGHT_CYCLE[game.game().getMoveCount() % KNIGHT_CYCLE.length]);
+        try {
+          data.appendMove(game);
+          saved.incrementAndGet();
+        } catch (GameConflictException e) {
+          // Another writer saved first; the move was made on our copy only
+        }
+      }
+    });
+
+    GameData stored = data.getGame(gameID);
+    assertTrue(saved.get() > 0);
+    assertEquals(saved.get(), stored.version());
+    assertEquals(saved.get(), stored.game().getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Listing while writers run sees a consistent snapshot")
+  public void listDuringWrites() throws Exception {
+    race(writer -> {
+      for (int i = 0; i < 100; i++) {
+        if (writer % 4 == 0) {
+          for (GameData game : data.listGames()) {
+            assertNotNull(game.game());
+          }
+          data.listGameSummaries(GameQuery.all());
+        } else {
+          String token = "token" + writer + "-" + i;
+          data.createAuth(new AuthData(token, "user"));
+          data.createGame(new GameData(0, null, null, "Game", new ChessGame()));
+          data.deleteAuth(token);
+        }
+      }
+    });
+
+    assertEquals(WRITERS * 3 / 4 * 100, data.listGames().size());
+    assertThrows(UnauthorizedException.class, () -> data.getAuth("token1-0"));
+  }
+
+  @Test
+  @DisplayName("Tokens expire when idle, and each use slides the expiry")
+  public void slidingExpiry() throws Exception {
+    MemoryDataAccess expiring = new MemoryDataAccess(new AuthExpiry(150, 60_000, 0));
+    expiring.createAuth(new AuthData("used", "user"));
+    expiring.createAuth(new AuthData("idle", "user"));
+
+    for (int i = 0; i < 4; i++) {
+      Thread.sleep(60);
+      assertEquals("user", expiring.getAuth("used").username());
+    }
+    assertThrows(UnauthorizedException.class, () -> expiring.getAuth("idle"));
+  }
+
+  @Test
+  @DisplayName("The sweeper deletes expired tokens in batches")
+  public void sweepExpired() throws Exception {
+    MemoryDataAccess expiring = new MemoryDataAccess(new AuthExpiry(300, 60_000, 0));
+    for (int i = 0; i < 25; i++) {
+      expiring.createAuth(new AuthData("old" + i, "user"));
+    }
+    Thread.sleep(400);
+    expiring.createAuth(new AuthData("fresh", "user"));
+
+    AuthSweeper sweeper = new AuthSweeper(expiring, new AuthSweeper.Settings(60_000, 10));
+    assertEquals(25, sweeper.sweep());
+    assertEquals(0, sweeper.sweep());
+    sweeper.close();
+    assertEquals(new BackgroundTask.Stats(2, 25), sweeper.stats());
+    assertEquals(1, expiring.listAuths().size());
+    assertEquals("user", expiring.getAuth("fresh").username());
+  }
+}
@@ -0,0 +1,125 @@
+package dataaccess;
+
+import chess.ChessGame;
+import model.AuthData;
+import model.GameData;
+import model.GameSummary;
+import model.UserData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedDataAccessTests {
+
+  private final List<MemoryDataAccess> backends = List.of(new MemoryDataAccess(), new MemoryDataAccess(),
+          new MemoryDataAccess());
+  private final ShardedDataAccess sharded = new ShardedDataAccess(new ArrayList<>(backends), 0);
+
+  private static GameData newGame(String name) {
+    return new GameData(0, null, null, name, new ChessGame());
+  }
+
+  private List<Integer> createGames(int count) throws DataAccessException {
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      ids.add(sharded.createGame(newGame("Game " + i)));
+    }
+    return ids;
+  }
+
+  @Test
+  @DisplayName("Games are spread over the shards and routed back by ID")
+  public void routing() throws DataAccessException {
+    List<Integer> ids = createGames(9);
+
+    for (MemoryDataAccess backend : backends) {
+      assertEquals(3, backend.listGames().size());
+    }
+    for (int i = 0; i < ids.size(); i++) {
+      GameData game = sharded.getGame(ids.get(i));
+      assertEquals(ids.get(i), game.gameID());
+      assertEquals("Game " + i, game.gameName());
+    }
+    assertEquals(9, ids.stream().distinct().count());
+    assertThrows(BadRequestException.class, () -> sharded.getGame(1000));
+  }
+
+  @Test
+  @DisplayName("Users and auth tokens stay on the home shard")
+  public void homeShard() throws DataAccessException {
+    sharded.createUser(new UserData("user", "hash", null));
+    sharded.createAuth(new AuthData("token", "user"));
+
+    assertNotNull(backends.get(0).getUser("user"));
+    assertNull(backends.get(1).getUser("user"));
+    assertEquals("user", sharded.getAuth("token").username());
+    sharded.deleteAuth("token");
+    assertThrows(UnauthorizedException.class, () -> backends.get(0).getAuth("token"));
+  }
+
+  @Test
+  @DisplayName("Listing merges every shard in ID order")
+  public void scatterGather() throws DataAccessException {
+    List<Integer> ids = new ArrayList<>(createGames(7));
+    ids.addAll(sharded.createGames(List.of(newGame("Batch 1"), newGame("Batch 2"))));
+
+    List<Integer> listed = sharded.listGames().stream().map(GameData::gameID).toList();
+    assertEquals(ids.stream().sorted().toList(), listed);
+  }
+
+  @Test
+  @DisplayName("Summary pages continue across shards")
+  public void summaryPaging() throws DataAccessException {
+    List<Integer> ids = createGames(10);
+    int player = ids.get(4);
+    GameData game = sharded.getGame(player);
+    sharded.updateGame(game.withWhiteUsername("alice"));
+
+    List<Integer> seen = new ArrayList<>();
+    int after = 0;
+    while (true) {
+      List<GameSummary> page = sharded.listGameSummaries(new GameQuery(after, 3, false, null, null));
+      if (page.isEmpty()) {
+        break;
+      }
+      page.forEach(summary -> seen.add(summary.gameID()));
+      after = page.get(page.size() - 1).gameID();
+    }
+    assertEquals(ids.stream().sorted().toList(), seen);
+
+    List<GameSummary> alice = sharded.listGameSummaries(new GameQuery(0, 10, false, "alice", null));
+    assertEquals(1, alice.size());
+    assertEquals(player, alice.get(0).gameID());
+  }
+
+  @Test
+  @DisplayName("Conflicts from any shard are reported with their global IDs")
+  public void batchConflicts() throws DataAccessException {
+    List<Integer> ids = createGames(3);
+    List<GameData> stale = new ArrayList<>();
+    for (int id : ids) {
+      stale.add(sharded.getGame(id));
+    }
+    sharded.updateGame(stale.get(1).withBlackUsername("bob"));
+
+    GameConflictException conflict = assertThrows(GameConflictException.class, () -> sharded.updateGames(stale));
+    assertEquals(List.of(ids.get(1)), conflict.getGameIDs());
+    assertEquals(1, sharded.getGame(ids.get(0)).version());
+  }
+
+  @Test
+  @DisplayName("Clear empties every shard")
+  public void clear() throws DataAccessException {
+    createGames(4);
+    sharded.clear();
+
+    for (MemoryDataAccess backend : backends) {
+      assertTrue(backend.listGames().isEmpty());
+    }
+    assertEquals(1, sharded.createGame(newGame("Fresh")));
+  }
+}
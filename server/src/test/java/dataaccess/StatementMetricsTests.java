@@ -0,0 +1,54 @@
+package dataaccess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementMetricsTests {
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Test
+  @DisplayName("Execute time is kept apart from the rest of the call")
+  public void phases() throws Exception {
+    StatementMetrics metrics = new StatementMetrics(10_000);
+    try (var timer = metrics.start("getGame")) {
+      timer.execute(() -> {
+        sleep(30);
+        return null;
+      });
+      sleep(20);
+    }
+
+    Map<String, StatementMetrics.OperationStats> snapshot = metrics.snapshot();
+    StatementMetrics.OperationStats stats = snapshot.get("getGame");
+    assertEquals(1, stats.total().count());
+    assertTrue(stats.execute().maxMillis() >= 30);
+    assertTrue(stats.mapping().maxMillis() >= 20);
+    assertTrue(stats.execute().maxMillis() + stats.mapping().maxMillis() <= stats.total().maxMillis() + 0.001);
+    assertEquals(0, metrics.slowCalls());
+  }
+
+  @Test
+  @DisplayName("Calls over the threshold are counted as slow")
+  public void slowCalls() {
+    StatementMetrics metrics = new StatementMetrics(5);
+    try (var timer = metrics.start("listGames")) {
+      sleep(10);
+    }
+    try (var timer = metrics.start("getAuth")) {
+      // Fast
+    }
+    assertEquals(1, metrics.slowCalls());
+    assertEquals(2, metrics.snapshot().size());
+  }
+}
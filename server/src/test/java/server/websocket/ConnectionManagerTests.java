@@ -0,0 +1,106 @@
+package server.websocket;
+
+import chess.ChessGame;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import model.GameData;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveMessage;
+import websocket.messages.NotificationMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConnectionManagerTests {
+  private ConnectionManager connectionManager;
+  private List<String> sent;
+
+  // Minimal open session that records every frame sent to it
+  private Session session() {
+    return session(() -> { });
+  }
+
+  // Same, but runs onSend after each frame; like Jetty, a null frame is refused
+  private Session session(Runnable onSend) {
+    RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+              if (method.getName().equals("sendString")) {
+                sent.add(Objects.requireNonNull((String) args[0]));
+                onSend.run();
+              }
+              return null;
+            });
+    return (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+              case "getRemote" -> remote;
+              case "isOpen" -> true;
+              case "equals" -> proxy == args[0];
+              case "hashCode" -> System.identityHashCode(proxy);
+              default -> null;
+            });
+  }
+
+  @BeforeEach
+  public void setUp() {
+    connectionManager = new ConnectionManager();
+    sent = new ArrayList<>();
+  }
+
+  @Test
+  @DisplayName("Broadcast encodes once for many recipients")
+  public void broadcastEncodesOnce() throws Exception {
+    connectionManager.add(1, "white", session(), ChessGame.TeamColor.WHITE, false);
+    for (int i = 0; i < 50; i++) {
+      connectionManager.add(1, "observer" + i, session(), null, false);
+    }
+
+    connectionManager.broadcast(1, "white", new NotificationMessage("white made a move"));
+
+    assertEquals(50, sent.size());
+    assertTrue(sent.stream().allMatch(frame -> frame == sent.get(0)));
+    BroadcastMetrics.Snapshot metrics = connectionManager.getMetrics().snapshot();
+    assertEquals(1, metrics.encodes());
+    assertEquals(1, metrics.fanOuts());
+    assertEquals(50, metrics.framesSent());
+  }
+
+  @Test
+  @DisplayName("Broadcast only reaches the given game")
+  public void broadcastToGameOnly() throws Exception {
+    connectionManager.add(1, "player1", session(), ChessGame.TeamColor.WHITE, false);
+    connectionManager.add(2, "player2", session(), ChessGame.TeamColor.WHITE, false);
+
+    connectionManager.broadcastToGame(2, new NotificationMessage("hello"));
+
+    assertEquals(1, sent.size());
+  }
+
+  @Test
+  @DisplayName("A move reaches everyone even if someone reconnects for deltas partway through")
+  public void moveDuringReconnect() throws Exception {
+    Session observer = session();
+    Session reconnected = session();
+    connectionManager.add(1, "white", session(() -> {
+      if (sent.size() == 1) {
+        connectionManager.add(1, "observer", reconnected, null, true);
+      }
+    }), ChessGame.TeamColor.WHITE, false);
+    connectionManager.add(1, "observer", observer, null, false);
+
+    ChessGame game = new ChessGame();
+    connectionManager.broadcastMove(1, new MoveMessage(null, 1, 0),
+            new LoadGameMessage(new GameData(1, null, null, "Game", game)));
+
+    // Both got the full state they had asked for when the move went out
+    assertEquals(2, sent.size());
+    assertSame(sent.get(0), sent.get(1));
+    assertNotNull(connectionManager.getConnection(reconnected));
+  }
+}
@@ -3,6 +3,7 @@ package service;
 import dataaccess.*;
 import model.AuthData;
 import model.UserData;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -23,6 +24,12 @@ public class AdminServiceTest {
     gameService = new GameService(dataAccess);
   }
 
+  @AfterEach
+  public void tearDown() {
+    gameService.close();
+    userService.close();
+  }
+
   @Test
   @DisplayName("RegisterAndLogin")
   public void registerandlogin() throws InvalidUsernameException, WrongPasswordException, DatabaseException {
@@ -1,13 +1,21 @@
 package service;
 
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
 import dataaccess.*;
 import model.UserData;
 import model.GameData;
+import model.GameSummary;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 public class GameServiceTest {
   private GameService gameService;
@@ -24,6 +32,12 @@ public class GameServiceTest {
     authToken = userService.register(userData).authToken();
   }
 
+  @AfterEach
+  public void tearDown() {
+    gameService.close();
+    userService.close();
+  }
+
   @Test
   @DisplayName("List Games Positive")
   public void testListGamesPositive() throws DataAccessException {
@@ -39,6 +53,140 @@ public class GameServiceTest {
     assertThrows(UnauthorizedException.class, () -> gameService.listGames("invalidAuthToken"));
   }
 
+  @Test
+  @DisplayName("List Game Summaries Pages")
+  public void testListGameSummariesPages() throws DataAccessException {
+    for (int i = 1; i <= 5; i++) {
+      gameService.createGame(authToken, "Game" + i);
+    }
+    List<GameSummary> first = gameService.listGameSummaries(authToken, new GameQuery(0, 2, false, null, null));
+    List<GameSummary> second = gameService.listGameSummaries(authToken,
+            new GameQuery(first.get(1).gameID(), 2, false, null, null));
+    List<GameSummary> last = gameService.listGameSummaries(authToken,
+            new GameQuery(second.get(1).gameID(), 2, false, null, null));
+
+    assertEquals(List.of("Game1", "Game2"), first.stream().map(GameSummary::gameName).toList());
+    assertEquals(List.of("Game3", "Game4"), second.stream().map(GameSummary::gameName).toList());
+    assertEquals(List.of("Game5"), last.stream().map(GameSummary::gameName).toList());
+  }
+
+  @Test
+  @DisplayName("List Game Summaries Filters")
+  public void testListGameSummariesFilters() throws Exception {
+    int joined = gameService.createGame(authToken, "Joined");
+    int full = gameService.createGame(authToken, "Full");
+    int played = gameService.createGame(authToken, "Played");
+    gameService.joinGame(authToken, "WHITE", joined);
+    gameService.joinGame(authToken, "WHITE", full);
+    gameService.joinGame(authToken, "BLACK", full);
+    gameService.resignGame(full, "testUser");
+    gameService.makeMove(played, new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    gameService.resignGame(joined, "testUser");
+
+    List<GameSummary> open = gameService.listGameSummaries(authToken, new GameQuery(0, 10, true, null, null));
+    List<GameSummary> mine = gameService.listGameSummaries(authToken, new GameQuery(0, 10, false, "testUser", null));
+    List<GameSummary> active = gameService.listGameSummaries(authToken,
+            new GameQuery(0, 10, false, null, GameSummary.Status.ACTIVE));
+
+    assertEquals(List.of(joined, played), open.stream().map(GameSummary::gameID).toList());
+    assertEquals(List.of(joined, full), mine.stream().map(GameSummary::gameID).toList());
+    assertEquals(List.of(played), active.stream().map(GameSummary::gameID).toList());
+    assertNotNull(active.get(0).lastMoveTime());
+    assertNull(open.get(0).lastMoveTime());
+  }
+
+  @Test
+  @DisplayName("Stream Game Summaries Positive")
+  public void testStreamGameSummariesPositive() throws DataAccessException {
+    for (int i = 1; i <= 3; i++) {
+      gameService.createGame(authToken, "Game" + i);
+    }
+    GameQuery query = new GameQuery(1, 10, false, null, null);
+    List<GameSummary> streamed = new ArrayList<>();
+    gameService.streamGameSummaries(authToken, query, streamed::add);
+    assertEquals(gameService.listGameSummaries(authToken, query), streamed);
+  }
+
+  @Test
+  @DisplayName("Stream Game Summaries Negative")
+  public void testStreamGameSummariesNegative() {
+    List<GameSummary> streamed = new ArrayList<>();
+    assertThrows(UnauthorizedException.class,
+            () -> gameService.streamGameSummaries("invalidAuthToken", GameQuery.all(), streamed::add));
+    assertTrue(streamed.isEmpty());
+  }
+
+  @Test
+  @DisplayName("List Game Summaries Negative")
+  public void testListGameSummariesNegative() {
+    assertThrows(UnauthorizedException.class,
+            () -> gameService.listGameSummaries("invalidAuthToken", GameQuery.all()));
+    assertThrows(IllegalArgumentException.class, () -> new GameQuery(0, 0, false, null, null));
+  }
+
+  @Test
+  @DisplayName("Stale Update Conflicts")
+  public void testStaleUpdateConflicts() throws DataAccessException {
+    int gameId = gameService.createGame(authToken, "Game");
+    GameData stale = dataAccess.getGame(gameId);
+    gameService.joinGame(authToken, "WHITE", gameId);
+
+    assertThrows(GameConflictException.class, () -> dataAccess.updateGame(stale.withBlackUsername("someone")));
+    assertEquals(1, dataAccess.getGame(gameId).version());
+  }
+
+  @FunctionalInterface
+  private interface GameUpdate {
+    void run() throws Exception;
+  }
+
+  /**
+   * Runs the update again whenever every one of the service's own retries
+   * lost; a lost update leaves nothing behind, so running it again is safe.
+   */
+  private static void retryUntilSaved(GameUpdate update) {
+    while (true) {
+      try {
+        update.run();
+        return;
+      } catch (GameConflictException e) {
+        // Try again from a fresh read
+      } catch (Exception e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  @Test
+  @DisplayName("Make Move Retries Conflict")
+  public void testMakeMoveRetriesConflict() throws Exception {
+    int gameId = gameService.createGame(authToken, "Game");
+    ChessMove[] knightCycle = {
+            new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+            new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+            new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+            new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null)
+    };
+    int rounds = 200;
+    // Seat changes race the moves, so some moves lose and are retried from a fresh read
+    CompletableFuture<Void> seats = CompletableFuture.runAsync(() -> {
+      for (int i = 0; i < rounds; i++) {
+        retryUntilSaved(() -> gameService.joinGame(authToken, "BLACK", gameId));
+        retryUntilSaved(() -> gameService.leaveGame(gameId, ChessGame.TeamColor.BLACK));
+      }
+    });
+    for (int i = 0; i < rounds; i++) {
+      ChessMove move = knightCycle[i % knightCycle.length];
+      retryUntilSaved(() -> gameService.makeMove(gameId, move));
+    }
+    seats.get(30, TimeUnit.SECONDS);
+
+    GameData stored = dataAccess.getGame(gameId);
+    assertEquals(rounds, stored.game().getMoveCount());
+    assertEquals(rounds * 3, stored.version());
+    assertNull(stored.blackUsername());
+  }
+
   @Test
   @DisplayName("Create Game Positive")
   public void testCreateGamePositive() throws DataAccessException {
@@ -52,6 +200,25 @@ public class GameServiceTest {
     assertThrows(UnauthorizedException.class, () -> gameService.createGame("invalidAuthToken", "NewGame"));
   }
 
+  @Test
+  @DisplayName("Create Games Positive")
+  public void testCreateGamesPositive() throws DataAccessException {
+    int before = gameService.createGame(authToken, "Before");
+    List<Integer> ids = gameService.createGames(authToken, List.of("Round1", "Round2", "Round3"));
+
+    assertEquals(List.of(before + 1, before + 2, before + 3), ids);
+    assertEquals("Round2", dataAccess.getGame(ids.get(1)).gameName());
+    assertEquals(before + 4, gameService.createGame(authToken, "After"));
+  }
+
+  @Test
+  @DisplayName("Create Games Negative")
+  public void testCreateGamesNegative() throws DataAccessException {
+    assertThrows(UnauthorizedException.class, () -> gameService.createGames("invalidAuthToken", List.of("Game")));
+    assertThrows(BadRequestException.class, () -> gameService.createGames(authToken, List.of("Game", "")));
+    assertTrue(gameService.listGames(authToken).isEmpty());
+  }
+
   @Test
   @DisplayName("Join Game Positive")
   public void testJoinGamePositive() throws DataAccessException {
@@ -66,4 +233,21 @@ public class GameServiceTest {
     gameService.joinGame(authToken, "WHITE", gameId);
     assertThrows(GameAlreadyTakenException.class, () -> gameService.joinGame(authToken, "WHITE", gameId)); // Trying to join as WHITE again
   }
+
+  @Test
+  @DisplayName("Open Game Positive")
+  public void testOpenGamePositive() throws DataAccessException {
+    int gameID = gameService.createGame(authToken, "Game1");
+    GameService.GameSession session = gameService.openGame(authToken, gameID);
+    assertEquals("testUser", session.auth().username());
+    assertEquals(gameID, session.game().gameID());
+  }
+
+  @Test
+  @DisplayName("Open Game Negative")
+  public void testOpenGameNegative() throws DataAccessException {
+    int gameID = gameService.createGame(authToken, "Game1");
+    assertThrows(UnauthorizedException.class, () -> gameService.openGame("invalidAuthToken", gameID));
+    assertThrows(BadRequestException.class, () -> gameService.openGame(authToken, gameID + 1));
+  }
 }
@@ -0,0 +1,82 @@
+package service;
+
+import dataaccess.DataAccessException;
+import dataaccess.ServerBusyException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PasswordHasherTests {
+
+  @Test
+  @DisplayName("Hashes check against the password they were made from")
+  public void hashAndCheck() throws DataAccessException {
+    PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(2, 4, 4));
+    String hash = hasher.hash("secret");
+
+    assertTrue(hasher.check("secret", hash));
+    assertFalse(hasher.check("wrong", hash));
+    assertThrows(IllegalArgumentException.class, () -> hasher.check("secret", "not a hash"));
+    assertEquals(4, hasher.stats().hash().count());
+    hasher.close();
+  }
+
+  @Test
+  @DisplayName("Only hashes of another cost need redoing")
+  public void needsRehash() throws DataAccessException {
+    PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 5));
+    assertFalse(hasher.needsRehash(hasher.hash("secret")));
+    assertTrue(hasher.needsRehash("$2a$04$abcdefghijklmnopqrstuu"));
+    assertFalse(hasher.needsRehash("plain"));
+    hasher.close();
+  }
+
+  @Test
+  @DisplayName("Work past the queue is rejected at once")
+  public void saturated() throws Exception {
+    PasswordHasher hasher = new PasswordHasher(new PasswordHasher.Settings(1, 1, 4));
+    // Holds the only thread until released
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CompletableFuture<Void> blocker = CompletableFuture.runAsync(() -> {
+      try {
+        hasher.run(() -> {
+          started.countDown();
+          return release.await(5, TimeUnit.SECONDS);
+        });
+      } catch (DataAccessException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    // Fills the one queue slot
+    CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> {
+      try {
+        return hasher.hash("queued");
+      } catch (DataAccessException e) {
+        throw new RuntimeException(e);
+      }
+    });
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (hasher.stats().queued() < 1 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    assertEquals(1, hasher.stats().queued());
+
+    assertThrows(ServerBusyException.class, () -> hasher.hash("another"));
+    assertEquals(1, hasher.stats().rejected());
+    release.countDown();
+    blocker.join();
+    assertNotNull(queued.join());
+
+    // The queue has drained, so there is room again
+    assertNotNull(hasher.hash("another"));
+    assertEquals(1, hasher.stats().rejected());
+    hasher.close();
+  }
+}
@@ -4,6 +4,7 @@ package service;
 import dataaccess.*;
 import model.UserData;
 import model.AuthData;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -19,6 +20,11 @@ public class UserServiceTests {
     userService = new UserService(dataAccess);
   }
 
+  @AfterEach
+  public void tearDown() {
+    userService.close();
+  }
+
   @Test
   @DisplayName("Register Positive")
   public void testRegisterPositive() throws DataAccessException {
@@ -62,6 +68,25 @@ public class UserServiceTests {
     });
   }
 
+  @Test
+  @DisplayName("Login rehashes a password stored at another cost")
+  public void loginRehash() throws DataAccessException {
+    PasswordHasher cheapHasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 4));
+    PasswordHasher strongerHasher = new PasswordHasher(new PasswordHasher.Settings(1, 4, 5));
+    UserService cheap = new UserService(dataAccess, cheapHasher);
+    cheap.register(new UserData("testUser", "password", "test@example.com"));
+    assertTrue(dataAccess.getUser("testUser").password().startsWith("$2a$04$"));
+
+    UserService stronger = new UserService(dataAccess, strongerHasher);
+    stronger.login(new UserData("testUser", "password", null));
+    UserData stored = dataAccess.getUser("testUser");
+    assertTrue(stored.password().startsWith("$2a$05$"));
+    assertEquals("test@example.com", stored.email());
+    assertNotNull(stronger.login(new UserData("testUser", "password", null)));
+    cheapHasher.close();
+    strongerHasher.close();
+  }
+
   @Test
   @DisplayName("Logout Positive")
   public void testLogoutPositive() throws DataAccessException {
@@ -0,0 +1,33 @@
+package chess;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a ChessBoard as its FEN piece placement string instead of the
+ * reflective 8x8 array of piece objects.
+ */
+public class ChessBoardAdapter extends TypeAdapter<ChessBoard> {
+
+  @Override
+  public void write(JsonWriter out, ChessBoard board) throws IOException {
+    if (board == null) {
+      out.nullValue();
+      return;
+    }
+    out.value(Fen.toPlacement(board));
+  }
+
+  @Override
+  public ChessBoard read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    return Fen.toBoard(in.nextString());
+  }
+}
@@ -3,6 +3,7 @@ package chess;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 public class ChessGame {
   private ChessBoard board;
@@ -10,6 +11,8 @@ public class ChessGame {
   private ChessRules rules;
   private boolean isGameOver;
   private TeamColor winner;
+  // Kept out of the serialized form; a loaded game starts a fresh history from its current position
+  private transient MoveHistory history = new MoveHistory();
 
   public ChessGame() {
     this.board = new ChessBoard();
@@ -20,6 +23,18 @@ public class ChessGame {
     this.winner = null;
   }
 
+  /**
+   * A game already in progress, for decoding stored state without setting up
+   * a starting board first.
+   */
+  ChessGame(ChessBoard board, TeamColor turn, boolean gameOver, TeamColor winner) {
+    this.board = board;
+    this.currentTurn = turn;
+    this.rules = new ChessRules();
+    this.isGameOver = gameOver;
+    this.winner = winner;
+  }
+
 
   // Add getter method for game over state
   public boolean isGameOver() {
@@ -84,6 +99,7 @@ public class ChessGame {
     }
 
     validateMove(move);
+    history.record(move, board, currentTurn, isGameOver, winner);
     executeMove(move);
     switchTurns();
 
@@ -217,6 +233,7 @@ public class ChessGame {
 
   public void setBoard(ChessBoard board) {
     this.board = board;
+    history.clear();
   }
 
   public ChessBoard getBoard() {
@@ -231,5 +248,51 @@ public class ChessGame {
     }
   }
 
-}
+  /**
+   * Takes back the last move played in this game.
+   *
+   * @return the move that was undone, or null if no moves have been played
+   */
+  public ChessMove undo() {
+    return history.undo(this);
+  }
+
+  /**
+   * @return number of plies recorded since the game started (or was loaded)
+   */
+  public int getMoveCount() {
+    return history.size();
+  }
+
+  /**
+   * @return the recorded moves in the order they were played
+   */
+  public List<ChessMove> getMoveHistory() {
+    return history.moves();
+  }
+
+  /**
+   * Rebuilds the game as it stood before the given ply was played, for
+   * replaying or scrubbing through a game. The current game is not changed.
+   *
+   * @param ply 0 for the starting position, up to {@link #getMoveCount()} for the current one
+   * @return an independent copy of the game at that point
+   */
+  public ChessGame positionAt(int ply) {
+    return history.positionAt(ply, this);
+  }
+
+  void restoreState(TeamColor turn, boolean gameOver, TeamColor winner) {
+    this.currentTurn = turn;
+    this.isGameOver = gameOver;
+    this.winner = winner;
+  }
 
+  boolean isGameOverFlag() {
+    return isGameOver;
+  }
+
+  MoveHistory history() {
+    return history;
+  }
+}
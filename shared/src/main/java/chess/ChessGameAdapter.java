@@ -0,0 +1,70 @@
+package chess;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes a ChessGame as {@code {"fen": ..., "gameOver": ..., "winner": ...}}
+ * and reads it back without reflection.
+ */
+public class ChessGameAdapter extends TypeAdapter<ChessGame> {
+
+  @Override
+  public void write(JsonWriter out, ChessGame game) throws IOException {
+    if (game == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    out.name("fen").value(Fen.toFen(game));
+    out.name("gameOver").value(game.isGameOverFlag());
+    if (game.getWinner() != null) {
+      out.name("winner").value(game.getWinner().name());
+    }
+    out.endObject();
+  }
+
+  @Override
+  public ChessGame read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    String fen = null;
+    boolean gameOver = false;
+    ChessGame.TeamColor winner = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      switch (in.nextName()) {
+        case "fen" -> fen = in.nextString();
+        case "gameOver" -> gameOver = in.nextBoolean();
+        case "winner" -> {
+          if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+          } else {
+            winner = ChessGame.TeamColor.valueOf(in.nextString());
+          }
+        }
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+
+    if (fen == null) {
+      throw new JsonParseException("ChessGame is missing its fen field");
+    }
+    try {
+      ChessGame game = Fen.toGame(fen);
+      game.restoreState(game.getTeamTurn(), gameOver, winner);
+      return game;
+    } catch (IllegalArgumentException e) {
+      throw new JsonParseException(e.getMessage(), e);
+    }
+  }
+}
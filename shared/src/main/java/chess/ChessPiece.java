@@ -58,6 +58,42 @@ public class ChessPiece {
         return rules.getPieceMoves(this.getPieceType(), board, myPosition);
     }
 
+    /**
+     * Encodes a piece (or an empty square) as a number from 0 to 12 so boards
+     * and move records can be stored compactly.
+     *
+     * @return 0 for null, otherwise 1 + color * 6 + type ordinal
+     */
+    public static int toCode(ChessPiece piece) {
+        if (piece == null) {
+            return 0;
+        }
+        return 1 + piece.pieceColor.ordinal() * PIECE_TYPES.length + piece.type.ordinal();
+    }
+
+    /**
+     * @return the shared piece instance for a code produced by {@link #toCode},
+     * or null for an empty square
+     */
+    public static ChessPiece fromCode(int code) {
+        if (code < 0 || code >= CODED_PIECES.length) {
+            throw new IllegalArgumentException("Invalid piece code: " + code);
+        }
+        return CODED_PIECES[code];
+    }
+
+    private static final PieceType[] PIECE_TYPES = PieceType.values();
+    private static final ChessPiece[] CODED_PIECES = new ChessPiece[1 + 2 * PIECE_TYPES.length];
+
+    static {
+        for (ChessGame.TeamColor color : ChessGame.TeamColor.values()) {
+            for (PieceType type : PIECE_TYPES) {
+                ChessPiece piece = new ChessPiece(color, type);
+                CODED_PIECES[toCode(piece)] = piece;
+            }
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {return true;}
@@ -33,6 +33,72 @@ public class ChessRules {
     return new ArrayList<>();
   }
 
+  private static final int[][] KNIGHT_OFFSETS = {
+          {2, 1}, {2, -1}, {-2, 1}, {-2, -1}, {1, 2}, {1, -2}, {-1, 2}, {-1, -2}
+  };
+  private static final int[][] KING_OFFSETS = {
+          {1, 0}, {-1, 0}, {0, 1}, {0, -1}, {1, 1}, {1, -1}, {-1, 1}, {-1, -1}
+  };
+  private static final int[][] STRAIGHT_DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+  private static final int[][] DIAGONAL_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+  /**
+   * Checks whether any piece of the given color attacks a square, by looking
+   * outward from the square instead of generating every opposing move.
+   */
+  public static boolean isSquareAttacked(ChessBoard board, ChessPosition square, ChessGame.TeamColor byColor) {
+    int row = square.getRow();
+    int col = square.getColumn();
+
+    int pawnRow = (byColor == ChessGame.TeamColor.WHITE) ? row - 1 : row + 1;
+    if (isPieceAt(board, pawnRow, col - 1, byColor, ChessPiece.PieceType.PAWN)
+            || isPieceAt(board, pawnRow, col + 1, byColor, ChessPiece.PieceType.PAWN)) {
+      return true;
+    }
+    for (int[] offset : KNIGHT_OFFSETS) {
+      if (isPieceAt(board, row + offset[0], col + offset[1], byColor, ChessPiece.PieceType.KNIGHT)) {
+        return true;
+      }
+    }
+    for (int[] offset : KING_OFFSETS) {
+      if (isPieceAt(board, row + offset[0], col + offset[1], byColor, ChessPiece.PieceType.KING)) {
+        return true;
+      }
+    }
+    return isAttackedAlong(board, row, col, STRAIGHT_DIRECTIONS, byColor, ChessPiece.PieceType.ROOK)
+            || isAttackedAlong(board, row, col, DIAGONAL_DIRECTIONS, byColor, ChessPiece.PieceType.BISHOP);
+  }
+
+  private static boolean isAttackedAlong(ChessBoard board, int row, int col, int[][] directions,
+                                         ChessGame.TeamColor byColor, ChessPiece.PieceType slider) {
+    for (int[] direction : directions) {
+      int r = row + direction[0];
+      int c = col + direction[1];
+      while (r >= 1 && r <= 8 && c >= 1 && c <= 8) {
+        ChessPiece piece = board.getPiece(new ChessPosition(r, c));
+        if (piece != null) {
+          if (piece.getTeamColor() == byColor
+                  && (piece.getPieceType() == slider || piece.getPieceType() == ChessPiece.PieceType.QUEEN)) {
+            return true;
+          }
+          break;
+        }
+        r += direction[0];
+        c += direction[1];
+      }
+    }
+    return false;
+  }
+
+  private static boolean isPieceAt(ChessBoard board, int row, int col, ChessGame.TeamColor color,
+                                   ChessPiece.PieceType type) {
+    if (row < 1 || row > 8 || col < 1 || col > 8) {
+      return false;
+    }
+    ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+    return piece != null && piece.getTeamColor() == color && piece.getPieceType() == type;
+  }
+
   // Example rules
   // Implementations for various piece moves
   private static Collection<ChessMove> kingMoves(ChessBoard board, ChessPosition position) {
@@ -0,0 +1,100 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation.
+ * <p>
+ * The engine has no castling, en passant or fifty-move tracking, so those
+ * fields are written as "-", "-" and 0 and ignored when reading.
+ */
+public final class Fen {
+  private static final String PIECE_LETTERS = "kqbnrp";
+
+  private Fen() {
+  }
+
+  public static String toFen(ChessGame game) {
+    String side = (game.getTeamTurn() == ChessGame.TeamColor.WHITE) ? "w" : "b";
+    int fullMove = 1 + game.getMoveCount() / 2;
+    return toPlacement(game.getBoard()) + " " + side + " - - 0 " + fullMove;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the text is not a valid FEN position
+   */
+  public static ChessGame toGame(String fen) {
+    String[] fields = fen.trim().split("\\s+");
+    ChessGame game = new ChessGame();
+    game.setBoard(toBoard(fields[0]));
+    if (fields.length > 1) {
+      game.setTeamTurn(switch (fields[1]) {
+        case "w" -> ChessGame.TeamColor.WHITE;
+        case "b" -> ChessGame.TeamColor.BLACK;
+        default -> throw new IllegalArgumentException("Invalid side to move: " + fields[1]);
+      });
+    }
+    return game;
+  }
+
+  /**
+   * @return the piece placement field, rank 8 first
+   */
+  public static String toPlacement(ChessBoard board) {
+    StringBuilder placement = new StringBuilder(72);
+    for (int row = 8; row >= 1; row--) {
+      int empty = 0;
+      for (int col = 1; col <= 8; col++) {
+        ChessPiece piece = board.getPiece(new ChessPosition(row, col));
+        if (piece == null) {
+          empty++;
+          continue;
+        }
+        if (empty > 0) {
+          placement.append(empty);
+          empty = 0;
+        }
+        char letter = PIECE_LETTERS.charAt(piece.getPieceType().ordinal());
+        placement.append(piece.getTeamColor() == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+      }
+      if (empty > 0) {
+        placement.append(empty);
+      }
+      if (row > 1) {
+        placement.append('/');
+      }
+    }
+    return placement.toString();
+  }
+
+  public static ChessBoard toBoard(String placement) {
+    ChessBoard board = new ChessBoard();
+    int row = 8;
+    int col = 1;
+    for (int i = 0; i < placement.length(); i++) {
+      char c = placement.charAt(i);
+      if (c == '/') {
+        if (col != 9) {
+          throw new IllegalArgumentException("Rank " + row + " does not have 8 squares");
+        }
+        row--;
+        col = 1;
+      } else if (c >= '1' && c <= '8') {
+        col += c - '0';
+      } else {
+        int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+        if (type < 0 || col > 8 || row < 1) {
+          throw new IllegalArgumentException("Invalid FEN placement: " + placement);
+        }
+        ChessGame.TeamColor color = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+        board.addPiece(new ChessPosition(row, col), new ChessPiece(color, ChessPiece.PieceType.values()[type]));
+        col++;
+      }
+      if (col > 9) {
+        throw new IllegalArgumentException("Invalid FEN placement: " + placement);
+      }
+    }
+    if (row != 1 || col != 9) {
+      throw new IllegalArgumentException("FEN placement must describe 8 full ranks");
+    }
+    return board;
+  }
+}
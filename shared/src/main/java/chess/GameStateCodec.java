@@ -0,0 +1,112 @@
+package chess;
+
+/**
+ * Versioned binary encoding of a ChessGame for storage.
+ * <p>
+ * Version 1 layout:
+ * <pre>
+ *   byte  0      format version
+ *   byte  1      flags: bit 0 side to move (1 = black), bit 1 game over,
+ *                bits 2-3 winner (0 none, 1 white, 2 black)
+ *   bytes 2-33   board, one 4-bit piece code per square (a1 first, low nibble first)
+ *   bytes 34-35  number of recorded plies, big endian
+ *   3 bytes/ply  packed move (15 bits) and captured piece code (4 bits), big endian
+ * </pre>
+ * The engine has no castling or en passant state, so there are no rights to
+ * store; a later version can add them behind the version byte.
+ */
+public final class GameStateCodec {
+  public static final byte VERSION = 1;
+
+  private static final int FLAGS_OFFSET = 1;
+  private static final int BOARD_OFFSET = 2;
+  private static final int BOARD_BYTES = 32;
+  private static final int COUNT_OFFSET = BOARD_OFFSET + BOARD_BYTES;
+  private static final int MOVES_OFFSET = COUNT_OFFSET + 2;
+  private static final int BYTES_PER_PLY = 3;
+  private static final int MAX_PLIES = 0xFFFF;
+
+  private GameStateCodec() {
+  }
+
+  public static byte[] encode(ChessGame game) {
+    MoveHistory history = game.history();
+    int plies = history.size();
+    if (plies > MAX_PLIES) {
+      throw new IllegalArgumentException("Game has too many moves to encode: " + plies);
+    }
+    byte[] out = new byte[MOVES_OFFSET + plies * BYTES_PER_PLY];
+    out[0] = VERSION;
+
+    int flags = (game.getTeamTurn() == ChessGame.TeamColor.BLACK) ? 1 : 0;
+    if (game.isGameOverFlag()) {
+      flags |= 1 << 1;
+    }
+    if (game.getWinner() != null) {
+      flags |= (game.getWinner().ordinal() + 1) << 2;
+    }
+    out[FLAGS_OFFSET] = (byte) flags;
+
+    ChessBoard board = game.getBoard();
+    for (int square = 0; square < 64; square++) {
+      int code = ChessPiece.toCode(board.getPiece(PackedMove.position(square)));
+      out[BOARD_OFFSET + square / 2] |= (byte) (code << ((square & 1) * 4));
+    }
+
+    out[COUNT_OFFSET] = (byte) (plies >>> 8);
+    out[COUNT_OFFSET + 1] = (byte) plies;
+    for (int i = 0; i < plies; i++) {
+      int value = history.packedMoveAt(i) | (history.capturedCodeAt(i) << 15);
+      int offset = MOVES_OFFSET + i * BYTES_PER_PLY;
+      out[offset] = (byte) (value >>> 16);
+      out[offset + 1] = (byte) (value >>> 8);
+      out[offset + 2] = (byte) value;
+    }
+    return out;
+  }
+
+  /**
+   * @throws IllegalArgumentException if the data is truncated or from an unknown version
+   */
+  public static ChessGame decode(byte[] data) {
+    if (data == null || data.length < MOVES_OFFSET) {
+      throw new IllegalArgumentException("Game state is truncated");
+    }
+    if (data[0] != VERSION) {
+      throw new IllegalArgumentException("Unsupported game state version: " + data[0]);
+    }
+
+    ChessBoard board = new ChessBoard();
+    for (int square = 0; square < 64; square++) {
+      int code = (data[BOARD_OFFSET + square / 2] >>> ((square & 1) * 4)) & 0xF;
+      if (code != 0) {
+        board.addPiece(PackedMove.position(square), ChessPiece.fromCode(code));
+      }
+    }
+
+    int flags = data[FLAGS_OFFSET];
+    ChessGame.TeamColor turn = ((flags & 1) == 1) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+    boolean gameOver = ((flags >>> 1) & 1) == 1;
+    int winnerCode = (flags >>> 2) & 0x3;
+    ChessGame.TeamColor winner = (winnerCode == 0) ? null : ChessGame.TeamColor.values()[winnerCode - 1];
+
+    ChessGame game = new ChessGame(board, turn, gameOver, winner);
+
+    int plies = ((data[COUNT_OFFSET] & 0xFF) << 8) | (data[COUNT_OFFSET + 1] & 0xFF);
+    if (data.length < MOVES_OFFSET + plies * BYTES_PER_PLY) {
+      throw new IllegalArgumentException("Game state move list is truncated");
+    }
+    if (plies > 0) {
+      int[] moves = new int[plies];
+      int[] captured = new int[plies];
+      for (int i = 0; i < plies; i++) {
+        int offset = MOVES_OFFSET + i * BYTES_PER_PLY;
+        int value = ((data[offset] & 0xFF) << 16) | ((data[offset + 1] & 0xFF) << 8) | (data[offset + 2] & 0xFF);
+        moves[i] = value & 0x7FFF;
+        captured[i] = (value >>> 15) & 0xF;
+      }
+      game.history().rebuild(board, moves, captured);
+    }
+    return game;
+  }
+}
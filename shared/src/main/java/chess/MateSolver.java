@@ -0,0 +1,156 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds forced checkmates for puzzle generation and verification.
+ * <p>
+ * This is a depth-limited AND/OR search: on the attacking side only moves
+ * that give check are tried, and on the defending side every legal reply must
+ * lose. Restricting the attacker to checks keeps the tree tiny compared to a
+ * general search, at the cost of missing mates that start with a quiet move.
+ * Moves are made and unmade in place on a private copy of the board, so
+ * separate positions can be solved in parallel.
+ */
+public final class MateSolver {
+
+  /**
+   * @param firstMove   the attacker's first move
+   * @param movesToMate number of attacker moves until mate, 1 for mate-in-one
+   */
+  public record Solution(ChessMove firstMove, int movesToMate) {
+  }
+
+  private MateSolver() {
+  }
+
+  /**
+   * Looks for the shortest all-checks mate for the side to move.
+   *
+   * @param maxMoves longest mate to look for, in attacker moves
+   * @return the solution, or null if there is no forced mate within maxMoves
+   */
+  public static Solution solve(ChessGame game, int maxMoves) {
+    return solve(game.getBoard(), game.getTeamTurn(), maxMoves);
+  }
+
+  public static Solution solve(ChessBoard board, ChessGame.TeamColor attacker, int maxMoves) {
+    if (maxMoves < 1) {
+      throw new IllegalArgumentException("maxMoves must be at least 1");
+    }
+    ChessBoard searchBoard = board.copy();
+    for (int depth = 1; depth <= maxMoves; depth++) {
+      ChessMove move = findMatingMove(searchBoard, attacker, depth);
+      if (move != null) {
+        return new Solution(move, depth);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Solves many positions at once on the common fork-join pool.
+   *
+   * @return one entry per input game, in the same order; null where no mate was found
+   */
+  public static List<Solution> solveAll(List<ChessGame> games, int maxMoves) {
+    return games.parallelStream()
+            .map(game -> solve(game, maxMoves))
+            .toList();
+  }
+
+  private static ChessMove findMatingMove(ChessBoard board, ChessGame.TeamColor attacker, int depth) {
+    for (ChessMove move : legalMoves(board, attacker, true)) {
+      ChessPiece moved = board.getPiece(move.getStartPosition());
+      ChessPiece captured = makeMove(board, move, moved);
+      boolean mates = defenderIsLost(board, attacker, depth);
+      unmakeMove(board, move, moved, captured);
+      if (mates) {
+        return move;
+      }
+    }
+    return null;
+  }
+
+  // OR node: the attacker needs one checking move after which every reply loses
+  private static boolean attackerWins(ChessBoard board, ChessGame.TeamColor attacker, int depth) {
+    return findMatingMove(board, attacker, depth) != null;
+  }
+
+  // AND node: the defender, in check, loses if there is no reply that escapes
+  private static boolean defenderIsLost(ChessBoard board, ChessGame.TeamColor attacker, int depth) {
+    ChessGame.TeamColor defender = opponent(attacker);
+    for (ChessMove reply : legalMoves(board, defender, false)) {
+      if (depth == 1) {
+        return false;
+      }
+      ChessPiece moved = board.getPiece(reply.getStartPosition());
+      ChessPiece captured = makeMove(board, reply, moved);
+      boolean stillLost = attackerWins(board, attacker, depth - 1);
+      unmakeMove(board, reply, moved, captured);
+      if (!stillLost) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<ChessMove> legalMoves(ChessBoard board, ChessGame.TeamColor color, boolean checksOnly) {
+    List<ChessMove> legal = new ArrayList<>();
+    for (int row = 1; row <= 8; row++) {
+      for (int col = 1; col <= 8; col++) {
+        ChessPosition position = new ChessPosition(row, col);
+        ChessPiece piece = board.getPiece(position);
+        if (piece == null || piece.getTeamColor() != color) {
+          continue;
+        }
+        Collection<ChessMove> candidates = ChessRules.getPieceMoves(piece.getPieceType(), board, position);
+        for (ChessMove move : candidates) {
+          ChessPiece captured = makeMove(board, move, piece);
+          if (!isInCheck(board, color) && (!checksOnly || isInCheck(board, opponent(color)))) {
+            legal.add(move);
+          }
+          unmakeMove(board, move, piece, captured);
+        }
+      }
+    }
+    return legal;
+  }
+
+  private static boolean isInCheck(ChessBoard board, ChessGame.TeamColor color) {
+    ChessPosition king = findKing(board, color);
+    return king != null && ChessRules.isSquareAttacked(board, king, opponent(color));
+  }
+
+  private static ChessPosition findKing(ChessBoard board, ChessGame.TeamColor color) {
+    for (int row = 1; row <= 8; row++) {
+      for (int col = 1; col <= 8; col++) {
+        ChessPosition position = new ChessPosition(row, col);
+        ChessPiece piece = board.getPiece(position);
+        if (piece != null && piece.getPieceType() == ChessPiece.PieceType.KING && piece.getTeamColor() == color) {
+          return position;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static ChessPiece makeMove(ChessBoard board, ChessMove move, ChessPiece moved) {
+    ChessPiece captured = board.getPiece(move.getEndPosition());
+    board.removePiece(move.getStartPosition());
+    ChessPiece.PieceType promotion = move.getPromotionPiece();
+    board.addPiece(move.getEndPosition(), promotion == null ? moved : new ChessPiece(moved.getTeamColor(), promotion));
+    return captured;
+  }
+
+  private static void unmakeMove(ChessBoard board, ChessMove move, ChessPiece moved, ChessPiece captured) {
+    board.addPiece(move.getStartPosition(), moved);
+    board.addPiece(move.getEndPosition(), captured);
+  }
+
+  private static ChessGame.TeamColor opponent(ChessGame.TeamColor color) {
+    return (color == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
+  }
+}
@@ -0,0 +1,207 @@
+package chess;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact log of the moves played in a ChessGame.
+ * <p>
+ * Each ply is stored as a packed move plus a packed undo record (the moved
+ * piece, the captured piece and the game-over state before the move), so
+ * takebacks don't need a board copy per move. A full board checkpoint is kept
+ * every {@link #CHECKPOINT_INTERVAL} plies so rebuilding any earlier position
+ * replays at most that many moves.
+ */
+class MoveHistory {
+  static final int CHECKPOINT_INTERVAL = 32;
+
+  private int[] moves = new int[16];
+  private int[] undoRecords = new int[16];
+  private int size = 0;
+  private final List<Checkpoint> checkpoints = new ArrayList<>();
+
+  /**
+   * Board state before the ply with index {@code checkpointIndex * CHECKPOINT_INTERVAL}
+   */
+  private record Checkpoint(ChessBoard board, ChessGame.TeamColor turn, boolean gameOver,
+                            ChessGame.TeamColor winner) {
+  }
+
+  int size() {
+    return size;
+  }
+
+  void clear() {
+    size = 0;
+    checkpoints.clear();
+  }
+
+  /**
+   * Records a move that is about to be applied to the given board. Must be
+   * called before the board is changed.
+   */
+  void record(ChessMove move, ChessBoard board, ChessGame.TeamColor turn, boolean gameOver,
+              ChessGame.TeamColor winner) {
+    int moved = ChessPiece.toCode(board.getPiece(move.getStartPosition()));
+    int captured = ChessPiece.toCode(board.getPiece(move.getEndPosition()));
+    append(PackedMove.pack(move), packUndo(moved, captured, gameOver, winner), board, turn, gameOver, winner);
+  }
+
+  private void append(int move, int undo, ChessBoard board, ChessGame.TeamColor turn, boolean gameOver,
+                      ChessGame.TeamColor winner) {
+    if (size % CHECKPOINT_INTERVAL == 0 && checkpoints.size() == size / CHECKPOINT_INTERVAL) {
+      checkpoints.add(new Checkpoint(board.copy(), turn, gameOver, winner));
+    }
+    if (size == moves.length) {
+      moves = Arrays.copyOf(moves, size * 2);
+      undoRecords = Arrays.copyOf(undoRecords, size * 2);
+    }
+    moves[size] = move;
+    undoRecords[size] = undo;
+    size++;
+  }
+
+  /**
+   * Replaces the history with moves loaded from storage. The position before
+   * the first move is recovered by unwinding the moves from the current board,
+   * so only the captured piece of each ply needs to be stored alongside it.
+   *
+   * @param current       the board after the last move; not modified
+   * @param packedMoves   moves in play order, as produced by {@link PackedMove#pack}
+   * @param capturedCodes piece code of whatever was captured on each ply, 0 for none
+   */
+  void rebuild(ChessBoard current, int[] packedMoves, int[] capturedCodes) {
+    int count = packedMoves.length;
+    ChessBoard board = current.copy();
+    int[] movedCodes = new int[count];
+    for (int i = count - 1; i >= 0; i--) {
+      int move = packedMoves[i];
+      ChessPosition start = PackedMove.position(PackedMove.from(move));
+      ChessPosition end = PackedMove.position(PackedMove.to(move));
+      ChessPiece piece = board.getPiece(end);
+      if (piece == null) {
+        throw new IllegalArgumentException("Move history does not match the board at ply " + i);
+      }
+      if (PackedMove.promotion(move) != null) {
+        piece = new ChessPiece(piece.getTeamColor(), ChessPiece.PieceType.PAWN);
+      }
+      board.addPiece(start, piece);
+      board.addPiece(end, ChessPiece.fromCode(capturedCodes[i]));
+      movedCodes[i] = ChessPiece.toCode(piece);
+    }
+
+    clear();
+    for (int i = 0; i < count; i++) {
+      ChessGame.TeamColor turn = ChessPiece.fromCode(movedCodes[i]).getTeamColor();
+      append(packedMoves[i], packUndo(movedCodes[i], capturedCodes[i], false, null), board, turn, false, null);
+      applyMove(board, packedMoves[i]);
+    }
+  }
+
+  int packedMoveAt(int ply) {
+    return moves[ply];
+  }
+
+  int capturedCodeAt(int ply) {
+    return (undoRecords[ply] >>> 4) & 0xF;
+  }
+
+  /**
+   * Removes the last ply and restores its squares on the given board.
+   *
+   * @return the undone move, or null if there is nothing to undo
+   */
+  ChessMove undo(ChessGame game) {
+    if (size == 0) {
+      return null;
+    }
+    size--;
+    int move = moves[size];
+    int undo = undoRecords[size];
+    ChessBoard board = game.getBoard();
+    ChessPiece moved = ChessPiece.fromCode(undo & 0xF);
+    board.addPiece(PackedMove.position(PackedMove.from(move)), moved);
+    board.addPiece(PackedMove.position(PackedMove.to(move)), ChessPiece.fromCode((undo >>> 4) & 0xF));
+    game.restoreState(moved.getTeamColor(), unpackGameOver(undo), unpackWinner(undo));
+
+    // Checkpoints past the new end describe positions that no longer exist
+    int keep = size / CHECKPOINT_INTERVAL + 1;
+    while (checkpoints.size() > keep) {
+      checkpoints.remove(checkpoints.size() - 1);
+    }
+    if (size == 0) {
+      checkpoints.clear();
+    }
+    return PackedMove.unpack(move);
+  }
+
+  ChessMove moveAt(int ply) {
+    checkPly(ply, size - 1);
+    return PackedMove.unpack(moves[ply]);
+  }
+
+  List<ChessMove> moves() {
+    List<ChessMove> result = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      result.add(PackedMove.unpack(moves[i]));
+    }
+    return result;
+  }
+
+  /**
+   * Rebuilds the game as it stood before the given ply, starting from the
+   * nearest earlier checkpoint.
+   */
+  ChessGame positionAt(int ply, ChessGame current) {
+    checkPly(ply, size);
+    ChessGame snapshot = new ChessGame();
+    if (ply == size) {
+      snapshot.setBoard(current.getBoard().copy());
+      snapshot.restoreState(current.getTeamTurn(), current.isGameOverFlag(), current.getWinner());
+      return snapshot;
+    }
+
+    Checkpoint checkpoint = checkpoints.get(ply / CHECKPOINT_INTERVAL);
+    ChessBoard board = checkpoint.board().copy();
+    for (int i = (ply / CHECKPOINT_INTERVAL) * CHECKPOINT_INTERVAL; i < ply; i++) {
+      applyMove(board, moves[i]);
+    }
+    int undo = undoRecords[ply];
+    ChessGame.TeamColor turn = ChessPiece.fromCode(undo & 0xF).getTeamColor();
+    snapshot.setBoard(board);
+    snapshot.restoreState(turn, unpackGameOver(undo), unpackWinner(undo));
+    return snapshot;
+  }
+
+  private static void applyMove(ChessBoard board, int move) {
+    ChessPosition start = PackedMove.position(PackedMove.from(move));
+    ChessPosition end = PackedMove.position(PackedMove.to(move));
+    ChessPiece piece = board.removePiece(start);
+    ChessPiece.PieceType promotion = PackedMove.promotion(move);
+    if (promotion != null) {
+      piece = new ChessPiece(piece.getTeamColor(), promotion);
+    }
+    board.addPiece(end, piece);
+  }
+
+  private static int packUndo(int moved, int captured, boolean gameOver, ChessGame.TeamColor winner) {
+    int winnerCode = (winner == null) ? 0 : winner.ordinal() + 1;
+    return moved | (captured << 4) | ((gameOver ? 1 : 0) << 8) | (winnerCode << 9);
+  }
+
+  private static boolean unpackGameOver(int undo) {
+    return ((undo >>> 8) & 1) == 1;
+  }
+
+  private static ChessGame.TeamColor unpackWinner(int undo) {
+    int code = (undo >>> 9) & 0x3;
+    return (code == 0) ? null : ChessGame.TeamColor.values()[code - 1];
+  }
+
+  private static void checkPly(int ply, int max) {
+    if (ply < 0 || ply > max) {
+      throw new IllegalArgumentException("Ply " + ply + " is outside the recorded history");
+    }
+  }
+}
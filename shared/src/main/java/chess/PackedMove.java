@@ -0,0 +1,50 @@
+package chess;
+
+/**
+ * Packs a ChessMove into a single int so move lists can be stored without
+ * allocating a ChessMove and two ChessPositions per ply.
+ * <p>
+ * Layout (low bits first): 6 bits start square, 6 bits end square,
+ * 3 bits promotion piece (0 for none, otherwise PieceType ordinal + 1).
+ */
+public final class PackedMove {
+
+  private PackedMove() {
+  }
+
+  public static int pack(ChessMove move) {
+    int from = squareIndex(move.getStartPosition());
+    int to = squareIndex(move.getEndPosition());
+    ChessPiece.PieceType promotion = move.getPromotionPiece();
+    int promotionCode = (promotion == null) ? 0 : promotion.ordinal() + 1;
+    return from | (to << 6) | (promotionCode << 12);
+  }
+
+  public static ChessMove unpack(int packed) {
+    return new ChessMove(position(from(packed)), position(to(packed)), promotion(packed));
+  }
+
+  public static int from(int packed) {
+    return packed & 0x3F;
+  }
+
+  public static int to(int packed) {
+    return (packed >>> 6) & 0x3F;
+  }
+
+  public static ChessPiece.PieceType promotion(int packed) {
+    int code = (packed >>> 12) & 0x7;
+    return (code == 0) ? null : ChessPiece.PieceType.values()[code - 1];
+  }
+
+  /**
+   * @return 0-63 index of the square, a1 = 0, h8 = 63
+   */
+  public static int squareIndex(ChessPosition position) {
+    return (position.getRow() - 1) * 8 + (position.getColumn() - 1);
+  }
+
+  public static ChessPosition position(int squareIndex) {
+    return new ChessPosition(squareIndex / 8 + 1, squareIndex % 8 + 1);
+  }
+}
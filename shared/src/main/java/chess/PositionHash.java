@@ -0,0 +1,42 @@
+package chess;
+
+import java.util.Random;
+
+/**
+ * Zobrist hash of a position (pieces and side to move). Server and client
+ * compute it independently to confirm they hold the same board after
+ * applying a move. The key table comes from a fixed seed, so every JVM
+ * produces the same hash for the same position.
+ */
+public final class PositionHash {
+  private static final long[][] PIECE_KEYS = new long[13][64];
+  private static final long BLACK_TO_MOVE_KEY;
+
+  static {
+    Random random = new Random(0x240C4E55L);
+    for (int code = 1; code < PIECE_KEYS.length; code++) {
+      for (int square = 0; square < 64; square++) {
+        PIECE_KEYS[code][square] = random.nextLong();
+      }
+    }
+    BLACK_TO_MOVE_KEY = random.nextLong();
+  }
+
+  private PositionHash() {
+  }
+
+  public static long of(ChessGame game) {
+    return of(game.getBoard(), game.getTeamTurn());
+  }
+
+  public static long of(ChessBoard board, ChessGame.TeamColor turn) {
+    long hash = (turn == ChessGame.TeamColor.BLACK) ? BLACK_TO_MOVE_KEY : 0L;
+    for (int square = 0; square < 64; square++) {
+      int code = ChessPiece.toCode(board.getPiece(PackedMove.position(square)));
+      if (code != 0) {
+        hash ^= PIECE_KEYS[code][square];
+      }
+    }
+    return hash;
+  }
+}
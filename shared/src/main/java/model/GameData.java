@@ -2,6 +2,26 @@ package model;
 
 import chess.ChessGame;
 
-public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+/**
+ * @param version how many times the stored game had been updated when this was read; storage
+ *                uses it to reject an update based on a stale read
+ */
+public record GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game,
+                       int version) {
 
+  public GameData(int gameID, String whiteUsername, String blackUsername, String gameName, ChessGame game) {
+    this(gameID, whiteUsername, blackUsername, gameName, game, 0);
+  }
+
+  public GameData withWhiteUsername(String username) {
+    return new GameData(gameID, username, blackUsername, gameName, game, version);
+  }
+
+  public GameData withBlackUsername(String username) {
+    return new GameData(gameID, whiteUsername, username, gameName, game, version);
+  }
+
+  public GameData withVersion(int newVersion) {
+    return new GameData(gameID, whiteUsername, blackUsername, gameName, game, newVersion);
+  }
 }
@@ -0,0 +1,69 @@
+package model;
+
+import chess.ChessGame;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Writes GameData field by field, handing the game itself to the registered
+ * ChessGame adapter, so records don't go through reflective binding.
+ */
+public class GameDataAdapter extends TypeAdapter<GameData> {
+  private final TypeAdapter<ChessGame> gameAdapter;
+
+  public GameDataAdapter(TypeAdapter<ChessGame> gameAdapter) {
+    this.gameAdapter = gameAdapter;
+  }
+
+  @Override
+  public void write(JsonWriter out, GameData data) throws IOException {
+    if (data == null) {
+      out.nullValue();
+      return;
+    }
+    out.beginObject();
+    out.name("gameID").value(data.gameID());
+    out.name("whiteUsername").value(data.whiteUsername());
+    out.name("blackUsername").value(data.blackUsername());
+    out.name("gameName").value(data.gameName());
+    out.name("game");
+    gameAdapter.write(out, data.game());
+    out.endObject();
+  }
+
+  @Override
+  public GameData read(JsonReader in) throws IOException {
+    if (in.peek() == JsonToken.NULL) {
+      in.nextNull();
+      return null;
+    }
+    int gameID = 0;
+    String whiteUsername = null;
+    String blackUsername = null;
+    String gameName = null;
+    ChessGame game = null;
+
+    in.beginObject();
+    while (in.hasNext()) {
+      String name = in.nextName();
+      if (in.peek() == JsonToken.NULL) {
+        in.nextNull();
+        continue;
+      }
+      switch (name) {
+        case "gameID" -> gameID = in.nextInt();
+        case "whiteUsername" -> whiteUsername = in.nextString();
+        case "blackUsername" -> blackUsername = in.nextString();
+        case "gameName" -> gameName = in.nextString();
+        case "game" -> game = gameAdapter.read(in);
+        default -> in.skipValue();
+      }
+    }
+    in.endObject();
+    return new GameData(gameID, whiteUsername, blackUsername, gameName, game);
+  }
+}
@@ -0,0 +1,23 @@
+package model;
+
+/**
+ * Lobby view of a game: everything the game list shows, without the board.
+ *
+ * @param lastMoveTime epoch milliseconds of the most recent move, or null if no move has been made
+ */
+public record GameSummary(int gameID, String gameName, String whiteUsername, String blackUsername,
+                          Status status, Long lastMoveTime) {
+
+  public enum Status {
+    ACTIVE,
+    FINISHED
+  }
+
+  public boolean hasOpenSeat() {
+    return whiteUsername == null || blackUsername == null;
+  }
+
+  public boolean hasPlayer(String username) {
+    return username.equals(whiteUsername) || username.equals(blackUsername);
+  }
+}
@@ -0,0 +1,37 @@
+package serialization;
+
+import chess.ChessBoard;
+import chess.ChessBoardAdapter;
+import chess.ChessGame;
+import chess.ChessGameAdapter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import model.GameData;
+import model.GameDataAdapter;
+
+/**
+ * Builds the Gson instance shared by the server and client, with compact
+ * FEN-based adapters registered for boards, games and game data.
+ */
+public final class GsonFactory {
+  private static final Gson GSON = create();
+
+  private GsonFactory() {
+  }
+
+  /**
+   * @return the shared instance; Gson is thread-safe, so callers don't need their own
+   */
+  public static Gson gson() {
+    return GSON;
+  }
+
+  public static Gson create() {
+    ChessGameAdapter gameAdapter = new ChessGameAdapter();
+    return new GsonBuilder()
+            .registerTypeAdapter(ChessBoard.class, new ChessBoardAdapter())
+            .registerTypeAdapter(ChessGame.class, gameAdapter)
+            .registerTypeAdapter(GameData.class, new GameDataAdapter(gameAdapter))
+            .create();
+  }
+}
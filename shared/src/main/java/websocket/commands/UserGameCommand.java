@@ -17,6 +17,8 @@ public class UserGameCommand {
 
     public Integer gameID;
     private ChessMove move;
+    // Set on CONNECT by clients that can apply MOVE messages instead of a full LOAD_GAME per move
+    private Boolean deltaUpdates;
 
     public UserGameCommand(String authToken, Integer gameID, ChessMove move) {
         this.commandType = CommandType.MAKE_MOVE;
@@ -37,7 +39,8 @@ public class UserGameCommand {
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        SYNC
     }
 
     public CommandType getCommandType() {
@@ -60,6 +63,14 @@ public class UserGameCommand {
         this.move = move;
     }
 
+    public boolean wantsDeltaUpdates() {
+        return Boolean.TRUE.equals(deltaUpdates);
+    }
+
+    public void setDeltaUpdates(boolean deltaUpdates) {
+        this.deltaUpdates = deltaUpdates;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) {
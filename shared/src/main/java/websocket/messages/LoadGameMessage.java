@@ -1,17 +1,23 @@
 package websocket.messages;
 
-import chess.ChessGame;
 import model.GameData;
 
 public class LoadGameMessage extends ServerMessage {
   private final GameData game;
+  // Plies played so far, so delta-update clients know which MOVE comes next
+  private final Integer sequence;
 
   public LoadGameMessage(GameData game) {
     super(ServerMessageType.LOAD_GAME);
     this.game =game;
+    this.sequence = (game != null && game.game() != null) ? game.game().getMoveCount() : null;
   }
 
   public GameData getGame() {
     return game;
   }
+
+  public Integer getSequence() {
+    return sequence;
+  }
 }
\ No newline at end of file
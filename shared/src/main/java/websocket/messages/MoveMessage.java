@@ -0,0 +1,37 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * Sent instead of a full LOAD_GAME to clients that asked for delta updates.
+ * The client applies the move to its own copy of the game; if the sequence
+ * number skips or the resulting position hash differs, it asks for a resync.
+ */
+public class MoveMessage extends ServerMessage {
+  private final ChessMove move;
+  private final int sequence;
+  private final long positionHash;
+
+  /**
+   * @param sequence     number of plies played once this move is applied
+   * @param positionHash {@link chess.PositionHash} of the position after the move
+   */
+  public MoveMessage(ChessMove move, int sequence, long positionHash) {
+    super(ServerMessageType.MOVE);
+    this.move = move;
+    this.sequence = sequence;
+    this.positionHash = positionHash;
+  }
+
+  public ChessMove getMove() {
+    return move;
+  }
+
+  public int getSequence() {
+    return sequence;
+  }
+
+  public long getPositionHash() {
+    return positionHash;
+  }
+}
@@ -0,0 +1,128 @@
+package chess;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Guards the allocation cost of the engine hot paths. Each operation is
+ * warmed up so the JIT has settled, then the bytes allocated by the test
+ * thread are averaged over many calls and compared against a budget.
+ * <p>
+ * Budgets are roughly twice what the engine allocates today. When engine work
+ * lowers an operation's allocation, tighten its budget here so the gain
+ * can't quietly regress.
+ */
+public class AllocationBudgetTests {
+  private static final int WARMUP_CALLS = 2_000;
+  private static final int MEASURED_CALLS = 500;
+
+  private static final long VALID_MOVES_OPENING_BUDGET = 40_000;
+  private static final long VALID_MOVES_QUEEN_BUDGET = 280_000;
+  private static final long IS_IN_CHECK_BUDGET = 16_000;
+  private static final long IS_IN_CHECKMATE_BUDGET = 200_000;
+  private static final long MAKE_MOVE_BUDGET = 250_000;
+
+  private static com.sun.management.ThreadMXBean threadBean;
+
+  @FunctionalInterface
+  private interface Operation {
+    void run() throws Exception;
+  }
+
+  @BeforeAll
+  public static void init() {
+    var bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean, "Allocation counters not available");
+    threadBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadBean.isThreadAllocatedMemorySupported(), "Allocation counters not supported");
+    threadBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  private static long allocatedBytes() {
+    return threadBean.getThreadAllocatedBytes(Thread.currentThread().threadId());
+  }
+
+  /**
+   * @param setup     run before each call, outside the measured window
+   * @param operation the call being measured
+   * @return average bytes allocated per call
+   */
+  private static long bytesPerCall(Operation setup, Operation operation) throws Exception {
+    for (int i = 0; i < WARMUP_CALLS; i++) {
+      setup.run();
+      operation.run();
+    }
+    long total = 0;
+    for (int i = 0; i < MEASURED_CALLS; i++) {
+      setup.run();
+      long before = allocatedBytes();
+      operation.run();
+      total += allocatedBytes() - before;
+    }
+    return total / MEASURED_CALLS;
+  }
+
+  private static void assertWithinBudget(String name, long budget, long actual) {
+    assertTrue(actual <= budget, name + " allocated " + actual + " bytes per call, budget is " + budget);
+  }
+
+  private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+    return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+  }
+
+  // 1. f3 e5 2. g4 Qh4#
+  private static ChessGame foolsMate() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    game.makeMove(move(2, 6, 3, 6));
+    game.makeMove(move(7, 5, 5, 5));
+    game.makeMove(move(2, 7, 4, 7));
+    game.makeMove(move(8, 4, 4, 8));
+    return game;
+  }
+
+  @Test
+  @DisplayName("validMoves allocation budget")
+  public void validMovesBudget() throws Exception {
+    ChessGame opening = new ChessGame();
+    ChessPosition knight = new ChessPosition(1, 2);
+    assertWithinBudget("validMoves (opening knight)", VALID_MOVES_OPENING_BUDGET,
+            bytesPerCall(() -> { }, () -> opening.validMoves(knight)));
+
+    ChessGame mated = foolsMate();
+    ChessPosition queen = new ChessPosition(4, 8);
+    assertWithinBudget("validMoves (attacking queen)", VALID_MOVES_QUEEN_BUDGET,
+            bytesPerCall(() -> { }, () -> mated.validMoves(queen)));
+  }
+
+  @Test
+  @DisplayName("isInCheck allocation budget")
+  public void isInCheckBudget() throws Exception {
+    ChessGame opening = new ChessGame();
+    assertWithinBudget("isInCheck", IS_IN_CHECK_BUDGET,
+            bytesPerCall(() -> { }, () -> opening.isInCheck(ChessGame.TeamColor.WHITE)));
+  }
+
+  @Test
+  @DisplayName("isInCheckmate allocation budget")
+  public void isInCheckmateBudget() throws Exception {
+    ChessGame mated = foolsMate();
+    assertTrue(mated.isInCheckmate(ChessGame.TeamColor.WHITE));
+    assertWithinBudget("isInCheckmate", IS_IN_CHECKMATE_BUDGET,
+            bytesPerCall(() -> { }, () -> mated.isInCheckmate(ChessGame.TeamColor.WHITE)));
+  }
+
+  @Test
+  @DisplayName("makeMove allocation budget")
+  public void makeMoveBudget() throws Exception {
+    ChessGame game = new ChessGame();
+    ChessMove kingsPawn = move(2, 5, 4, 5);
+    assertWithinBudget("makeMove", MAKE_MOVE_BUDGET,
+            bytesPerCall(() -> game.undo(), () -> game.makeMove(kingsPawn)));
+  }
+}
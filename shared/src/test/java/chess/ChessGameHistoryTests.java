@@ -0,0 +1,87 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChessGameHistoryTests {
+
+  private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+    return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+  }
+
+  // Knights hopping out and back; 4 plies return to the starting position
+  private static void shuffleKnights(ChessGame game) throws InvalidMoveException {
+    game.makeMove(move(1, 2, 3, 3));
+    game.makeMove(move(8, 2, 6, 3));
+    game.makeMove(move(3, 3, 1, 2));
+    game.makeMove(move(6, 3, 8, 2));
+  }
+
+  @Test
+  @DisplayName("Undo restores board, capture and turn")
+  public void undoRestoresCapture() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    game.makeMove(move(2, 5, 4, 5));
+    game.makeMove(move(7, 4, 5, 4));
+    ChessBoard beforeCapture = game.getBoard().copy();
+    game.makeMove(move(4, 5, 5, 4));
+
+    assertEquals(move(4, 5, 5, 4), game.undo());
+    assertEquals(beforeCapture, game.getBoard());
+    assertEquals(ChessGame.TeamColor.WHITE, game.getTeamTurn());
+    assertEquals(2, game.getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Undo with no moves")
+  public void undoEmpty() {
+    ChessGame game = new ChessGame();
+    assertNull(game.undo());
+    assertEquals(0, game.getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Seek across checkpoints")
+  public void positionAtAcrossCheckpoints() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    ChessBoard start = game.getBoard().copy();
+    game.makeMove(move(2, 5, 4, 5));
+    game.makeMove(move(7, 5, 5, 5));
+    ChessBoard afterOpening = game.getBoard().copy();
+    for (int i = 0; i < 20; i++) {
+      shuffleKnights(game);
+    }
+
+    assertEquals(82, game.getMoveCount());
+    assertEquals(start, game.positionAt(0).getBoard());
+    assertEquals(ChessGame.TeamColor.BLACK, game.positionAt(1).getTeamTurn());
+    assertEquals(afterOpening, game.positionAt(2).getBoard());
+    assertEquals(afterOpening, game.positionAt(66).getBoard());
+    assertEquals(ChessGame.TeamColor.WHITE, game.positionAt(66).getTeamTurn());
+    assertEquals(game.getBoard(), game.positionAt(82).getBoard());
+    assertThrows(IllegalArgumentException.class, () -> game.positionAt(83));
+  }
+
+  @Test
+  @DisplayName("Seek does not change the game")
+  public void positionAtIsIndependent() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    game.makeMove(move(2, 1, 4, 1));
+    ChessGame replay = game.positionAt(0);
+    replay.makeMove(move(2, 8, 3, 8));
+
+    assertEquals(1, game.getMoveCount());
+    assertNotNull(game.getBoard().getPiece(new ChessPosition(2, 8)));
+  }
+
+  @Test
+  @DisplayName("Packed move round trip")
+  public void packedMoveRoundTrip() {
+    ChessMove promotion = new ChessMove(new ChessPosition(7, 1), new ChessPosition(8, 2),
+            ChessPiece.PieceType.KNIGHT);
+    assertEquals(promotion, PackedMove.unpack(PackedMove.pack(promotion)));
+    assertEquals(move(1, 1, 8, 8), PackedMove.unpack(PackedMove.pack(move(1, 1, 8, 8))));
+  }
+}
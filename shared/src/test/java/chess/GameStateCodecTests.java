@@ -0,0 +1,67 @@
+package chess;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameStateCodecTests {
+
+  private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+    return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+  }
+
+  @Test
+  @DisplayName("New game round trip")
+  public void newGameRoundTrip() {
+    ChessGame game = new ChessGame();
+    byte[] encoded = GameStateCodec.encode(game);
+    ChessGame decoded = GameStateCodec.decode(encoded);
+
+    assertEquals(36, encoded.length);
+    assertEquals(game.getBoard(), decoded.getBoard());
+    assertEquals(ChessGame.TeamColor.WHITE, decoded.getTeamTurn());
+    assertEquals(0, decoded.getMoveCount());
+  }
+
+  @Test
+  @DisplayName("Moves, captures and status survive a round trip")
+  public void historyRoundTrip() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    game.makeMove(move(2, 5, 4, 5));
+    game.makeMove(move(7, 4, 5, 4));
+    ChessBoard beforeCapture = game.getBoard().copy();
+    game.makeMove(move(4, 5, 5, 4));
+    game.setGameOver(true);
+
+    ChessGame decoded = GameStateCodec.decode(GameStateCodec.encode(game));
+
+    assertEquals(game.getBoard(), decoded.getBoard());
+    assertEquals(ChessGame.TeamColor.BLACK, decoded.getTeamTurn());
+    assertEquals(ChessGame.TeamColor.WHITE, decoded.getWinner());
+    assertTrue(decoded.isGameOver());
+    assertEquals(game.getMoveHistory(), decoded.getMoveHistory());
+    assertEquals(new ChessGame().getBoard(), decoded.positionAt(0).getBoard());
+
+    decoded.undo();
+    assertEquals(beforeCapture, decoded.getBoard());
+  }
+
+  @Test
+  @DisplayName("Much smaller than JSON")
+  public void smallerThanJson() {
+    ChessGame game = new ChessGame();
+    int jsonLength = new Gson().toJson(game).length();
+    assertTrue(GameStateCodec.encode(game).length * 10 < jsonLength);
+  }
+
+  @Test
+  @DisplayName("Unknown version rejected")
+  public void unknownVersion() {
+    byte[] encoded = GameStateCodec.encode(new ChessGame());
+    encoded[0] = 99;
+    assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(encoded));
+    assertThrows(IllegalArgumentException.class, () -> GameStateCodec.decode(new byte[3]));
+  }
+}
@@ -0,0 +1,86 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static passoff.chess.TestUtilities.loadBoard;
+
+public class MateSolverTests {
+
+  private static final String BACK_RANK_MATE_IN_ONE = """
+          | | | | | | |k| |
+          | | | | | |p|p|p|
+          | | | | | | | | |
+          | | | | | | | | |
+          | | | | | | | | |
+          | | | | | | | | |
+          | | | | | |P|P|P|
+          |R| | | | | |K| |
+          """;
+
+  // Re8+ Rxe8 Rxe8#
+  private static final String DOUBLED_ROOKS_MATE_IN_TWO = """
+          | | |r| | | |k| |
+          | | | | | |p|p|p|
+          | | | | | | | | |
+          | | | | | | | | |
+          | | | | | | | | |
+          | | | | | | | | |
+          | | | | |R|P|P|P|
+          | | | | |R| |K| |
+          """;
+
+  private static ChessGame whiteToMove(String boardText) {
+    ChessGame game = new ChessGame();
+    game.setBoard(loadBoard(boardText));
+    game.setTeamTurn(ChessGame.TeamColor.WHITE);
+    return game;
+  }
+
+  @Test
+  @DisplayName("Mate in one")
+  public void mateInOne() {
+    MateSolver.Solution solution = MateSolver.solve(whiteToMove(BACK_RANK_MATE_IN_ONE), 3);
+    assertNotNull(solution);
+    assertEquals(1, solution.movesToMate());
+    assertEquals(new ChessMove(new ChessPosition(1, 1), new ChessPosition(8, 1), null), solution.firstMove());
+  }
+
+  @Test
+  @DisplayName("Mate in two needs depth two")
+  public void mateInTwo() {
+    ChessGame game = whiteToMove(DOUBLED_ROOKS_MATE_IN_TWO);
+    assertNull(MateSolver.solve(game, 1));
+
+    MateSolver.Solution solution = MateSolver.solve(game, 2);
+    assertNotNull(solution);
+    assertEquals(2, solution.movesToMate());
+    assertEquals(new ChessMove(new ChessPosition(2, 5), new ChessPosition(8, 5), null), solution.firstMove());
+  }
+
+  @Test
+  @DisplayName("Solver leaves the board untouched")
+  public void solveDoesNotChangeGame() {
+    ChessGame game = whiteToMove(DOUBLED_ROOKS_MATE_IN_TWO);
+    ChessBoard before = game.getBoard().copy();
+    MateSolver.solve(game, 3);
+    assertEquals(before, game.getBoard());
+  }
+
+  @Test
+  @DisplayName("Batch solve keeps input order")
+  public void solveAll() {
+    List<MateSolver.Solution> solutions = MateSolver.solveAll(List.of(
+            whiteToMove(BACK_RANK_MATE_IN_ONE),
+            new ChessGame(),
+            whiteToMove(DOUBLED_ROOKS_MATE_IN_TWO)), 2);
+
+    assertEquals(3, solutions.size());
+    assertEquals(1, solutions.get(0).movesToMate());
+    assertNull(solutions.get(1));
+    assertEquals(2, solutions.get(2).movesToMate());
+  }
+}
@@ -0,0 +1,51 @@
+package chess;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import serialization.GsonFactory;
+import websocket.messages.MoveMessage;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PositionHashTests {
+
+  private static ChessMove move(int startRow, int startCol, int endRow, int endCol) {
+    return new ChessMove(new ChessPosition(startRow, startCol), new ChessPosition(endRow, endCol), null);
+  }
+
+  @Test
+  @DisplayName("Same position hashes the same after a round trip")
+  public void transpositionMatches() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    long start = PositionHash.of(game);
+    game.makeMove(move(1, 2, 3, 3));
+    game.makeMove(move(8, 2, 6, 3));
+    assertNotEquals(start, PositionHash.of(game));
+    game.makeMove(move(3, 3, 1, 2));
+    game.makeMove(move(6, 3, 8, 2));
+    assertEquals(start, PositionHash.of(game));
+  }
+
+  @Test
+  @DisplayName("Side to move is part of the hash")
+  public void sideToMove() {
+    ChessGame game = new ChessGame();
+    assertNotEquals(PositionHash.of(game.getBoard(), ChessGame.TeamColor.WHITE),
+            PositionHash.of(game.getBoard(), ChessGame.TeamColor.BLACK));
+  }
+
+  @Test
+  @DisplayName("Move message keeps the full hash through JSON")
+  public void moveMessageRoundTrip() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    ChessMove kingsPawn = move(2, 5, 4, 5);
+    game.makeMove(kingsPawn);
+    MoveMessage message = new MoveMessage(kingsPawn, game.getMoveCount(), PositionHash.of(game));
+
+    MoveMessage read = GsonFactory.gson().fromJson(GsonFactory.gson().toJson(message), MoveMessage.class);
+
+    assertEquals(kingsPawn, read.getMove());
+    assertEquals(1, read.getSequence());
+    assertEquals(PositionHash.of(game), read.getPositionHash());
+  }
+}
@@ -0,0 +1,54 @@
+package serialization;
+
+import chess.*;
+import com.google.gson.Gson;
+import model.GameData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GsonFactoryTests {
+  private final Gson gson = GsonFactory.gson();
+
+  @Test
+  @DisplayName("New game writes the standard FEN")
+  public void newGameFen() {
+    String json = gson.toJson(new ChessGame());
+    assertEquals("{\"fen\":\"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w - - 0 1\",\"gameOver\":false}", json);
+  }
+
+  @Test
+  @DisplayName("GameData round trip")
+  public void gameDataRoundTrip() throws InvalidMoveException {
+    ChessGame game = new ChessGame();
+    game.makeMove(new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null));
+    game.setGameOver(true);
+    GameData data = new GameData(7, "white", null, "Game 7", game);
+
+    GameData read = gson.fromJson(gson.toJson(data), GameData.class);
+
+    assertEquals(7, read.gameID());
+    assertEquals("white", read.whiteUsername());
+    assertNull(read.blackUsername());
+    assertEquals("Game 7", read.gameName());
+    assertEquals(game.getBoard(), read.game().getBoard());
+    assertEquals(ChessGame.TeamColor.BLACK, read.game().getTeamTurn());
+    assertTrue(read.game().isGameOver());
+    assertEquals(ChessGame.TeamColor.WHITE, read.game().getWinner());
+  }
+
+  @Test
+  @DisplayName("Smaller than reflective JSON")
+  public void smallerThanReflective() {
+    ChessGame game = new ChessGame();
+    assertTrue(gson.toJson(game).length() * 10 < new Gson().toJson(game).length());
+  }
+
+  @Test
+  @DisplayName("Malformed FEN rejected")
+  public void malformedFen() {
+    assertThrows(RuntimeException.class,
+            () -> gson.fromJson("{\"fen\":\"rnbqkbnr/ppp/8 w\"}", ChessGame.class));
+  }
+}